@@ -33,21 +33,18 @@
 */
 package com.interoud.freqserver.test;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import javax.xml.bind.JAXB;
-
 import junit.framework.Assert;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.interoud.freqserver.test.client.FreqServerClient;
 import com.interoud.freqserver.test.parser.FreqServerResponse;
-import com.interoud.util.net.HTTPUtils;
 
 @SuppressWarnings("restriction")
 public class FreqServerTest {
@@ -64,8 +61,11 @@ public class FreqServerTest {
      */
     private Collection<Integer> allocatedFrequencies;
 
+    private FreqServerClient client;
+
     @Before
     public void setUp() throws IOException {
+        client = new FreqServerClient(BASEURL);
         allocatedFrequencies = new ArrayList<Integer>();
     }
 
@@ -217,15 +217,15 @@ public class FreqServerTest {
      * API operations
      * =======================================================================*/
     private FreqServerResponse startServer() throws IOException {
-        return httpPost(BASEURL + "StartServer");
+        return client.startServer();
     }
 
     private FreqServerResponse stopServer() throws IOException {
-        return httpPost(BASEURL + "StopServer");
+        return client.stopServer();
     }
 
     private FreqServerResponse allocateFrequency() throws IOException {
-        FreqServerResponse response = httpPost(BASEURL + "AllocateFrequency");
+        FreqServerResponse response = client.allocateFrequency();
         if(response.getResult() != null &&
                 response.getResult().getFrequencyAllocated() != null) {
             allocatedFrequencies.add(response.getResult().getFrequencyAllocated());
@@ -235,30 +235,10 @@ public class FreqServerTest {
 
     private FreqServerResponse deallocateFrequency(Integer frequency)
             throws IOException {
-        String body = null;
-        if(frequency != null) {
-            body = frequency.toString();
-        }
-        FreqServerResponse response = httpPost(BASEURL + "DeallocateFrequency",
-                body);
+        FreqServerResponse response = client.deallocateFrequency(frequency);
         if(OK_RESPONSE.equals(response.getState())) {
             allocatedFrequencies.remove(frequency);
         }
         return response;
     }
-
-    /* =========================================================================
-     * Utilities
-     * =======================================================================*/
-    private FreqServerResponse httpPost(String url) throws IOException {
-        return httpPost(url, null);
-    }
-
-	private FreqServerResponse httpPost(String url, String body) throws IOException {
-        String result = HTTPUtils.doPost(url, body, new Integer(5000),
-                new Integer(5000));
-        return JAXB.unmarshal(
-                new ByteArrayInputStream(result.getBytes()),
-                FreqServerResponse.class);
-    }
 }
@@ -0,0 +1,728 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.interoud.freqserver.test.codec.InvalidResponseException;
+import com.interoud.freqserver.test.codec.ResponseCodec;
+import com.interoud.freqserver.test.codec.ResponseCodecs;
+import com.interoud.freqserver.test.codec.ResponseValidation;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.util.metrics.MetricsRegistry;
+import com.interoud.util.net.HTTPCall;
+import com.interoud.util.net.HTTPResponse;
+import com.interoud.util.net.HTTPUtils;
+import com.interoud.util.net.HedgingPolicy;
+import com.interoud.util.net.LoadBalancer;
+import com.interoud.util.net.RateLimiter;
+import com.interoud.util.net.RequestTemplate;
+import com.interoud.util.net.RetryPolicy;
+
+/**
+ * Client for the operations of the freq_server Web Service. Requests are
+ * spread over one or more equivalent servers through a {@link LoadBalancer}.
+ */
+public class FreqServerClient implements FreqServerOperations {
+
+    public static final String START_SERVER = "StartServer";
+    public static final String STOP_SERVER = "StopServer";
+    public static final String ALLOCATE_FREQUENCY = "AllocateFrequency";
+    public static final String DEALLOCATE_FREQUENCY = "DeallocateFrequency";
+    public static final String ALLOCATE_FREQUENCIES = "AllocateFrequencies";
+    public static final String DEALLOCATE_FREQUENCIES = "DeallocateFrequencies";
+    public static final int DEFAULT_TIMEOUT = 5000;
+    public static final int DEFAULT_BATCH_CONCURRENCY = 8;
+    public static final long DEFAULT_BATCH_RETRY_MILLIS = 60000;
+
+    private static final String[] OPERATIONS = new String[] {
+        START_SERVER, STOP_SERVER, ALLOCATE_FREQUENCY, DEALLOCATE_FREQUENCY,
+        ALLOCATE_FREQUENCIES, DEALLOCATE_FREQUENCIES
+    };
+    private static final int START_SERVER_OP = 0;
+    private static final int STOP_SERVER_OP = 1;
+    private static final int ALLOCATE_FREQUENCY_OP = 2;
+    private static final int DEALLOCATE_FREQUENCY_OP = 3;
+    private static final int ALLOCATE_FREQUENCIES_OP = 4;
+    private static final int DEALLOCATE_FREQUENCIES_OP = 5;
+
+    /*
+     * Runs the single calls that replace a batch on servers without them
+     */
+    private static final ExecutorService batchExecutor = Executors
+            .newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "freqserver-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final LoadBalancer balancer;
+
+    /*
+     * Templates indexed by node and operation, rebuilt when the Accept header
+     * changes
+     */
+    private volatile RequestTemplate[][] templates;
+
+    private final RateLimiter[] rateLimiters = new RateLimiter[OPERATIONS.length];
+
+    private volatile List<ResponseCodec> codecs = Collections
+            .singletonList(ResponseCodecs.DEFAULT);
+
+    private volatile ResponseValidation validation = new ResponseValidation(0);
+
+    private volatile Integer connectTimeout = new Integer(DEFAULT_TIMEOUT);
+
+    private volatile Integer readTimeout = new Integer(DEFAULT_TIMEOUT);
+
+    private volatile RetryPolicy retryPolicy;
+
+    private volatile HedgingPolicy hedgingPolicy;
+
+    private volatile FreqServerMetrics metrics;
+
+    /*
+     * Time, by node, at which the node was found not to support batches, 0
+     * if it does
+     */
+    private final AtomicLongArray batchUnsupportedAt;
+
+    private volatile long batchRetryMillis = DEFAULT_BATCH_RETRY_MILLIS;
+
+    private volatile int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+
+    /**
+     * @param baseUrl
+     *            url of the Web Service, ending with a slash (e.g.
+     *            "http://localhost:8080/freq_server/").
+     */
+    public FreqServerClient(String baseUrl) {
+        this(Collections.singletonList(baseUrl),
+                LoadBalancer.Strategy.LEAST_OUTSTANDING);
+    }
+
+    public FreqServerClient(List<String> baseUrls,
+            LoadBalancer.Strategy strategy) {
+        this(new LoadBalancer(baseUrls, strategy));
+    }
+
+    public FreqServerClient(LoadBalancer balancer) {
+        this.balancer = balancer;
+        this.templates = createTemplates(null);
+        this.batchUnsupportedAt = new AtomicLongArray(balancer.getNodes()
+                .size());
+    }
+
+    private synchronized RequestTemplate[][] createTemplates(String accept) {
+        Map<String, String> headers = null;
+        if (accept != null) {
+            headers = Collections.singletonMap("Accept", accept);
+        }
+
+        List<LoadBalancer.Node> nodes = balancer.getNodes();
+        RequestTemplate[][] templates = new RequestTemplate[nodes.size()][OPERATIONS.length];
+        for (LoadBalancer.Node node : nodes) {
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                RequestTemplate template = new RequestTemplate("POST",
+                        node.getURL() + OPERATIONS[op], null, headers,
+                        HTTPUtils.XML_CONTENT_TYPE);
+                template.setRateLimiter(rateLimiters[op]);
+                templates[node.getIndex()][op] = template;
+            }
+        }
+        return templates;
+    }
+
+    public LoadBalancer getLoadBalancer() {
+        return balancer;
+    }
+
+    public void setTimeouts(Integer connectTimeout, Integer readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Sets the policy used to retry the operations that can be safely
+     * repeated (starting and stopping the server). An ALREADY_STARTED or
+     * NOT_RUNNING answer to any attempt but the first may be caused by an
+     * earlier one, so it is reported as success. Null
+     * disables retries.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets the policy used to hedge the operations that can be safely
+     * repeated. Each duplicate is routed independently, so it will usually
+     * reach a different node. Null disables hedging.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Starts recording the operations (responses by state, errors by type,
+     * failures and latencies) in the registry. Null stops recording.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = (registry != null) ? new FreqServerMetrics(registry,
+                OPERATIONS) : null;
+    }
+
+    /**
+     * Sets the response formats the client accepts, in order of preference.
+     * They are offered to the server in the Accept header, and each response
+     * is decoded with the codec of its Content-Type. By default the client
+     * sends no Accept header and decodes XML with JAXB.
+     *
+     * @throws IllegalArgumentException
+     *             if the list is empty.
+     */
+    public void setResponseCodecs(List<ResponseCodec> codecs) {
+        if (codecs.isEmpty()) {
+            throw new IllegalArgumentException("No response codecs");
+        }
+        synchronized (this) {
+            this.codecs = new ArrayList<ResponseCodec>(codecs);
+            this.templates = createTemplates(ResponseCodecs.accept(codecs));
+        }
+    }
+
+    public List<ResponseCodec> getResponseCodecs() {
+        return Collections.unmodifiableList(codecs);
+    }
+
+    /**
+     * Starts initializing the codecs of the client in the background, for
+     * short-lived processes that make few calls: see
+     * {@link ResponseCodecs#preload(List)}. Best called right after setting
+     * the codecs.
+     */
+    public void preload() {
+        ResponseCodecs.preload(codecs);
+    }
+
+    /**
+     * Sets how many of the responses are checked against the schema of the
+     * service. Those that break it fail with an
+     * {@link InvalidResponseException}. Null turns validation off, the
+     * default.
+     */
+    public void setResponseValidation(ResponseValidation validation) {
+        this.validation = (validation != null) ? validation
+                : new ResponseValidation(0);
+    }
+
+    public ResponseValidation getResponseValidation() {
+        return validation;
+    }
+
+    /**
+     * Sets how many single calls run at once when the server does not
+     * support batches and a batch has to be replaced by single calls.
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        if (batchConcurrency < 1) {
+            throw new IllegalArgumentException("Batch concurrency below 1: "
+                    + batchConcurrency);
+        }
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    /**
+     * Sets how long a node found not to support batches gets single calls
+     * instead, before a batch is tried on it again.
+     */
+    public void setBatchRetryInterval(long interval, TimeUnit unit) {
+        this.batchRetryMillis = unit.toMillis(interval);
+    }
+
+    /**
+     * @return false while every node has been found not to support batches,
+     *         until they are tried again.
+     */
+    public boolean isBatchSupported() {
+        for (LoadBalancer.Node node : balancer.getNodes()) {
+            if (isBatchSupported(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBatchSupported(LoadBalancer.Node node) {
+        long unsupportedAt = batchUnsupportedAt.get(node.getIndex());
+        return unsupportedAt == 0
+                || System.currentTimeMillis() - unsupportedAt
+                        >= batchRetryMillis;
+    }
+
+    /**
+     * Limits the rate of one operation across all the nodes. Null removes the
+     * limit.
+     *
+     * @param operation
+     *            one of the operation names, e.g. {@link #ALLOCATE_FREQUENCY}.
+     */
+    public void setRateLimiter(String operation, RateLimiter limiter) {
+        int op = Arrays.asList(OPERATIONS).indexOf(operation);
+        if (op == -1) {
+            throw new IllegalArgumentException("Unknown operation: "
+                    + operation);
+        }
+        synchronized (this) {
+            rateLimiters[op] = limiter;
+            for (RequestTemplate[] nodeTemplates : templates) {
+                nodeTemplates[op].setRateLimiter(limiter);
+            }
+        }
+    }
+
+    /* =========================================================================
+     * API operations
+     * =======================================================================*/
+    public TypedResponse startServer() throws IOException {
+        return postIdempotent(START_SERVER_OP);
+    }
+
+    public TypedResponse stopServer() throws IOException {
+        return postIdempotent(STOP_SERVER_OP);
+    }
+
+    public TypedResponse allocateFrequency() throws IOException {
+        return post(ALLOCATE_FREQUENCY_OP, null);
+    }
+
+    public TypedResponse deallocateFrequency(Integer frequency)
+            throws IOException {
+        String body = null;
+        if (frequency != null) {
+            body = frequency.toString();
+        }
+        return post(DEALLOCATE_FREQUENCY_OP, body);
+    }
+
+    /**
+     * Allocates several frequencies with a single request, or with concurrent
+     * single calls if the server does not support batches.
+     *
+     * @return a response for each frequency requested, like the one of
+     *         {@link #allocateFrequency()}.
+     * @throws PartialBatchException
+     *             if the batch was replaced by single calls and only some of
+     *             them failed, with the responses of the others.
+     * @throws IOException
+     *             if the batch request failed, or every single call did.
+     */
+    public List<TypedResponse> allocateFrequencies(int count)
+            throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Nothing to allocate: " + count);
+        }
+        List<TypedResponse> responses = postBatch(ALLOCATE_FREQUENCIES_OP,
+                Integer.toString(count));
+        if (responses != null) {
+            return responses;
+        }
+        return postEach(ALLOCATE_FREQUENCY_OP, new Integer[count]);
+    }
+
+    /**
+     * Deallocates several frequencies with a single request, or with
+     * concurrent single calls if the server does not support batches.
+     *
+     * @return a response for each frequency, in the same order, like the one
+     *         of {@link #deallocateFrequency(Integer)}.
+     * @throws PartialBatchException
+     *             if the batch was replaced by single calls and only some of
+     *             them failed, with the responses of the others.
+     * @throws IOException
+     *             if the batch request failed, or every single call did.
+     */
+    public List<TypedResponse> deallocateFrequencies(
+            List<Integer> frequencies) throws IOException {
+        if (frequencies.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to deallocate");
+        }
+        StringBuilder body = new StringBuilder(8 * frequencies.size());
+        for (Integer frequency : frequencies) {
+            if (body.length() > 0) {
+                body.append(',');
+            }
+            body.append(frequency);
+        }
+        List<TypedResponse> responses = postBatch(DEALLOCATE_FREQUENCIES_OP,
+                body.toString());
+        if (responses != null) {
+            return responses;
+        }
+        return postEach(DEALLOCATE_FREQUENCY_OP,
+                frequencies.toArray(new Integer[frequencies.size()]));
+    }
+
+    /* =========================================================================
+     * Utilities
+     * =======================================================================*/
+    private TypedResponse postIdempotent(final int operation)
+            throws IOException {
+
+        RetryPolicy retry = retryPolicy;
+        HedgingPolicy hedging = hedgingPolicy;
+        if (retry == null && hedging == null) {
+            return post(operation, null);
+        }
+
+        final AtomicInteger attempts = new AtomicInteger();
+        return HTTPUtils.executeIdempotent(new HTTPCall<TypedResponse>() {
+            public TypedResponse call() throws IOException {
+                /*
+                 * Only an attempt sent after another one may be answered
+                 * as if it had been repeated: the first one's answer is
+                 * genuine, whatever was sent later
+                 */
+                boolean afterAnother = attempts.getAndIncrement() > 0;
+                TypedResponse response = post(operation, null);
+                if (afterAnother && isRepeated(operation, response)) {
+                    return done();
+                }
+                return response;
+            }
+        }, retry, hedging);
+    }
+
+    /*
+     * Whether the response is what the operation gets when it has already
+     * been done
+     */
+    private static boolean isRepeated(int operation, TypedResponse response) {
+        ErrorType type = response.getErrorType();
+        return (operation == START_SERVER_OP && type == ErrorType.ALREADY_STARTED)
+                || (operation == STOP_SERVER_OP && type == ErrorType.NOT_RUNNING);
+    }
+
+    private static TypedResponse done() {
+        TypedResponse response = new TypedResponse();
+        response.setResponseState(ResponseState.OK);
+        response.setResult(new Result());
+        return response;
+    }
+
+    private TypedResponse post(int operation, String body)
+            throws IOException {
+
+        FreqServerMetrics recorder = metrics;
+        long start = System.nanoTime();
+        HTTPResponse result = send(balancer.acquire(), operation, body, start,
+                recorder);
+
+        TypedResponse response;
+        try {
+            response = parse(result, codecs, validation);
+        } catch (InvalidResponseException ire) {
+            if (recorder != null) {
+                recorder.recordInvalid(operation);
+            }
+            throw ire;
+        } catch (IOException ioe) {
+            if (recorder != null) {
+                recorder.recordFailure(operation);
+            }
+            throw ioe;
+        }
+
+        if (recorder != null) {
+            recorder.record(operation, response, System.nanoTime() - start);
+        }
+
+        return response;
+    }
+
+    /*
+     * Returns null if the node chosen does not support batches: it does not
+     * know the url, or answers with a single WRONG_REQUEST response. It is
+     * then sent no batches for batchRetryMillis
+     */
+    private List<TypedResponse> postBatch(int operation, String body)
+            throws IOException {
+
+        LoadBalancer.Node node = balancer.acquire();
+        if (!isBatchSupported(node)) {
+            balancer.cancel(node);
+            return null;
+        }
+
+        FreqServerMetrics recorder = metrics;
+        long start = System.nanoTime();
+        HTTPResponse result;
+        try {
+            result = send(node, operation, body, start, recorder);
+        } catch (FileNotFoundException fnfe) {
+            batchUnsupported(node);
+            return null;
+        }
+
+        List<TypedResponse> responses;
+        try {
+            responses = parseBatch(result, codecs, validation);
+        } catch (InvalidResponseException ire) {
+            if (recorder != null) {
+                recorder.recordInvalid(operation);
+            }
+            throw ire;
+        } catch (IOException ioe) {
+            if (isWrongRequest(result, codecs)) {
+                batchUnsupported(node);
+                return null;
+            }
+            if (recorder != null) {
+                recorder.recordFailure(operation);
+            }
+            throw ioe;
+        }
+
+        if (recorder != null) {
+            recorder.recordBatch(operation, responses, System.nanoTime()
+                    - start);
+        }
+        if (batchUnsupportedAt.get(node.getIndex()) != 0) {
+            batchUnsupportedAt.set(node.getIndex(), 0);
+        }
+
+        return responses;
+    }
+
+    private void batchUnsupported(LoadBalancer.Node node) {
+        batchUnsupportedAt.set(node.getIndex(), System.currentTimeMillis());
+    }
+
+    /*
+     * Replaces a batch with single calls, batchConcurrency at a time, the
+     * calling thread being one of them
+     */
+    private List<TypedResponse> postEach(final int operation,
+            final Integer[] frequencies) throws IOException {
+
+        final TypedResponse[] responses = new TypedResponse[frequencies.length];
+        final IOException[] failures = new IOException[frequencies.length];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Runnable caller = new Runnable() {
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < frequencies.length) {
+                    String body = (frequencies[i] != null) ? frequencies[i]
+                            .toString() : null;
+                    try {
+                        responses[i] = post(operation, body);
+                    } catch (IOException ioe) {
+                        failures[i] = ioe;
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min(batchConcurrency, frequencies.length) - 1;
+        List<Future<?>> futures = new ArrayList<Future<?>>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            futures.add(batchExecutor.submit(caller));
+        }
+        caller.run();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                    "Interrupted while waiting for the batch");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+
+        if (failed.get() == frequencies.length) {
+            throw failures[0];
+        }
+        if (failed.get() > 0) {
+            throw new PartialBatchException(failed.get() + " of "
+                    + frequencies.length + " calls failed",
+                    Arrays.asList(responses), Arrays.asList(failures));
+        }
+        return Arrays.asList(responses);
+    }
+
+    private HTTPResponse send(LoadBalancer.Node node, int operation,
+            String body, long start, FreqServerMetrics recorder)
+            throws IOException {
+
+        HTTPResponse result = null;
+        LoadBalancer.Phase phase = LoadBalancer.Phase.EXCHANGE;
+        boolean answered = false;
+
+        try {
+            result = templates[node.getIndex()][operation].executeRaw(body,
+                    connectTimeout, readTimeout);
+        } catch (FileNotFoundException fnfe) {
+            /*
+             * Nodes without batches answer them with a 404, which is no
+             * failure: postBatch replaces the batch with single calls
+             */
+            answered = isBatch(operation);
+            throw fnfe;
+        } catch (IOException ioe) {
+            if (HTTPUtils.isConnectFailure(ioe)) {
+                phase = LoadBalancer.Phase.CONNECT;
+            }
+            throw ioe;
+        } finally {
+            if (result != null || answered) {
+                balancer.release(node, System.nanoTime() - start);
+            } else {
+                balancer.release(node, phase);
+                if (recorder != null) {
+                    recorder.recordFailure(operation);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isBatch(int operation) {
+        return operation == ALLOCATE_FREQUENCIES_OP
+                || operation == DEALLOCATE_FREQUENCIES_OP;
+    }
+
+    private static ResponseCodec select(HTTPResponse result,
+            List<ResponseCodec> codecs) throws IOException {
+        ResponseCodec codec = ResponseCodecs.select(result.getContentType(),
+                codecs);
+        if (codec == null) {
+            throw new IOException("Unexpected response format: "
+                    + result.getContentType());
+        }
+        return codec;
+    }
+
+    private static TypedResponse parse(HTTPResponse result,
+            List<ResponseCodec> codecs, ResponseValidation validation)
+            throws IOException {
+        ResponseCodec codec = select(result, codecs);
+
+        ResponseParseEvent event = null;
+        if (HTTPUtils.isRecording()) {
+            event = new ResponseParseEvent();
+            event.begin();
+        }
+
+        byte[] bytes = result.getBody();
+        TypedResponse response = codec.decode(bytes);
+        validation.validate(codec, bytes, response);
+
+        if (event != null && event.shouldCommit()) {
+            event.responseBytes = bytes.length;
+            event.format = codec.getMediaType();
+            event.state = response.getState();
+            event.commit();
+        }
+
+        return response;
+    }
+
+    private static List<TypedResponse> parseBatch(HTTPResponse result,
+            List<ResponseCodec> codecs, ResponseValidation validation)
+            throws IOException {
+        ResponseCodec codec = select(result, codecs);
+
+        ResponseParseEvent event = null;
+        if (HTTPUtils.isRecording()) {
+            event = new ResponseParseEvent();
+            event.begin();
+        }
+
+        byte[] bytes = result.getBody();
+        List<TypedResponse> responses = codec.decodeBatch(bytes);
+        validation.validateBatch(codec, bytes, responses);
+
+        if (event != null && event.shouldCommit()) {
+            event.responseBytes = bytes.length;
+            event.format = codec.getMediaType();
+            event.commit();
+        }
+
+        return responses;
+    }
+
+    private static boolean isWrongRequest(HTTPResponse result,
+            List<ResponseCodec> codecs) {
+        try {
+            TypedResponse response = select(result, codecs).decode(
+                    result.getBody());
+            return response.getErrorType() == ErrorType.WRONG_REQUEST;
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.interoud.freqserver.test.codec.ResponseCodecs;
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+import com.interoud.util.net.HedgingPolicy;
+import com.interoud.util.net.LoadBalancer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class FreqServerClientTest {
+
+    @Test
+    public void testBatch() throws IOException {
+        FreqServerStandIn standIn = new FreqServerStandIn(0, 3, 1);
+        standIn.start();
+        try {
+            FreqServerClient client = new FreqServerClient(standIn
+                    .getBaseUrl());
+            client.startServer();
+
+            List<TypedResponse> responses = client.allocateFrequencies(4);
+            Assert.assertTrue(client.isBatchSupported());
+            Assert.assertEquals(4, responses.size());
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(Integer.valueOf(i + 1), responses.get(i)
+                        .getResult().getFrequencyAllocated());
+            }
+            Assert.assertEquals("NO_FREQUENCIES_AVAILABLE", responses.get(3)
+                    .getError().get(0).getErrorType());
+
+            responses = client.deallocateFrequencies(Arrays.asList(
+                    Integer.valueOf(2), Integer.valueOf(2)));
+            Assert.assertEquals("OK", responses.get(0).getState());
+            Assert.assertEquals("NOT_ALLOCATED", responses.get(1).getError()
+                    .get(0).getErrorType());
+
+            client.stopServer();
+        } finally {
+            standIn.stop();
+        }
+    }
+
+    /*
+     * Answers single allocations with increasing frequencies, but for one that
+     * fails, and batches with a 404 like a server that does not know them
+     */
+    private static class SinglesHandler implements HttpHandler {
+
+        private final AtomicInteger singles = new AtomicInteger();
+        private final AtomicInteger batches = new AtomicInteger();
+        private final int failing;
+
+        /**
+         * @param failing
+         *            number of the single call that fails, 0 for none.
+         */
+        SinglesHandler(int failing) {
+            this.failing = failing;
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            if (exchange.getRequestURI().getPath().endsWith("Frequencies")) {
+                batches.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            int single = singles.incrementAndGet();
+            if (single == failing) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            FreqServerResponse response = new FreqServerResponse();
+            response.setState("OK");
+            Result result = new Result();
+            result.setFrequencyAllocated(Integer.valueOf(single));
+            response.setResult(result);
+            byte[] body = ResponseCodecs.DEFAULT.encode(response);
+            exchange.getResponseHeaders().set("Content-Type",
+                    ResponseCodecs.DEFAULT.getContentType());
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    @Test
+    public void testBatchNotSupported() throws IOException {
+        SinglesHandler handler = new SinglesHandler(0);
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/freq_server/", handler);
+        server.start();
+        try {
+            FreqServerClient client = new FreqServerClient("http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/freq_server/");
+
+            List<TypedResponse> responses = client.allocateFrequencies(2);
+            Assert.assertEquals(2, responses.size());
+            Assert.assertEquals(1, handler.batches.get());
+            Assert.assertEquals(2, handler.singles.get());
+            Assert.assertFalse(client.isBatchSupported());
+
+            // the 404 is no failure of the node
+            LoadBalancer.Node node = client.getLoadBalancer().getNodes()
+                    .get(0);
+            Assert.assertEquals(0, node.getFailures());
+            Assert.assertEquals(0, node.getOutstanding());
+
+            // no more batches until the node is tried again
+            client.allocateFrequencies(2);
+            Assert.assertEquals(1, handler.batches.get());
+            client.setBatchRetryInterval(0, TimeUnit.MILLISECONDS);
+            client.allocateFrequencies(2);
+            Assert.assertEquals(2, handler.batches.get());
+            Assert.assertEquals(6, handler.singles.get());
+            Assert.assertEquals(0, node.getFailures());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testPartialBatch() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/freq_server/", new SinglesHandler(2));
+        server.start();
+        try {
+            FreqServerClient client = new FreqServerClient("http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/freq_server/");
+            client.setBatchConcurrency(1);
+
+            try {
+                client.allocateFrequencies(3);
+                Assert.fail();
+            } catch (PartialBatchException pbe) {
+                List<TypedResponse> responses = pbe.getResponses();
+                Assert.assertEquals(3, responses.size());
+                Assert.assertEquals(1, responses.get(0).getFrequency());
+                Assert.assertNull(responses.get(1));
+                Assert.assertEquals(3, responses.get(2).getFrequency());
+                Assert.assertNull(pbe.getFailures().get(0));
+                Assert.assertSame(pbe.getCause(), pbe.getFailures().get(1));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /*
+     * The original request starts the server but answers late, so the hedge
+     * gets ALREADY_STARTED first
+     */
+    @Test
+    public void testHedgedStart() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch hedged = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/freq_server/StartServer", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                FreqServerResponse response = new FreqServerResponse();
+                response.setResult(new Result());
+                if (requests.incrementAndGet() == 1) {
+                    try {
+                        hedged.await(2, TimeUnit.SECONDS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                    response.setState("OK");
+                } else {
+                    hedged.countDown();
+                    response.setState("ERROR");
+                    Error error = new Error();
+                    error.setErrorType("ALREADY_STARTED");
+                    response.getError().add(error);
+                }
+                byte[] body = ResponseCodecs.DEFAULT.encode(response);
+                exchange.getResponseHeaders().set("Content-Type",
+                        ResponseCodecs.DEFAULT.getContentType());
+                try {
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } catch (IOException ioe) {
+                    // the client gave up on this request
+                }
+            }
+        });
+        server.start();
+        try {
+            FreqServerClient client = new FreqServerClient("http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/freq_server/");
+            client.setHedgingPolicy(new HedgingPolicy(95.0, 50, 5, Executors
+                    .newCachedThreadPool()));
+
+            Assert.assertTrue(client.startServer().isOk());
+            Assert.assertEquals(2, requests.get());
+
+            // a single request answered fast is not hedged, its error stands
+            Assert.assertEquals("ALREADY_STARTED", client.startServer()
+                    .getErrorType().name());
+            Assert.assertEquals(3, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /*
+     * The server was already started: the original request answers so once
+     * the hedge has been sent, and the hedge is not answered in time
+     */
+    @Test
+    public void testHedgedAlreadyStarted() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch hedged = new CountDownLatch(1);
+        final CountDownLatch answered = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/freq_server/StartServer", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    if (requests.incrementAndGet() == 1) {
+                        hedged.await(2, TimeUnit.SECONDS);
+                    } else {
+                        hedged.countDown();
+                        answered.await(2, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                FreqServerResponse response = new FreqServerResponse();
+                response.setState("ERROR");
+                Error error = new Error();
+                error.setErrorType("ALREADY_STARTED");
+                response.getError().add(error);
+                byte[] body = ResponseCodecs.DEFAULT.encode(response);
+                exchange.getResponseHeaders().set("Content-Type",
+                        ResponseCodecs.DEFAULT.getContentType());
+                try {
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } catch (IOException ioe) {
+                    // the client gave up on this request
+                }
+            }
+        });
+        server.start();
+        try {
+            FreqServerClient client = new FreqServerClient("http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/freq_server/");
+            client.setHedgingPolicy(new HedgingPolicy(95.0, 50, 5, Executors
+                    .newCachedThreadPool()));
+
+            Assert.assertEquals("ALREADY_STARTED", client.startServer()
+                    .getErrorType().name());
+            Assert.assertEquals(2, requests.get());
+        } finally {
+            answered.countDown();
+            server.stop(0);
+        }
+    }
+
+}
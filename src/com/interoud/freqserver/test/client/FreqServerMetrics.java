@@ -0,0 +1,120 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.util.metrics.LatencyHistogram;
+import com.interoud.util.metrics.MetricsRegistry;
+
+/**
+ * Metrics recorded by {@link FreqServerClient} once a registry is set.
+ */
+class FreqServerMetrics {
+
+    private final MetricsRegistry.CounterFamily responses;
+
+    private final MetricsRegistry.CounterFamily errors;
+
+    private final MetricsRegistry.CounterFamily failures;
+
+    private final MetricsRegistry.CounterFamily invalid;
+
+    /*
+     * Indexed by operation, the labels never change
+     */
+    private final LatencyHistogram[] duration;
+
+    private final String[] operations;
+
+    FreqServerMetrics(MetricsRegistry registry, String[] operations) {
+        this.operations = operations;
+
+        responses = registry.counter("freqserver_responses_total",
+                "Responses received, by state", "operation", "state");
+        errors = registry.counter("freqserver_errors_total",
+                "Errors reported in the responses, by type", "operation",
+                "error_type");
+        failures = registry.counter("freqserver_failures_total",
+                "Operations that got no response", "operation");
+        invalid = registry.counter("freqserver_invalid_responses_total",
+                "Responses that broke the schema of the service",
+                "operation");
+
+        MetricsRegistry.HistogramFamily durationFamily = registry.histogram(
+                "freqserver_operation_duration_microseconds",
+                "Duration of the operations, parsing included", "operation");
+        duration = new LatencyHistogram[operations.length];
+        for (int op = 0; op < operations.length; op++) {
+            duration[op] = durationFamily.labels(operations[op]);
+        }
+    }
+
+    void record(int operation, FreqServerResponse response, long elapsedNanos) {
+        String name = operations[operation];
+        duration[operation].record(elapsedNanos / 1000);
+        responses(name, response);
+    }
+
+    private void responses(String name, FreqServerResponse response) {
+        responses.labels(name, String.valueOf(response.getState())).increment();
+        for (Error error : response.getError()) {
+            errors.labels(name, String.valueOf(error.getErrorType()))
+                    .increment();
+        }
+    }
+
+    /*
+     * One duration for the whole batch, every response counted
+     */
+    void recordBatch(int operation,
+            List<? extends FreqServerResponse> responses, long elapsedNanos) {
+        String name = operations[operation];
+        duration[operation].record(elapsedNanos / 1000);
+        for (FreqServerResponse response : responses) {
+            responses(name, response);
+        }
+    }
+
+    void recordFailure(int operation) {
+        failures.labels(operations[operation]).increment();
+    }
+
+    void recordInvalid(int operation) {
+        invalid.labels(operations[operation]).increment();
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.util.metrics.MetricsRegistry;
+
+/**
+ * Client for the operations of the freq_server service over the binary
+ * protocol of {@link WireProtocol}, for callers for which HTTP and XML cost
+ * far more than the payload. Connections are kept open and reused: each
+ * operation borrows an idle one, or opens a new one if there is none, so
+ * there are as many connections as concurrent operations.
+ *
+ * Operations are never retried: a failed allocation may or may not have been
+ * applied by the server.
+ */
+public class FreqServerWireClient implements FreqServerOperations, Closeable {
+
+    public static final int DEFAULT_TIMEOUT = FreqServerClient.DEFAULT_TIMEOUT;
+    public static final int BUFFER_SIZE = 256;
+
+    private static final String[] OPERATIONS = new String[] {
+        FreqServerClient.START_SERVER, FreqServerClient.STOP_SERVER,
+        FreqServerClient.ALLOCATE_FREQUENCY,
+        FreqServerClient.DEALLOCATE_FREQUENCY
+    };
+    private static final int START_SERVER_OP = 0;
+    private static final int STOP_SERVER_OP = 1;
+    private static final int ALLOCATE_FREQUENCY_OP = 2;
+    private static final int DEALLOCATE_FREQUENCY_OP = 3;
+
+    private final InetSocketAddress address;
+
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<Connection>();
+
+    private volatile Integer connectTimeout = Integer.valueOf(DEFAULT_TIMEOUT);
+
+    private volatile Integer readTimeout = Integer.valueOf(DEFAULT_TIMEOUT);
+
+    private volatile FreqServerMetrics metrics;
+
+    private volatile boolean closed;
+
+    public FreqServerWireClient(String host, int port) {
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    public void setTimeouts(Integer connectTimeout, Integer readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Starts recording the operations in the registry, under the same names
+     * as {@link FreqServerClient}. Null stops recording.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = (registry != null) ? new FreqServerMetrics(registry,
+                OPERATIONS) : null;
+    }
+
+    /* =========================================================================
+     * API operations
+     * =======================================================================*/
+    public TypedResponse startServer() throws IOException {
+        return call(START_SERVER_OP, WireProtocol.START_SERVER, null);
+    }
+
+    public TypedResponse stopServer() throws IOException {
+        return call(STOP_SERVER_OP, WireProtocol.STOP_SERVER, null);
+    }
+
+    public TypedResponse allocateFrequency() throws IOException {
+        return call(ALLOCATE_FREQUENCY_OP, WireProtocol.ALLOCATE_FREQUENCY,
+                null);
+    }
+
+    public TypedResponse deallocateFrequency(Integer frequency)
+            throws IOException {
+        return call(DEALLOCATE_FREQUENCY_OP,
+                WireProtocol.DEALLOCATE_FREQUENCY, frequency);
+    }
+
+    /**
+     * Closes the idle connections, and the busy ones as they are returned.
+     */
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /* =========================================================================
+     * Utilities
+     * =======================================================================*/
+    private TypedResponse call(int operation, byte opcode,
+            Integer frequency) throws IOException {
+
+        if (closed) {
+            throw new IOException("Client closed");
+        }
+
+        long start = System.nanoTime();
+        Connection connection = null;
+        TypedResponse response;
+
+        try {
+            connection = idle.poll();
+            if (connection == null) {
+                connection = new Connection(address, connectTimeout);
+            }
+            connection.setReadTimeout(readTimeout);
+
+            WireProtocol.writeRequest(connection.out, opcode, frequency);
+            connection.out.flush();
+            response = WireProtocol.readResponse(connection.in);
+
+        } catch (IOException ioe) {
+            /*
+             * The connection is out of step or broken, either way it cannot
+             * be reused
+             */
+            if (connection != null) {
+                connection.close();
+            }
+            FreqServerMetrics recorder = metrics;
+            if (recorder != null) {
+                recorder.recordFailure(operation);
+            }
+            throw ioe;
+        }
+
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+
+        FreqServerMetrics recorder = metrics;
+        if (recorder != null) {
+            recorder.record(operation, response, System.nanoTime() - start);
+        }
+
+        return response;
+    }
+
+    private static class Connection {
+
+        private final Socket socket;
+
+        final DataInputStream in;
+
+        final DataOutputStream out;
+
+        private Integer readTimeout;
+
+        Connection(InetSocketAddress address, Integer connectTimeout)
+                throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, (connectTimeout != null)
+                        ? connectTimeout.intValue() : 0);
+                in = new DataInputStream(new BufferedInputStream(
+                        socket.getInputStream(), BUFFER_SIZE));
+                out = new DataOutputStream(new BufferedOutputStream(
+                        socket.getOutputStream(), BUFFER_SIZE));
+            } catch (IOException ioe) {
+                socket.close();
+                throw ioe;
+            }
+        }
+
+        void setReadTimeout(Integer timeout) throws IOException {
+            if (timeout != readTimeout) {
+                socket.setSoTimeout((timeout != null) ? timeout.intValue() : 0);
+                readTimeout = timeout;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ioe) {
+                // Nothing else to do
+            }
+        }
+
+    }
+
+}
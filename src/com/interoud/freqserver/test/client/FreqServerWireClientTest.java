@@ -0,0 +1,114 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+public class FreqServerWireClientTest {
+
+    @Test
+    public void testErrorTypes() throws IOException {
+        for (String type : new String[] { "NOT_ALLOCATED", "SOMETHING_NEW" }) {
+            FreqServerResponse response = new FreqServerResponse();
+            response.setState("ERROR");
+            response.setResult(new Result());
+            Error error = new Error();
+            error.setErrorType(type);
+            error.setErrorDescription("Frequency 7 is not allocated");
+            response.getError().add(error);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            WireProtocol.writeResponse(new DataOutputStream(bytes), response,
+                    new ByteArrayOutputStream());
+            FreqServerResponse decoded = WireProtocol
+                    .readResponse(new DataInputStream(new ByteArrayInputStream(
+                            bytes.toByteArray())));
+
+            Assert.assertEquals("ERROR", decoded.getState());
+            Assert.assertNull(decoded.getResult().getFrequencyAllocated());
+            Assert.assertEquals(type, decoded.getError().get(0).getErrorType());
+            Assert.assertEquals(error.getErrorDescription(), decoded
+                    .getError().get(0).getErrorDescription());
+        }
+    }
+
+    @Test
+    public void testOperations() throws IOException {
+        FreqServerStandIn standIn = new FreqServerStandIn(0, 2, 1);
+        standIn.start();
+        FreqServerWireClient client = new FreqServerWireClient("localhost",
+                standIn.startWire(0));
+        try {
+            Assert.assertEquals("OK", client.startServer().getState());
+            Assert.assertEquals("ALREADY_STARTED", client.startServer()
+                    .getError().get(0).getErrorType());
+
+            Integer frequency = client.allocateFrequency().getResult()
+                    .getFrequencyAllocated();
+            Assert.assertEquals(Integer.valueOf(1), frequency);
+            Assert.assertEquals(Integer.valueOf(2), client.allocateFrequency()
+                    .getResult().getFrequencyAllocated());
+            Assert.assertEquals("NO_FREQUENCIES_AVAILABLE", client
+                    .allocateFrequency().getError().get(0).getErrorType());
+
+            Assert.assertEquals("OK", client.deallocateFrequency(frequency)
+                    .getState());
+            Assert.assertEquals("NOT_ALLOCATED", client
+                    .deallocateFrequency(frequency).getError().get(0)
+                    .getErrorType());
+            Assert.assertEquals("WRONG_REQUEST", client
+                    .deallocateFrequency(null).getError().get(0)
+                    .getErrorType());
+
+            Assert.assertEquals("OK", client.stopServer().getState());
+        } finally {
+            client.close();
+            standIn.stop();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+/**
+ * Thrown when some of the single calls that replace a batch failed and others
+ * did not. The responses of those that did not must not be lost: allocated
+ * frequencies are held until they are deallocated.
+ */
+public class PartialBatchException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<TypedResponse> responses;
+
+    private final List<IOException> failures;
+
+    /**
+     * @param responses
+     *            response of each call, null for those that failed.
+     * @param failures
+     *            failure of each call, null for those that succeeded.
+     */
+    public PartialBatchException(String message,
+            List<TypedResponse> responses, List<IOException> failures) {
+        super(message);
+        this.responses = Collections.unmodifiableList(responses);
+        this.failures = Collections.unmodifiableList(failures);
+        for (IOException failure : failures) {
+            if (failure != null) {
+                initCause(failure);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Responses in the order of the batch, null for the calls that failed.
+     */
+    public List<TypedResponse> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Failures in the order of the batch, null for the calls that succeeded.
+     */
+    public List<IOException> getFailures() {
+        return failures;
+    }
+
+}
@@ -0,0 +1,229 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.LazyText;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.parser.TypedResult;
+
+/**
+ * Length-prefixed binary protocol for the freq_server operations, over a
+ * persistent TCP connection. Every frame is an int with the length of the
+ * rest of the frame followed by:
+ *
+ * <pre>
+ * request:
+ *   byte    opcode
+ *   int     frequency (deallocation only)
+ *
+ * response:
+ *   byte    status: 0 OK, 1 ERROR
+ *   byte    flags: 1 frequency present
+ *   int     frequency allocated, if present
+ *   byte    error type code (errors only), 0 followed by the type as UTF
+ *           for types without a code
+ *   UTF     error description (errors only)
+ * </pre>
+ *
+ * Requests are answered in order, one at a time per connection.
+ */
+public final class WireProtocol {
+
+    public static final byte START_SERVER = 1;
+    public static final byte STOP_SERVER = 2;
+    public static final byte ALLOCATE_FREQUENCY = 3;
+    public static final byte DEALLOCATE_FREQUENCY = 4;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int MAX_FRAME = 64 * 1024;
+
+    /*
+     * Error types indexed by code, 0 is for the types without one
+     */
+    private static final List<ErrorType> ERROR_TYPES = Arrays.asList(null,
+            ErrorType.ALREADY_STARTED, ErrorType.NOT_RUNNING,
+            ErrorType.NO_FREQUENCIES_AVAILABLE, ErrorType.WRONG_REQUEST,
+            ErrorType.NOT_ALLOCATED);
+
+    private static final int FREQUENCY = 1;
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Writes a request, without flushing.
+     *
+     * @param frequency
+     *            frequency to deallocate, ignored by other operations. Null
+     *            sends the request without one.
+     */
+    public static void writeRequest(DataOutputStream out, byte opcode,
+            Integer frequency) throws IOException {
+        if (opcode == DEALLOCATE_FREQUENCY && frequency != null) {
+            out.writeInt(5);
+            out.writeByte(opcode);
+            out.writeInt(frequency.intValue());
+        } else {
+            out.writeInt(1);
+            out.writeByte(opcode);
+        }
+    }
+
+    /**
+     * Writes a response, without flushing.
+     *
+     * @param buffer
+     *            scratch buffer for the frame, reused between calls.
+     */
+    public static void writeResponse(DataOutputStream out,
+            FreqServerResponse response, ByteArrayOutputStream buffer)
+            throws IOException {
+
+        buffer.reset();
+        DataOutputStream frame = new DataOutputStream(buffer);
+        boolean ok = "OK".equals(response.getState());
+        Integer frequency = (response.getResult() != null) ? response
+                .getResult().getFrequencyAllocated() : null;
+
+        frame.writeByte(ok ? STATUS_OK : STATUS_ERROR);
+        frame.writeByte((frequency != null) ? FREQUENCY : 0);
+        if (frequency != null) {
+            frame.writeInt(frequency.intValue());
+        }
+        if (!ok) {
+            Error error = response.getError().isEmpty() ? null : response
+                    .getError().get(0);
+            String type = (error != null) ? error.getErrorType() : null;
+            int code = ERROR_TYPES.indexOf(ErrorType.of(type));
+            if (code > 0) {
+                frame.writeByte(code);
+            } else {
+                frame.writeByte(0);
+                frame.writeUTF((type != null) ? type : "");
+            }
+            String description = (error != null) ? error.getErrorDescription()
+                    : null;
+            frame.writeUTF((description != null) ? description : "");
+        }
+
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+    }
+
+    /**
+     * Reads a whole frame, so that the stream stays in step even if the frame
+     * has fields this version does not know about.
+     */
+    public static DataInputStream readFrame(DataInputStream in)
+            throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(readFrameBytes(
+                in)));
+    }
+
+    private static byte[] readFrameBytes(DataInputStream in)
+            throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("Bad frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    public static TypedResponse readResponse(DataInputStream stream)
+            throws IOException {
+
+        byte[] frame = readFrameBytes(stream);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                frame));
+        TypedResponse response = new TypedResponse();
+        TypedResult result = new TypedResult();
+        response.setResult(result);
+        try {
+            byte status = in.readByte();
+            int flags = in.readByte();
+            if ((flags & FREQUENCY) != 0) {
+                result.setFrequency(in.readInt());
+            }
+            if (status == STATUS_OK) {
+                response.setResponseState(ResponseState.OK);
+            } else if (status == STATUS_ERROR) {
+                response.setResponseState(ResponseState.ERROR);
+                TypedError error = new TypedError();
+                int code = in.readUnsignedByte();
+                if (code == 0) {
+                    error.setErrorType(in.readUTF());
+                } else if (code < ERROR_TYPES.size()) {
+                    error.setType(ERROR_TYPES.get(code));
+                } else {
+                    throw new IOException("Bad error type code: " + code);
+                }
+                /*
+                 * Left undecoded in the frame until someone asks for it
+                 */
+                int offset = frame.length - in.available();
+                int length = in.readUnsignedShort();
+                if (in.skipBytes(length) < length) {
+                    throw new EOFException();
+                }
+                error.setErrorDescription(LazyText.ofUTF(frame, offset));
+                response.getError().add(error);
+            } else {
+                throw new IOException("Bad status: " + status);
+            }
+        } catch (EOFException eofe) {
+            throw new IOException("Truncated frame", eofe);
+        }
+
+        return response;
+    }
+
+}
@@ -0,0 +1,286 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.LazyText;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.parser.TypedResult;
+
+/**
+ * Compact binary encoding of the responses, written with
+ * {@link DataOutputStream}:
+ *
+ * <pre>
+ * byte    version (1)
+ * byte    flags: state present, result present, frequency present
+ * UTF     state, if present
+ * int     frequency allocated, if present
+ * short   number of errors, followed for each error by:
+ *   byte  flags: type present, description present
+ *   UTF   type, if present
+ *   UTF   description, if present
+ * </pre>
+ *
+ * Batch responses are the version, a flags byte with only the batch flag
+ * (0x80), an int with the number of responses and then each response,
+ * starting from its flags.
+ */
+public class BinaryCodec implements ResponseCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int STATE = 1;
+    private static final int RESULT = 2;
+    private static final int FREQUENCY = 4;
+    private static final int BATCH = 0x80;
+    private static final int TYPE = 1;
+    private static final int DESCRIPTION = 2;
+
+    public String getMediaType() {
+        return ResponseCodecs.BINARY;
+    }
+
+    public String getContentType() {
+        return ResponseCodecs.BINARY;
+    }
+
+    public TypedResponse decode(byte[] data) throws IOException {
+        Cursor cursor = open(data);
+        try {
+            return read(cursor, cursor.in.readUnsignedByte());
+        } catch (EOFException eofe) {
+            throw new IOException("Truncated binary response", eofe);
+        }
+    }
+
+    public List<TypedResponse> decodeBatch(byte[] data) throws IOException {
+        Cursor cursor = open(data);
+        try {
+            if (cursor.in.readUnsignedByte() != BATCH) {
+                throw new IOException("Not a batch response");
+            }
+            int size = cursor.in.readInt();
+            if (size < 0 || size > data.length) {
+                throw new IOException("Bad batch size: " + size);
+            }
+            List<TypedResponse> responses = new ArrayList<TypedResponse>(size);
+            for (int i = 0; i < size; i++) {
+                responses.add(read(cursor, cursor.in.readUnsignedByte()));
+            }
+            return responses;
+        } catch (EOFException eofe) {
+            throw new IOException("Truncated binary response", eofe);
+        }
+    }
+
+    private static Cursor open(byte[] data) throws IOException {
+        Cursor cursor = new Cursor(data);
+        try {
+            byte version = cursor.in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary response version: "
+                        + version);
+            }
+        } catch (EOFException eofe) {
+            throw new IOException("Truncated binary response", eofe);
+        }
+        return cursor;
+    }
+
+    private static TypedResponse read(Cursor cursor, int flags)
+            throws IOException {
+        if ((flags & BATCH) != 0) {
+            throw new IOException("Unexpected batch response");
+        }
+
+        DataInputStream in = cursor.in;
+        TypedResponse response = new TypedResponse();
+        if ((flags & STATE) != 0) {
+            ResponseState state = ResponseState.match(cursor.buffer(),
+                    cursor.stringStart(), cursor.stringEnd());
+            if (state != null) {
+                cursor.skipString();
+                response.setResponseState(state);
+            } else {
+                response.setState(in.readUTF());
+            }
+        }
+        if ((flags & RESULT) != 0) {
+            TypedResult result = new TypedResult();
+            if ((flags & FREQUENCY) != 0) {
+                result.setFrequency(in.readInt());
+            }
+            response.setResult(result);
+        }
+
+        int errors = in.readUnsignedShort();
+        for (int i = 0; i < errors; i++) {
+            TypedError error = new TypedError();
+            int errorFlags = in.readByte();
+            if ((errorFlags & TYPE) != 0) {
+                ErrorType type = ErrorType.match(cursor.buffer(),
+                        cursor.stringStart(), cursor.stringEnd());
+                if (type != null) {
+                    cursor.skipString();
+                    error.setType(type);
+                } else {
+                    error.setErrorType(in.readUTF());
+                }
+            }
+            if ((errorFlags & DESCRIPTION) != 0) {
+                error.setErrorDescription(cursor.sliceString());
+            }
+            response.getError().add(error);
+        }
+
+        return response;
+    }
+
+    /*
+     * Input over the response that can look at the bytes of the next string
+     * before deciding whether to build it, or leave it for later. Known names are plain ASCII, which
+     * modified UTF-8 leaves as is.
+     */
+    private static final class Cursor extends ByteArrayInputStream {
+
+        final DataInputStream in = new DataInputStream(this);
+
+        Cursor(byte[] data) {
+            super(data);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        int stringStart() {
+            return pos + 2;
+        }
+
+        /*
+         * Before the start if the length is not there
+         */
+        int stringEnd() {
+            if (pos + 2 > count) {
+                return pos;
+            }
+            int end = pos + 2 + (((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff));
+            return (end <= count) ? end : pos;
+        }
+
+        void skipString() {
+            pos = stringEnd();
+        }
+
+        /*
+         * Skips the next string, to be decoded later from the buffer
+         */
+        LazyText sliceString() throws EOFException {
+            int end = stringEnd();
+            if (end == pos) {
+                throw new EOFException();
+            }
+            LazyText text = LazyText.ofUTF(buf, pos);
+            pos = end;
+            return text;
+        }
+
+    }
+
+    public byte[] encode(FreqServerResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        write(out, response);
+        return bytes.toByteArray();
+    }
+
+    public byte[] encodeBatch(List<FreqServerResponse> responses)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                16 * responses.size() + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeByte(BATCH);
+        out.writeInt(responses.size());
+        for (FreqServerResponse response : responses) {
+            write(out, response);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(DataOutputStream out,
+            FreqServerResponse response) throws IOException {
+        Result result = response.getResult();
+        Integer frequency = (result != null) ? result.getFrequencyAllocated()
+                : null;
+        out.writeByte((response.getState() != null ? STATE : 0)
+                | (result != null ? RESULT : 0)
+                | (frequency != null ? FREQUENCY : 0));
+        if (response.getState() != null) {
+            out.writeUTF(response.getState());
+        }
+        if (frequency != null) {
+            out.writeInt(frequency.intValue());
+        }
+
+        out.writeShort(response.getError().size());
+        for (Error error : response.getError()) {
+            out.writeByte((error.getErrorType() != null ? TYPE : 0)
+                    | (error.getErrorDescription() != null ? DESCRIPTION : 0));
+            if (error.getErrorType() != null) {
+                out.writeUTF(error.getErrorType());
+            }
+            if (error.getErrorDescription() != null) {
+                out.writeUTF(error.getErrorDescription());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.stream.StreamSource;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+/**
+ * XML encoding through the JAXB classes generated from the schema of the
+ * service. It is the reference codec: the slowest, but the one that follows
+ * the schema to the letter. The typed responses are copies of what JAXB
+ * builds.
+ */
+public class JaxbXmlCodec implements ResponseCodec {
+
+    private static final QName ROOT = new QName(ResponseCodecs.NAMESPACE,
+            ResponseCodecs.XML_ROOT);
+
+    /*
+     * Built once, on first use. The JAXB facade would do the same, but only
+     * keeps a weak reference to its context and may have to build it again.
+     */
+    private static class Context {
+        static final JAXBContext INSTANCE;
+        static {
+            try {
+                INSTANCE = JAXBContext.newInstance(FreqServerResponse.class);
+            } catch (JAXBException je) {
+                throw new ExceptionInInitializerError(je);
+            }
+        }
+    }
+
+    public String getMediaType() {
+        return ResponseCodecs.XML;
+    }
+
+    public String getContentType() {
+        return ResponseCodecs.XML_CONTENT_TYPE;
+    }
+
+    public TypedResponse decode(byte[] data) throws IOException {
+        try {
+            Unmarshaller unmarshaller = Context.INSTANCE.createUnmarshaller();
+            return TypedResponse.of(unmarshaller.unmarshal(
+                    new StreamSource(new ByteArrayInputStream(data)),
+                    FreqServerResponse.class).getValue());
+        } catch (JAXBException je) {
+            throw new IOException("Malformed XML response", je);
+        }
+    }
+
+    public byte[] encode(FreqServerResponse response) throws IOException {
+        decodeDescriptions(response);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            Marshaller marshaller = Context.INSTANCE.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT,
+                    Boolean.TRUE);
+            marshaller.marshal(new JAXBElement<FreqServerResponse>(ROOT,
+                    FreqServerResponse.class, response), out);
+        } catch (JAXBException je) {
+            throw new IOException("Cannot encode response", je);
+        }
+        return out.toByteArray();
+    }
+
+    public List<TypedResponse> decodeBatch(byte[] data) throws IOException {
+        List<TypedResponse> responses = new ArrayList<TypedResponse>();
+        try {
+            Unmarshaller unmarshaller = Context.INSTANCE.createUnmarshaller();
+            XMLStreamReader reader = StreamingXmlCodec.FACTORY
+                    .createXMLStreamReader(new ByteArrayInputStream(data));
+            try {
+                reader.nextTag();
+                if (!ResponseCodecs.XML_BATCH_ROOT.equals(reader
+                        .getLocalName())) {
+                    throw new IOException("Not a batch response: "
+                            + reader.getLocalName());
+                }
+
+                /*
+                 * The unmarshaller leaves the reader past the end of the
+                 * element it reads, so nextTag() could skip the next one
+                 */
+                reader.next();
+                while (reader.getEventType() != XMLStreamConstants.END_ELEMENT
+                        && reader.getEventType() != XMLStreamConstants.END_DOCUMENT) {
+                    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                        responses.add(TypedResponse.of(unmarshaller.unmarshal(
+                                reader, FreqServerResponse.class).getValue()));
+                    } else {
+                        reader.next();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xse) {
+            throw new IOException("Malformed XML response", xse);
+        } catch (JAXBException je) {
+            throw new IOException("Malformed XML response", je);
+        }
+        return responses;
+    }
+
+    public byte[] encodeBatch(List<FreqServerResponse> responses)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                128 * responses.size() + 128);
+        try {
+            Marshaller marshaller = Context.INSTANCE.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("", ResponseCodecs.XML_BATCH_ROOT,
+                    ResponseCodecs.NAMESPACE);
+            writer.writeDefaultNamespace(ResponseCodecs.NAMESPACE);
+            for (FreqServerResponse response : responses) {
+                decodeDescriptions(response);
+                marshaller.marshal(new JAXBElement<FreqServerResponse>(ROOT,
+                        FreqServerResponse.class, response), writer);
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException xse) {
+            throw new IOException("Cannot encode response", xse);
+        } catch (JAXBException je) {
+            throw new IOException("Cannot encode response", je);
+        }
+        return out.toByteArray();
+    }
+
+    /*
+     * JAXB reads the fields, so descriptions left undecoded would be lost
+     */
+    private static void decodeDescriptions(FreqServerResponse response) {
+        for (Error error : response.getError()) {
+            error.getErrorDescription();
+        }
+    }
+
+}
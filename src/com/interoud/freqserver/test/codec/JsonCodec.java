@@ -0,0 +1,523 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.LazyText;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.parser.TypedResult;
+
+/**
+ * JSON encoding of the responses, with the element names of the XML schema:
+ *
+ * <pre>
+ * {"state":"ERROR","result":{"frequency_allocated":null},
+ *  "error":[{"error_type":"NOT_RUNNING","error_description":"..."}]}
+ * </pre>
+ *
+ * Batch responses are an array of those objects. The reader only knows about
+ * this shape, it skips any other member.
+ */
+public class JsonCodec implements ResponseCodec {
+
+    public String getMediaType() {
+        return ResponseCodecs.JSON;
+    }
+
+    public String getContentType() {
+        return ResponseCodecs.JSON + "; charset=UTF-8";
+    }
+
+    /* =========================================================================
+     * Decoding
+     * =======================================================================*/
+    public TypedResponse decode(byte[] data) throws IOException {
+        Parser parser = new Parser(new String(data, "UTF-8"));
+        TypedResponse response = readResponse(parser);
+        parser.expectEnd();
+        return response;
+    }
+
+    public List<TypedResponse> decodeBatch(byte[] data) throws IOException {
+        Parser parser = new Parser(new String(data, "UTF-8"));
+        List<TypedResponse> responses = new ArrayList<TypedResponse>();
+
+        parser.expect('[');
+        if (!parser.consume(']')) {
+            do {
+                responses.add(readResponse(parser));
+            } while (parser.consume(','));
+            parser.expect(']');
+        }
+        parser.expectEnd();
+
+        return responses;
+    }
+
+    private static TypedResponse readResponse(Parser parser)
+            throws IOException {
+        TypedResponse response = new TypedResponse();
+
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                if ("state".equals(name)) {
+                    ResponseState state = parser.consumeNull() ? null : parser
+                            .matchString(STATES);
+                    if (state != null) {
+                        response.setResponseState(state);
+                    } else if (!parser.wasNull()) {
+                        response.setState(parser.readString());
+                    }
+                } else if ("result".equals(name)) {
+                    response.setResult(readResult(parser));
+                } else if ("error".equals(name)) {
+                    readErrors(parser, response);
+                } else {
+                    parser.skipValue();
+                }
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+
+        return response;
+    }
+
+    private static TypedResult readResult(Parser parser) throws IOException {
+        if (parser.consumeNull()) {
+            return null;
+        }
+        TypedResult result = new TypedResult();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                if ("frequency_allocated".equals(name)) {
+                    if (!parser.consumeNull()) {
+                        result.setFrequency(parser.readInt());
+                    }
+                } else {
+                    parser.skipValue();
+                }
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        return result;
+    }
+
+    private static void readErrors(Parser parser, TypedResponse response)
+            throws IOException {
+        if (parser.consumeNull()) {
+            return;
+        }
+        parser.expect('[');
+        if (parser.consume(']')) {
+            return;
+        }
+        do {
+            TypedError error = new TypedError();
+            parser.expect('{');
+            if (!parser.consume('}')) {
+                do {
+                    String name = parser.readString();
+                    parser.expect(':');
+                    if ("error_type".equals(name)) {
+                        ErrorType type = parser.consumeNull() ? null : parser
+                                .matchString(ERROR_TYPES);
+                        if (type != null) {
+                            error.setType(type);
+                        } else if (!parser.wasNull()) {
+                            error.setErrorType(parser.readString());
+                        }
+                    } else if ("error_description".equals(name)) {
+                        if (!parser.consumeNull()) {
+                            error.setErrorDescription(parser.sliceString());
+                        }
+                    } else {
+                        parser.skipValue();
+                    }
+                } while (parser.consume(','));
+                parser.expect('}');
+            }
+            response.getError().add(error);
+        } while (parser.consume(','));
+        parser.expect(']');
+    }
+
+    /*
+     * Matches text against the names of the constants of an enum
+     */
+    private interface Names<E> {
+        E match(CharSequence text, int start, int end);
+    }
+
+    private static final Names<ResponseState> STATES = new Names<ResponseState>() {
+        public ResponseState match(CharSequence text, int start, int end) {
+            return ResponseState.match(text, start, end);
+        }
+    };
+
+    private static final Names<ErrorType> ERROR_TYPES = new Names<ErrorType>() {
+        public ErrorType match(CharSequence text, int start, int end) {
+            return ErrorType.match(text, start, end);
+        }
+    };
+
+    /*
+     * Minimal JSON reader over a string
+     */
+    private static class Parser {
+
+        private final String text;
+
+        private int position;
+
+        private boolean wasNull;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length()
+                    && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        void expectEnd() throws IOException {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Trailing data");
+            }
+        }
+
+        boolean consumeNull() {
+            skipWhitespace();
+            wasNull = text.startsWith("null", position);
+            if (wasNull) {
+                position += 4;
+            }
+            return wasNull;
+        }
+
+        /*
+         * Whether the last consumeNull() found a null
+         */
+        boolean wasNull() {
+            return wasNull;
+        }
+
+        String readNullableString() throws IOException {
+            return consumeNull() ? null : readString();
+        }
+
+        /*
+         * Reads a string if it is one of the names, without building it.
+         * Returns null, without moving, for other strings.
+         */
+        <E> E matchString(Names<E> names) throws IOException {
+            skipWhitespace();
+            if (position >= text.length() || text.charAt(position) != '"') {
+                throw error("'\"' expected");
+            }
+            int end = text.indexOf('"', position + 1);
+            if (end == -1) {
+                return null;
+            }
+            E value = names.match(text, position + 1, end);
+            if (value != null) {
+                position = end + 1;
+            }
+            return value;
+        }
+
+        int readInt() throws IOException {
+            skipWhitespace();
+            boolean negative = position < text.length()
+                    && text.charAt(position) == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                position++;
+                if (++digits > 10) {
+                    throw error("Integer too large");
+                }
+            }
+            value = negative ? -value : value;
+            if (digits == 0 || value != (int) value) {
+                throw error("Integer expected");
+            }
+            return (int) value;
+        }
+
+        String readString() throws IOException {
+            expect('"');
+            StringBuilder value = null;
+            int start = position;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    if (value == null) {
+                        return text.substring(start, position - 1);
+                    }
+                    return value.toString();
+                }
+                if (value == null) {
+                    if (c != '\\') {
+                        continue;
+                    }
+                    value = new StringBuilder(text.substring(start,
+                            position - 1));
+                } else if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                value.append(readEscape());
+            }
+            throw error("Unterminated string");
+        }
+
+        /*
+         * Skips a string, to be read later from the text
+         */
+        LazyText sliceString() throws IOException {
+            skipWhitespace();
+            final int start = position;
+            expect('"');
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return new LazyText() {
+                        protected String decode() throws IOException {
+                            Parser parser = new Parser(text);
+                            parser.position = start;
+                            return parser.readString();
+                        }
+                    };
+                }
+                if (c == '\\') {
+                    position++;
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private char readEscape() throws IOException {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(position++);
+            switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (position + 4 > text.length()) {
+                    throw error("Bad escape");
+                }
+                try {
+                    c = (char) Integer.parseInt(
+                            text.substring(position, position + 4), 16);
+                } catch (NumberFormatException nfe) {
+                    throw error("Bad escape");
+                }
+                position += 4;
+                return c;
+            default:
+                return c;
+            }
+        }
+
+        void skipValue() throws IOException {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Value expected");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                char close = (c == '{') ? '}' : ']';
+                position++;
+                if (consume(close)) {
+                    return;
+                }
+                do {
+                    if (c == '{') {
+                        readString();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            } else {
+                /*
+                 * Number, true, false or null
+                 */
+                int start = position;
+                while (position < text.length()
+                        && ",}] \t\r\n".indexOf(text.charAt(position)) == -1) {
+                    position++;
+                }
+                if (position == start) {
+                    throw error("Value expected");
+                }
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException("Malformed JSON response: " + message
+                    + " at " + position);
+        }
+
+    }
+
+    /* =========================================================================
+     * Encoding
+     * =======================================================================*/
+    public byte[] encode(FreqServerResponse response) throws IOException {
+        StringBuilder json = new StringBuilder(128);
+        append(json, response);
+        return json.toString().getBytes("UTF-8");
+    }
+
+    public byte[] encodeBatch(List<FreqServerResponse> responses)
+            throws IOException {
+        StringBuilder json = new StringBuilder(96 * responses.size() + 2);
+        json.append('[');
+        for (int i = 0; i < responses.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            append(json, responses.get(i));
+        }
+        return json.append(']').toString().getBytes("UTF-8");
+    }
+
+    private static void append(StringBuilder json, FreqServerResponse response) {
+        json.append("{\"state\":");
+        appendString(json, response.getState());
+
+        json.append(",\"result\":");
+        Result result = response.getResult();
+        if (result == null) {
+            json.append("null");
+        } else {
+            json.append("{\"frequency_allocated\":")
+                    .append(result.getFrequencyAllocated()).append('}');
+        }
+
+        if (!response.getError().isEmpty()) {
+            json.append(",\"error\":[");
+            boolean first = true;
+            for (Error error : response.getError()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"error_type\":");
+                appendString(json, error.getErrorType());
+                json.append(",\"error_description\":");
+                appendString(json, error.getErrorDescription());
+                json.append('}');
+            }
+            json.append(']');
+        }
+
+        json.append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+/**
+ * Encoding of the freq_server responses on the wire. Codecs must be thread
+ * safe, a single instance is shared by every request.
+ *
+ * Additional codecs can be plugged in by listing them in
+ * META-INF/services/com.interoud.freqserver.test.codec.ResponseCodec, see
+ * {@link ResponseCodecs#getCodecs()}.
+ */
+public interface ResponseCodec {
+
+    /**
+     * @return the media type of the encoding, without parameters (e.g.
+     *         "application/json").
+     */
+    String getMediaType();
+
+    /**
+     * @return the Content-Type header of the encoded responses.
+     */
+    String getContentType();
+
+    /**
+     * @return the response, with its typed accessors filled in.
+     * @throws IOException
+     *             if the data is not a valid response in this encoding.
+     */
+    TypedResponse decode(byte[] data) throws IOException;
+
+    byte[] encode(FreqServerResponse response) throws IOException;
+
+    /**
+     * Decodes the response to a batch operation, one entry per item of the
+     * batch.
+     *
+     * @throws IOException
+     *             if the data is not a valid batch response in this encoding,
+     *             in particular if it is a single response.
+     */
+    List<TypedResponse> decodeBatch(byte[] data) throws IOException;
+
+    byte[] encodeBatch(List<FreqServerResponse> responses) throws IOException;
+
+}
@@ -0,0 +1,273 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.Result;
+
+/**
+ * Registry of the response codecs and content negotiation between them.
+ *
+ * Clients list the codecs they can decode, in order of preference, in the
+ * Accept header ({@link #accept(List)}); servers pick the best one they have
+ * ({@link #negotiate(String, List)}) and clients decode the response with
+ * the codec matching its Content-Type ({@link #select(String, List)}).
+ */
+public class ResponseCodecs {
+
+    public static final String NAMESPACE = "http://localhost:8080/freq_server/response.xsd";
+    public static final String XML = "text/xml";
+    public static final String XML_CONTENT_TYPE = "text/xml; charset=\"UTF-8\"";
+    public static final String XML_ROOT = "freq_server_response";
+    public static final String XML_BATCH_ROOT = "freq_server_batch_response";
+    public static final String JSON = "application/json";
+    public static final String BINARY = "application/x-freq-server";
+
+    /**
+     * Codec of the responses of servers that do not negotiate.
+     */
+    public static final ResponseCodec DEFAULT = new JaxbXmlCodec();
+
+    /*
+     * Built on first use: clients that keep the default codec never pay for
+     * the service lookup
+     */
+    private static class Available {
+        static final List<ResponseCodec> CODECS;
+        static {
+            List<ResponseCodec> codecs = new ArrayList<ResponseCodec>();
+            codecs.add(new StreamingXmlCodec());
+            codecs.add(new JsonCodec());
+            codecs.add(new BinaryCodec());
+            for (ResponseCodec codec : ServiceLoader
+                    .load(ResponseCodec.class)) {
+                codecs.add(codec);
+            }
+            CODECS = Collections.unmodifiableList(codecs);
+        }
+    }
+
+    private static final AtomicBoolean preloaded = new AtomicBoolean();
+
+    private ResponseCodecs() {
+    }
+
+    /**
+     * @return the fastest built-in codec of each media type (XML first),
+     *         followed by the ones registered as services.
+     */
+    public static List<ResponseCodec> getCodecs() {
+        return Available.CODECS;
+    }
+
+    /**
+     * Starts initializing the codecs in the background, so that short-lived
+     * processes do it while they connect rather than on their first
+     * response. Each codec decodes a sample response, which builds and
+     * caches whatever it needs; a response decoded before then waits for it
+     * instead of doing it again. Only the first call does anything.
+     */
+    public static void preload(final List<ResponseCodec> codecs) {
+        if (!preloaded.compareAndSet(false, true)) {
+            return;
+        }
+
+        final FreqServerResponse sample = new FreqServerResponse();
+        sample.setState("OK");
+        sample.setResult(new Result());
+        sample.getResult().setFrequencyAllocated(Integer.valueOf(1));
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                for (ResponseCodec codec : codecs) {
+                    try {
+                        codec.decode(codec.encode(sample));
+                    } catch (IOException ioe) {
+                        // Left for the first real response to report
+                    }
+                }
+            }
+        }, "freqserver-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Looks up a codec by short name: "jaxb", "xml" (streaming), "json" or
+     * "binary", or else by media type.
+     *
+     * @throws IllegalArgumentException
+     *             if there is no such codec.
+     */
+    public static ResponseCodec forName(String name) {
+        if ("jaxb".equals(name)) {
+            return DEFAULT;
+        }
+        if ("xml".equals(name)) {
+            return select(XML, Available.CODECS);
+        }
+        if ("json".equals(name)) {
+            return select(JSON, Available.CODECS);
+        }
+        if ("binary".equals(name)) {
+            return select(BINARY, Available.CODECS);
+        }
+        ResponseCodec codec = select(name, Available.CODECS);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+        return codec;
+    }
+
+    /**
+     * @return the Accept header listing the media types of the codecs, with
+     *         decreasing quality in the order given.
+     */
+    public static String accept(List<ResponseCodec> codecs) {
+        StringBuilder accept = new StringBuilder();
+        List<String> types = new ArrayList<String>();
+        for (ResponseCodec codec : codecs) {
+            if (types.contains(codec.getMediaType())) {
+                continue;
+            }
+            int quality = Math.max(10 - types.size(), 1);
+            types.add(codec.getMediaType());
+            if (accept.length() > 0) {
+                accept.append(", ");
+            }
+            accept.append(codec.getMediaType());
+            if (quality < 10) {
+                accept.append(";q=0.").append(quality);
+            }
+        }
+        return accept.toString();
+    }
+
+    /**
+     * @return the first of the codecs for the media type of the content type,
+     *         or null if none of them matches. A missing content type is
+     *         taken as XML, the format of the servers that do not negotiate,
+     *         and every XML media type (application/xml, +xml suffixes) is
+     *         decoded as text/xml.
+     */
+    public static ResponseCodec select(String contentType,
+            List<ResponseCodec> codecs) {
+        String type = (contentType != null) ? mediaType(contentType) : XML;
+        for (ResponseCodec codec : codecs) {
+            if (codec.getMediaType().equals(type)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Chooses the codec for a response: the one with the highest quality in
+     * the Accept header, the earliest in the header on ties, and the earliest
+     * in the list for wildcards.
+     *
+     * @return the codec, or null if the header accepts none of them. No
+     *         header at all accepts the first one.
+     */
+    public static ResponseCodec negotiate(String accept,
+            List<ResponseCodec> codecs) {
+        if (accept == null || accept.trim().length() == 0) {
+            return codecs.isEmpty() ? null : codecs.get(0);
+        }
+
+        ResponseCodec best = null;
+        float bestQuality = 0;
+        for (String range : accept.split(",")) {
+            String type = mediaType(range);
+            float quality = quality(range);
+            if (quality <= bestQuality) {
+                continue;
+            }
+            for (ResponseCodec codec : codecs) {
+                if (matches(type, codec.getMediaType())) {
+                    best = codec;
+                    bestQuality = quality;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean matches(String range, String type) {
+        if (range.equals(type) || range.equals("*/*")) {
+            return true;
+        }
+        return range.endsWith("/*")
+                && type.startsWith(range.substring(0, range.length() - 1));
+    }
+
+    /*
+     * Media type without parameters, XML ones as text/xml
+     */
+    private static String mediaType(String value) {
+        int end = value.indexOf(';');
+        if (end != -1) {
+            value = value.substring(0, end);
+        }
+        String type = value.trim().toLowerCase(Locale.ENGLISH);
+        if (type.equals("application/xml") || type.endsWith("+xml")) {
+            return XML;
+        }
+        return type;
+    }
+
+    private static float quality(String range) {
+        for (String parameter : range.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
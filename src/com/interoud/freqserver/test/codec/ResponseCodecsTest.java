@@ -0,0 +1,274 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+public class ResponseCodecsTest {
+
+    private static final List<ResponseCodec> CODECS = Arrays.asList(
+            ResponseCodecs.DEFAULT, new StreamingXmlCodec(), new JsonCodec(),
+            new BinaryCodec());
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        FreqServerResponse ok = new FreqServerResponse();
+        ok.setState("OK");
+        ok.setResult(new Result());
+        ok.getResult().setFrequencyAllocated(Integer.valueOf(42));
+
+        FreqServerResponse error = new FreqServerResponse();
+        error.setState("ERROR");
+        error.setResult(new Result());
+        Error e = new Error();
+        e.setErrorType("NOT_ALLOCATED");
+        e.setErrorDescription("Frequency \"7\" is <not> allocated\né");
+        error.getError().add(e);
+
+        for (ResponseCodec encoder : CODECS) {
+            for (ResponseCodec decoder : CODECS) {
+                if (!encoder.getMediaType().equals(decoder.getMediaType())) {
+                    continue;
+                }
+                TypedResponse decoded = decoder.decode(encoder.encode(ok));
+                Assert.assertEquals("OK", decoded.getState());
+                Assert.assertEquals(Integer.valueOf(42), decoded.getResult()
+                        .getFrequencyAllocated());
+                Assert.assertTrue(decoded.getError().isEmpty());
+                Assert.assertSame(ResponseState.OK, decoded.getResponseState());
+                Assert.assertEquals(42, decoded.getFrequency());
+                Assert.assertNull(decoded.getErrorType());
+
+                decoded = decoder.decode(encoder.encode(error));
+                Assert.assertEquals("ERROR", decoded.getState());
+                Assert.assertNotNull(decoded.getResult());
+                Assert.assertNull(decoded.getResult().getFrequencyAllocated());
+                Assert.assertEquals(1, decoded.getError().size());
+                Assert.assertEquals("NOT_ALLOCATED", decoded.getError().get(0)
+                        .getErrorType());
+                Assert.assertEquals(e.getErrorDescription(), decoded.getError()
+                        .get(0).getErrorDescription());
+                Assert.assertSame(ErrorType.NOT_ALLOCATED, decoded
+                        .getErrorType());
+                Assert.assertFalse(decoded.hasFrequency());
+            }
+        }
+    }
+
+    @Test
+    public void testBatchRoundTrip() throws IOException {
+        FreqServerResponse ok = new FreqServerResponse();
+        ok.setState("OK");
+        ok.setResult(new Result());
+        ok.getResult().setFrequencyAllocated(Integer.valueOf(3));
+
+        FreqServerResponse error = new FreqServerResponse();
+        error.setState("ERROR");
+        error.setResult(new Result());
+        Error e = new Error();
+        e.setErrorType("NO_FREQUENCIES_AVAILABLE");
+        error.getError().add(e);
+
+        List<FreqServerResponse> batch = Arrays.asList(ok, error, ok);
+        for (ResponseCodec encoder : CODECS) {
+            for (ResponseCodec decoder : CODECS) {
+                if (!encoder.getMediaType().equals(decoder.getMediaType())) {
+                    continue;
+                }
+                List<TypedResponse> decoded = decoder.decodeBatch(encoder
+                        .encodeBatch(batch));
+                Assert.assertEquals(3, decoded.size());
+                Assert.assertEquals(Integer.valueOf(3), decoded.get(2)
+                        .getResult().getFrequencyAllocated());
+                Assert.assertEquals("NO_FREQUENCIES_AVAILABLE", decoded.get(1)
+                        .getError().get(0).getErrorType());
+
+                try {
+                    decoder.decodeBatch(encoder.encode(ok));
+                    Assert.fail(decoder.getClass().getName());
+                } catch (IOException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDescriptions() throws IOException {
+        List<FreqServerResponse> batch = new ArrayList<FreqServerResponse>();
+        for (int i = 0; i < 3; i++) {
+            FreqServerResponse response = new FreqServerResponse();
+            response.setState("ERROR");
+            for (int j = 0; j < 2; j++) {
+                Error e = new Error();
+                e.setErrorType("NOT_ALLOCATED");
+                if (i != 1) {
+                    e.setErrorDescription("Frequency \\" + i + "-" + j
+                            + "\u00e9");
+                }
+                response.getError().add(e);
+            }
+            batch.add(response);
+        }
+
+        for (ResponseCodec codec : CODECS) {
+            List<TypedResponse> decoded = codec.decodeBatch(codec
+                    .encodeBatch(batch));
+            for (int i = 2; i >= 0; i--) {
+                for (int j = 1; j >= 0; j--) {
+                    TypedError error = (TypedError) decoded.get(i).getError()
+                            .get(j);
+                    Assert.assertEquals(i != 1, error.hasErrorDescription());
+                    Assert.assertEquals(batch.get(i).getError().get(j)
+                            .getErrorDescription(), error
+                            .getErrorDescription());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownNames() throws IOException {
+        FreqServerResponse response = new FreqServerResponse();
+        response.setState("PENDING");
+        Error e = new Error();
+        e.setErrorType("OVERLOADED");
+        response.getError().add(e);
+
+        for (ResponseCodec codec : CODECS) {
+            TypedResponse decoded = codec.decode(codec.encode(response));
+            Assert.assertSame(ResponseState.UNKNOWN, decoded.getResponseState());
+            Assert.assertEquals("PENDING", decoded.getState());
+            Assert.assertSame(ErrorType.UNKNOWN, decoded.getErrorType());
+            Assert.assertEquals("OVERLOADED", decoded.getError().get(0)
+                    .getErrorType());
+        }
+    }
+
+    @Test
+    public void testValidation() throws IOException {
+        FreqServerResponse ok = new FreqServerResponse();
+        ok.setState("OK");
+        ok.setResult(new Result());
+        ok.getResult().setFrequencyAllocated(Integer.valueOf(5));
+
+        FreqServerResponse drifted = new FreqServerResponse();
+        drifted.setState("ERROR");
+        drifted.setResult(new Result());
+        Error e = new Error();
+        e.setErrorType("OVERLOADED");
+        drifted.getError().add(e);
+
+        ResponseValidation full = new ResponseValidation();
+        ResponseValidation off = ResponseValidation.valueOf("off");
+        Assert.assertEquals(ResponseValidation.Mode.FULL, full.getMode());
+        Assert.assertEquals(ResponseValidation.Mode.SAMPLED,
+                ResponseValidation.valueOf("0.01").getMode());
+        for (ResponseCodec codec : CODECS) {
+            byte[] body = codec.encode(ok);
+            full.validate(codec, body, codec.decode(body));
+            body = codec.encodeBatch(Arrays.asList(ok, ok));
+            full.validateBatch(codec, body, codec.decodeBatch(body));
+
+            body = codec.encode(drifted);
+            off.validate(codec, body, codec.decode(body));
+            try {
+                full.validate(codec, body, codec.decode(body));
+                Assert.fail(codec.getClass().getName());
+            } catch (InvalidResponseException expected) {
+            }
+        }
+        Assert.assertEquals(3 * CODECS.size(), full.getValidated());
+        Assert.assertEquals(CODECS.size(), full.getInvalid());
+        Assert.assertEquals(0, off.getValidated());
+    }
+
+    @Test
+    public void testMalformed() {
+        for (ResponseCodec codec : CODECS) {
+            try {
+                codec.decode("{\"state\":".getBytes());
+                Assert.fail(codec.getClass().getName());
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testNegotiation() {
+        List<ResponseCodec> codecs = ResponseCodecs.getCodecs();
+        Assert.assertEquals(ResponseCodecs.XML,
+                ResponseCodecs.negotiate(null, codecs).getMediaType());
+        Assert.assertEquals(ResponseCodecs.BINARY, ResponseCodecs.negotiate(
+                ResponseCodecs.accept(Arrays.asList(new BinaryCodec(),
+                        new JsonCodec())), codecs).getMediaType());
+        Assert.assertEquals(ResponseCodecs.JSON, ResponseCodecs.negotiate(
+                "text/xml;q=0.5, application/json", codecs).getMediaType());
+        Assert.assertEquals(ResponseCodecs.XML, ResponseCodecs.negotiate(
+                "text/*, */*;q=0.1", codecs).getMediaType());
+        Assert.assertNull(ResponseCodecs.negotiate("image/png", codecs));
+
+        Assert.assertEquals(ResponseCodecs.JSON, ResponseCodecs.select(
+                "application/json; charset=UTF-8", codecs).getMediaType());
+        Assert.assertEquals(ResponseCodecs.XML,
+                ResponseCodecs.select(null, codecs).getMediaType());
+        Assert.assertNull(ResponseCodecs.select("text/html", codecs));
+
+        // any XML media type is decoded by the default codec
+        List<ResponseCodec> jaxb = Arrays.asList(ResponseCodecs.DEFAULT);
+        Assert.assertSame(ResponseCodecs.DEFAULT, ResponseCodecs.select(
+                "application/xml", jaxb));
+        Assert.assertSame(ResponseCodecs.DEFAULT, ResponseCodecs.select(
+                "Text/XML;charset=ISO-8859-1; boundary=x", jaxb));
+        Assert.assertSame(ResponseCodecs.DEFAULT, ResponseCodecs.select(
+                "application/freq-server+xml", jaxb));
+        Assert.assertEquals(ResponseCodecs.XML, ResponseCodecs.negotiate(
+                "application/xml", codecs).getMediaType());
+    }
+
+}
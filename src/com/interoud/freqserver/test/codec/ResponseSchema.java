@@ -0,0 +1,172 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.xml.sax.SAXException;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+/**
+ * Schema of the responses of the service, as in the fragments documenting
+ * the JAXB classes, plus the batch element of this client. XML bodies are
+ * validated against it; the other formats have their decoded responses
+ * checked against the same rules.
+ */
+class ResponseSchema {
+
+    /*
+     * The result may be empty: error responses come with <result/>
+     */
+    private static final String XSD = "<xs:schema"
+            + " xmlns:xs=\"http://www.w3.org/2001/XMLSchema\""
+            + " xmlns:fs=\"" + ResponseCodecs.NAMESPACE + "\""
+            + " targetNamespace=\"" + ResponseCodecs.NAMESPACE + "\""
+            + " elementFormDefault=\"qualified\">"
+            + "<xs:element name=\"" + ResponseCodecs.XML_ROOT + "\""
+            + " type=\"fs:freq_server_response\"/>"
+            + "<xs:element name=\"" + ResponseCodecs.XML_BATCH_ROOT + "\">"
+            + "<xs:complexType><xs:sequence>"
+            + "<xs:element name=\"" + ResponseCodecs.XML_ROOT + "\""
+            + " type=\"fs:freq_server_response\" minOccurs=\"0\""
+            + " maxOccurs=\"unbounded\"/>"
+            + "</xs:sequence></xs:complexType></xs:element>"
+            + "<xs:complexType name=\"freq_server_response\"><xs:sequence>"
+            + "<xs:element name=\"state\"><xs:simpleType>"
+            + "<xs:restriction base=\"xs:token\">"
+            + "<xs:enumeration value=\"OK\"/>"
+            + "<xs:enumeration value=\"ERROR\"/>"
+            + "</xs:restriction></xs:simpleType></xs:element>"
+            + "<xs:element name=\"result\" type=\"fs:result\"/>"
+            + "<xs:element name=\"error\" type=\"fs:error\" minOccurs=\"0\""
+            + " maxOccurs=\"unbounded\"/>"
+            + "</xs:sequence></xs:complexType>"
+            + "<xs:complexType name=\"result\"><xs:choice minOccurs=\"0\">"
+            + "<xs:element name=\"frequency_allocated\" type=\"xs:int\"/>"
+            + "</xs:choice></xs:complexType>"
+            + "<xs:complexType name=\"error\"><xs:sequence>"
+            + "<xs:element name=\"error_type\"><xs:simpleType>"
+            + "<xs:restriction base=\"xs:token\">"
+            + "<xs:enumeration value=\"ALREADY_STARTED\"/>"
+            + "<xs:enumeration value=\"NOT_RUNNING\"/>"
+            + "<xs:enumeration value=\"NOT_ALLOCATED\"/>"
+            + "<xs:enumeration value=\"NO_FREQUENCIES_AVAILABLE\"/>"
+            + "<xs:enumeration value=\"WRONG_REQUEST\"/>"
+            + "</xs:restriction></xs:simpleType></xs:element>"
+            + "<xs:element name=\"error_description\" type=\"xs:string\""
+            + " minOccurs=\"0\"/>"
+            + "</xs:sequence></xs:complexType>"
+            + "</xs:schema>";
+
+    /*
+     * Compiled on first use, then shared: a Schema is thread safe, unlike
+     * the validators it creates
+     */
+    private static class Compiled {
+        static final Schema INSTANCE;
+        static {
+            try {
+                INSTANCE = SchemaFactory.newInstance(
+                        XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+                        new StreamSource(new StringReader(XSD)));
+            } catch (SAXException se) {
+                throw new ExceptionInInitializerError(se);
+            }
+        }
+    }
+
+    private ResponseSchema() {
+    }
+
+    /**
+     * Validates an XML body, a single response or a batch.
+     */
+    static void validate(byte[] xml) throws IOException {
+        Validator validator = Compiled.INSTANCE.newValidator();
+        try {
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            validator.validate(new StreamSource(new ByteArrayInputStream(xml)));
+        } catch (SAXException se) {
+            throw new InvalidResponseException(
+                    "Response does not follow the schema: " + se.getMessage(),
+                    se);
+        }
+    }
+
+    /**
+     * Checks a decoded response against the rules of the schema.
+     */
+    static void check(TypedResponse response) throws IOException {
+        ResponseState state = response.getResponseState();
+        if (state == null || state == ResponseState.UNKNOWN) {
+            throw new InvalidResponseException("Bad state: "
+                    + response.getState());
+        }
+        if (response.getResult() == null) {
+            throw new InvalidResponseException("Result missing");
+        }
+        if (response.getFirstError() == null) {
+            return;
+        }
+        for (Error error : response.getError()) {
+            ErrorType type = TypedError.of(error).getType();
+            if (type == null || type == ErrorType.UNKNOWN) {
+                throw new InvalidResponseException("Bad error type: "
+                        + error.getErrorType());
+            }
+        }
+    }
+
+    static void check(List<TypedResponse> responses) throws IOException {
+        for (TypedResponse response : responses) {
+            check(response);
+        }
+    }
+
+}
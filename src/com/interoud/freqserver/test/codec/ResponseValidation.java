@@ -0,0 +1,186 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.interoud.freqserver.test.parser.TypedResponse;
+
+/**
+ * How much of the responses is checked against the schema of the service,
+ * to notice when the server drifts from it. XML bodies are validated against
+ * the compiled schema, which takes longer than decoding them; the other
+ * formats have their decoded responses checked against the same rules.
+ *
+ * Sampling keeps the cost low enough for production clients: a change on the
+ * server shows up in every response, so a small fraction of them is enough to
+ * catch it.
+ */
+public class ResponseValidation {
+
+    public enum Mode {
+        OFF, SAMPLED, FULL
+    }
+
+    private final Mode mode;
+
+    private final double rate;
+
+    private final AtomicLong validated = new AtomicLong();
+
+    private final AtomicLong invalid = new AtomicLong();
+
+    /**
+     * Validates every response.
+     */
+    public ResponseValidation() {
+        this(1);
+    }
+
+    /**
+     * @param rate
+     *            fraction of the responses validated, from 0 (none) to 1
+     *            (all).
+     */
+    public ResponseValidation(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Rate out of [0, 1]: " + rate);
+        }
+        this.rate = rate;
+        if (rate == 0) {
+            mode = Mode.OFF;
+        } else if (rate == 1) {
+            mode = Mode.FULL;
+        } else {
+            mode = Mode.SAMPLED;
+        }
+    }
+
+    /**
+     * Parses "off", "full" or a rate such as "0.01".
+     */
+    public static ResponseValidation valueOf(String value) {
+        if ("off".equalsIgnoreCase(value)) {
+            return new ResponseValidation(0);
+        }
+        if ("full".equalsIgnoreCase(value)) {
+            return new ResponseValidation();
+        }
+        try {
+            return new ResponseValidation(Double.parseDouble(value));
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Bad validation mode: "
+                    + value);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public long getValidated() {
+        return validated.get();
+    }
+
+    public long getInvalid() {
+        return invalid.get();
+    }
+
+    /**
+     * Validates a single response, if it is one of the sample.
+     *
+     * @param body
+     *            the body the response was decoded from.
+     * @throws InvalidResponseException
+     *             if it breaks the schema.
+     */
+    public void validate(ResponseCodec codec, byte[] body,
+            TypedResponse response) throws IOException {
+        if (!sample()) {
+            return;
+        }
+        try {
+            if (ResponseCodecs.XML.equals(codec.getMediaType())) {
+                ResponseSchema.validate(body);
+            } else {
+                ResponseSchema.check(response);
+            }
+        } catch (InvalidResponseException ire) {
+            invalid.incrementAndGet();
+            throw ire;
+        }
+    }
+
+    /**
+     * Validates a batch, as a whole, if it is one of the sample.
+     */
+    public void validateBatch(ResponseCodec codec, byte[] body,
+            List<TypedResponse> responses) throws IOException {
+        if (!sample()) {
+            return;
+        }
+        try {
+            if (ResponseCodecs.XML.equals(codec.getMediaType())) {
+                ResponseSchema.validate(body);
+            } else {
+                ResponseSchema.check(responses);
+            }
+        } catch (InvalidResponseException ire) {
+            invalid.incrementAndGet();
+            throw ire;
+        }
+    }
+
+    private boolean sample() {
+        if (mode == Mode.OFF
+                || (mode == Mode.SAMPLED
+                        && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return false;
+        }
+        validated.incrementAndGet();
+        return true;
+    }
+
+    public String toString() {
+        return (mode == Mode.SAMPLED) ? mode + " " + rate : mode.toString();
+    }
+
+}
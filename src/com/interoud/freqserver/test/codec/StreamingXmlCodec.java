@@ -0,0 +1,425 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.ErrorType;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.LazyText;
+import com.interoud.freqserver.test.parser.ResponseState;
+import com.interoud.freqserver.test.parser.Result;
+import com.interoud.freqserver.test.parser.TypedError;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.parser.TypedResult;
+
+/**
+ * Same XML encoding as {@link JaxbXmlCodec}, read with a StAX cursor and
+ * written by hand. It fills in the same objects JAXB would, without its
+ * reflection and without building anything for elements it does not know.
+ */
+public class StreamingXmlCodec implements ResponseCodec {
+
+    static final XMLInputFactory FACTORY = XMLInputFactory
+            .newInstance();
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    public String getMediaType() {
+        return ResponseCodecs.XML;
+    }
+
+    public String getContentType() {
+        return ResponseCodecs.XML_CONTENT_TYPE;
+    }
+
+    public TypedResponse decode(byte[] data) throws IOException {
+        return read(data, ResponseCodecs.XML_ROOT).get(0);
+    }
+
+    public List<TypedResponse> decodeBatch(byte[] data) throws IOException {
+        return read(data, ResponseCodecs.XML_BATCH_ROOT);
+    }
+
+    /*
+     * Reads every response element under the given root, which may be the
+     * single response itself
+     */
+    private static List<TypedResponse> read(byte[] data, String root)
+            throws IOException {
+
+        List<TypedResponse> responses = new ArrayList<TypedResponse>(1);
+        TypedResponse response = null;
+        TypedError error = null;
+        int descriptions = 0;
+
+        try {
+            XMLStreamReader reader = FACTORY
+                    .createXMLStreamReader(new ByteArrayInputStream(data));
+            try {
+                reader.nextTag();
+                if (!root.equals(reader.getLocalName())) {
+                    throw new IOException("Unexpected response element: "
+                            + reader.getLocalName());
+                }
+
+                do {
+                    if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if ("error_description".equals(name)) {
+                        int index = descriptions++;
+                        if (error != null) {
+                            skipElementText(reader);
+                            error.setErrorDescription(new XmlText(data, index));
+                        }
+                    } else if (ResponseCodecs.XML_ROOT.equals(name)) {
+                        response = new TypedResponse();
+                        responses.add(response);
+                        error = null;
+                    } else if (response == null) {
+                        continue;
+                    } else if ("state".equals(name)) {
+                        Object state = readName(reader, STATES);
+                        if (state instanceof ResponseState) {
+                            response.setResponseState((ResponseState) state);
+                        } else {
+                            response.setState((String) state);
+                        }
+                    } else if ("result".equals(name)) {
+                        response.setResult(new TypedResult());
+                    } else if ("frequency_allocated".equals(name)
+                            && response.getResult() != null) {
+                        response.getTypedResult().setFrequency(
+                                readInt(reader));
+                    } else if ("error".equals(name)) {
+                        error = new TypedError();
+                        response.getError().add(error);
+                    } else if ("error_type".equals(name) && error != null) {
+                        Object type = readName(reader, ERROR_TYPES);
+                        if (type instanceof ErrorType) {
+                            error.setType((ErrorType) type);
+                        } else {
+                            error.setErrorType((String) type);
+                        }
+                    }
+                } while (reader.hasNext()
+                        && reader.next() != XMLStreamConstants.END_DOCUMENT);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xse) {
+            throw new IOException("Malformed XML response", xse);
+        } catch (NumberFormatException nfe) {
+            throw new IOException("Malformed XML response", nfe);
+        }
+
+        return responses;
+    }
+
+    /*
+     * Matches text against the names of the constants of an enum
+     */
+    private interface Names {
+        Object match(char[] text, int start, int end);
+    }
+
+    private static final Names STATES = new Names() {
+        public Object match(char[] text, int start, int end) {
+            return ResponseState.match(text, start, end);
+        }
+    };
+
+    private static final Names ERROR_TYPES = new Names() {
+        public Object match(char[] text, int start, int end) {
+            return ErrorType.match(text, start, end);
+        }
+    };
+
+    /*
+     * Reads the text of the current element, up to its end, as one of the
+     * names. The usual case, a single text event, is matched in the buffer
+     * of the reader without building a string.
+     *
+     * Returns the constant matched, or else the collapsed text.
+     */
+    private static Object readName(XMLStreamReader reader, Names names)
+            throws XMLStreamException {
+
+        Object value = null;
+        StringBuilder text = null;
+        int event;
+        while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if (!isText(event)) {
+                continue;
+            }
+            if (value == null && text == null) {
+                char[] chars = reader.getTextCharacters();
+                int start = reader.getTextStart();
+                int end = start + reader.getTextLength();
+                while (start < end && Character.isWhitespace(chars[start])) {
+                    start++;
+                }
+                while (end > start && Character.isWhitespace(chars[end - 1])) {
+                    end--;
+                }
+                value = names.match(chars, start, end);
+                if (value == null) {
+                    text = new StringBuilder().append(chars, start,
+                            end - start);
+                }
+            } else {
+                if (text == null) {
+                    text = new StringBuilder(value.toString());
+                    value = null;
+                }
+                text.append(reader.getTextCharacters(), reader.getTextStart(),
+                        reader.getTextLength());
+            }
+        }
+
+        if (value != null) {
+            return value;
+        }
+        return (text != null) ? collapse(text.toString()) : "";
+    }
+
+    /*
+     * Reads the text of the current element as an int, from the buffer of
+     * the reader when it comes in a single event
+     */
+    private static int readInt(XMLStreamReader reader)
+            throws XMLStreamException {
+
+        long value = 0;
+        boolean negative = false;
+        int digits = 0;
+        boolean ended = false;
+        int event;
+        while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if (!isText(event)) {
+                continue;
+            }
+            char[] chars = reader.getTextCharacters();
+            int end = reader.getTextStart() + reader.getTextLength();
+            for (int i = reader.getTextStart(); i < end; i++) {
+                char c = chars[i];
+                if (Character.isWhitespace(c)) {
+                    ended = digits > 0;
+                } else if (ended) {
+                    throw new NumberFormatException("Not a number");
+                } else if (c == '-' && digits == 0 && !negative) {
+                    negative = true;
+                } else if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (++digits > 10) {
+                        throw new NumberFormatException("Number too large");
+                    }
+                } else {
+                    throw new NumberFormatException("Not a number: " + c);
+                }
+            }
+        }
+
+        value = negative ? -value : value;
+        if (digits == 0 || value != (int) value) {
+            throw new NumberFormatException("Not an int");
+        }
+        return (int) value;
+    }
+
+    /*
+     * Moves to the end of an element that must only have text, without
+     * building it
+     */
+    private static void skipElementText(XMLStreamReader reader)
+            throws XMLStreamException {
+        int event;
+        while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT
+                    || event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException(
+                        "Text only expected in element", reader.getLocation());
+            }
+        }
+    }
+
+    /*
+     * Description of an error, found again by its position among the
+     * others. The reader does not say where in the bytes it is, and reusing
+     * its buffers, cannot keep it.
+     */
+    private static class XmlText extends LazyText {
+
+        private final byte[] data;
+
+        private final int index;
+
+        XmlText(byte[] data, int index) {
+            this.data = data;
+            this.index = index;
+        }
+
+        protected String decode() throws IOException {
+            try {
+                XMLStreamReader reader = FACTORY
+                        .createXMLStreamReader(new ByteArrayInputStream(data));
+                try {
+                    int seen = 0;
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT
+                                && "error_description".equals(reader
+                                        .getLocalName())
+                                && seen++ == index) {
+                            return reader.getElementText();
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (XMLStreamException xse) {
+                throw new IOException("Malformed XML response", xse);
+            }
+            throw new IOException("Error description not found");
+        }
+
+    }
+
+    private static boolean isText(int event) {
+        return event == XMLStreamConstants.CHARACTERS
+                || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE;
+    }
+
+    /*
+     * Same as the CollapsedStringAdapter of the JAXB classes
+     */
+    private static String collapse(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    public byte[] encode(FreqServerResponse response) throws IOException {
+        StringBuilder xml = new StringBuilder(256);
+        append(xml, response, true);
+        return xml.toString().getBytes("UTF-8");
+    }
+
+    public byte[] encodeBatch(List<FreqServerResponse> responses)
+            throws IOException {
+        StringBuilder xml = new StringBuilder(128 * responses.size() + 128);
+        xml.append('<').append(ResponseCodecs.XML_BATCH_ROOT)
+                .append(" xmlns=\"").append(ResponseCodecs.NAMESPACE)
+                .append("\">");
+        for (FreqServerResponse response : responses) {
+            append(xml, response, false);
+        }
+        xml.append("</").append(ResponseCodecs.XML_BATCH_ROOT).append('>');
+        return xml.toString().getBytes("UTF-8");
+    }
+
+    private static void append(StringBuilder xml,
+            FreqServerResponse response, boolean namespace) {
+        xml.append("<freq_server_response");
+        if (namespace) {
+            xml.append(" xmlns=\"").append(ResponseCodecs.NAMESPACE)
+                    .append('"');
+        }
+        xml.append('>');
+        if (response.getState() != null) {
+            xml.append("<state>");
+            escape(xml, response.getState());
+            xml.append("</state>");
+        }
+
+        Result result = response.getResult();
+        if (result == null || result.getFrequencyAllocated() == null) {
+            xml.append("<result/>");
+        } else {
+            xml.append("<result><frequency_allocated>")
+                    .append(result.getFrequencyAllocated())
+                    .append("</frequency_allocated></result>");
+        }
+
+        for (Error error : response.getError()) {
+            xml.append("<error><error_type>");
+            escape(xml, error.getErrorType());
+            xml.append("</error_type>");
+            if (error.getErrorDescription() != null) {
+                xml.append("<error_description>");
+                escape(xml, error.getErrorDescription());
+                xml.append("</error_description>");
+            }
+            xml.append("</error>");
+        }
+
+        xml.append("</freq_server_response>");
+    }
+
+    private static void escape(StringBuilder xml, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '<':
+                xml.append("&lt;");
+                break;
+            case '>':
+                xml.append("&gt;");
+                break;
+            case '&':
+                xml.append("&amp;");
+                break;
+            default:
+                xml.append(c);
+            }
+        }
+    }
+
+}
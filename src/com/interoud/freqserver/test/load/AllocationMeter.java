@@ -0,0 +1,105 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes allocated in the heap by the current thread, using
+ * the HotSpot extension of the ThreadMXBean. Measurements are only exact for
+ * work done on the calling thread: allocations made by executor threads (for
+ * example, hedged requests) are not accounted for.
+ */
+@SuppressWarnings("restriction")
+class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS;
+
+    /*
+     * Bytes allocated by a reading itself, subtracted from every measurement
+     */
+    private static final long OVERHEAD;
+
+    static {
+        java.lang.management.ThreadMXBean bean = ManagementFactory
+                .getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                threads = null;
+            }
+        }
+        THREADS = threads;
+
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long before = read();
+            overhead = Math.min(overhead, read() - before);
+        }
+        OVERHEAD = Math.max(overhead, 0);
+    }
+
+    private AllocationMeter() {
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or 0 if the JVM
+     * does not support the measurement.
+     */
+    public static long allocatedBytes() {
+        return read();
+    }
+
+    /**
+     * Returns the bytes allocated between two readings.
+     */
+    public static long since(long before) {
+        return Math.max(read() - before - OVERHEAD, 0);
+    }
+
+    private static long read() {
+        if (THREADS == null) {
+            return 0;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
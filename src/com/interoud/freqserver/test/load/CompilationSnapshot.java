@@ -0,0 +1,129 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * JIT compilation time and class loading counts of the JVM at a given moment.
+ * Any of them growing during a measurement means the code under test was not
+ * yet in steady state. The standard management API does not expose the number
+ * of compilations, only the accumulated time spent compiling.
+ */
+class CompilationSnapshot {
+
+    private final long compilationMillis;
+
+    private final long loadedClasses;
+
+    private final long unloadedClasses;
+
+    private CompilationSnapshot(long compilationMillis, long loadedClasses,
+            long unloadedClasses) {
+        this.compilationMillis = compilationMillis;
+        this.loadedClasses = loadedClasses;
+        this.unloadedClasses = unloadedClasses;
+    }
+
+    public static CompilationSnapshot take() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        long compilationMillis = -1;
+        if (compilation != null
+                && compilation.isCompilationTimeMonitoringSupported()) {
+            compilationMillis = compilation.getTotalCompilationTime();
+        }
+        return new CompilationSnapshot(compilationMillis,
+                classes.getTotalLoadedClassCount(),
+                classes.getUnloadedClassCount());
+    }
+
+    /**
+     * Returns the activity between an earlier snapshot and this one.
+     */
+    public CompilationSnapshot since(CompilationSnapshot earlier) {
+        long compilation = -1;
+        if (compilationMillis >= 0 && earlier.compilationMillis >= 0) {
+            compilation = compilationMillis - earlier.compilationMillis;
+        }
+        return new CompilationSnapshot(compilation, loadedClasses
+                - earlier.loadedClasses, unloadedClasses
+                - earlier.unloadedClasses);
+    }
+
+    /**
+     * Returns the activity of this snapshot and another one together, e.g.
+     * of two processes.
+     */
+    public CompilationSnapshot plus(CompilationSnapshot other) {
+        long compilation = -1;
+        if (compilationMillis >= 0 && other.compilationMillis >= 0) {
+            compilation = compilationMillis + other.compilationMillis;
+        }
+        return new CompilationSnapshot(compilation, loadedClasses
+                + other.loadedClasses, unloadedClasses + other.unloadedClasses);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(compilationMillis);
+        out.writeLong(loadedClasses);
+        out.writeLong(unloadedClasses);
+    }
+
+    static CompilationSnapshot readFrom(DataInput in) throws IOException {
+        return new CompilationSnapshot(in.readLong(), in.readLong(),
+                in.readLong());
+    }
+
+    /**
+     * Time spent by the JIT compilers, or -1 if the JVM does not report it.
+     */
+    public long getCompilationMillis() {
+        return compilationMillis;
+    }
+
+    public long getLoadedClasses() {
+        return loadedClasses;
+    }
+
+    public long getUnloadedClasses() {
+        return unloadedClasses;
+    }
+
+}
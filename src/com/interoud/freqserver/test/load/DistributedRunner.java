@@ -0,0 +1,247 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.interoud.freqserver.test.client.FreqServerOperations;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+/**
+ * Runs a scenario from several worker processes, for loads a single JVM
+ * cannot generate. The coordinator launches the workers as local processes,
+ * each running a share of the scenario (see {@link Scenario#share(int, int)}),
+ * starts them all at once and merges the reports they send back.
+ *
+ * Workers send their full latency histograms, not their percentiles, so the
+ * percentiles of the merged report are exact for all the requests together
+ * rather than averages of per-process percentiles.
+ */
+public class DistributedRunner {
+
+    public static final int ACCEPT_TIMEOUT = 60000;
+
+    private static final byte GO = 1;
+
+    private final File scenarioFile;
+
+    private final String baseUrl;
+
+    private final int processes;
+
+    private final List<String> jvmOptions = new ArrayList<String>();
+
+    public DistributedRunner(File scenarioFile, String baseUrl, int processes) {
+        this.scenarioFile = scenarioFile;
+        this.baseUrl = baseUrl;
+        this.processes = processes;
+    }
+
+    /**
+     * Adds an option to the command line of the worker JVMs, e.g. a heap size.
+     */
+    public void addJvmOption(String option) {
+        jvmOptions.add(option);
+    }
+
+    /**
+     * Starts the server, runs the scenario on every worker, stops the server
+     * and merges the reports of the workers.
+     *
+     * @return the merged reports of the measured phases.
+     */
+    public List<LoadReport> run() throws IOException, InterruptedException {
+        Scenario.load(scenarioFile);
+        FreqServerOperations client = LoadHarness.connect(baseUrl);
+        ServerSocket server = new ServerSocket(0, processes,
+                InetAddress.getLoopbackAddress());
+        server.setSoTimeout(ACCEPT_TIMEOUT);
+        List<Process> workers = new ArrayList<Process>();
+        List<Socket> connections = new ArrayList<Socket>();
+
+        client.startServer();
+        try {
+            for (int i = 0; i < processes; i++) {
+                workers.add(launch(i, server.getLocalPort()));
+            }
+
+            /*
+             * Wait for every worker to have compiled its schedule before
+             * starting them, so that their phases are aligned
+             */
+            for (int i = 0; i < processes; i++) {
+                Socket connection = server.accept();
+                connections.add(connection);
+                new DataInputStream(connection.getInputStream()).readInt();
+            }
+            for (Socket connection : connections) {
+                connection.getOutputStream().write(GO);
+                connection.getOutputStream().flush();
+            }
+
+            List<List<LoadReport>> results = new ArrayList<List<LoadReport>>();
+            for (Socket connection : connections) {
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(connection.getInputStream()));
+                int size = in.readInt();
+                List<LoadReport> reports = new ArrayList<LoadReport>(size);
+                for (int i = 0; i < size; i++) {
+                    reports.add(LoadReport.readFrom(in));
+                }
+                results.add(reports);
+            }
+            for (Process worker : workers) {
+                worker.waitFor();
+            }
+
+            List<LoadReport> merged = new ArrayList<LoadReport>();
+            for (int phase = 0; phase < results.get(0).size(); phase++) {
+                List<LoadReport> reports = new ArrayList<LoadReport>();
+                for (List<LoadReport> result : results) {
+                    reports.add(result.get(phase));
+                }
+                merged.add(LoadReport.merge(reports));
+            }
+            return merged;
+
+        } finally {
+            for (Socket connection : connections) {
+                connection.close();
+            }
+            server.close();
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+            client.stopServer();
+        }
+    }
+
+    private Process launch(int index, int port) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScenarioWorker.class.getName());
+        command.add(Integer.toString(port));
+        command.add(Integer.toString(index));
+        command.add(Integer.toString(processes));
+        command.add(scenarioFile.getAbsolutePath());
+        command.add(baseUrl);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.inheritIO();
+        return builder.start();
+    }
+
+    /*
+     * Run by the workers: waits for the coordinator to start, runs the share
+     * of the scenario and sends the reports back
+     */
+    static void work(int port, int index, int processes, File scenarioFile,
+            String baseUrl) throws IOException, InterruptedException {
+        Scenario scenario = Scenario.load(scenarioFile).share(index, processes);
+        ScenarioRunner runner = new ScenarioRunner(
+                LoadHarness.connect(baseUrl), scenario);
+        runner.setManagingServer(false);
+
+        Socket connection = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(connection.getOutputStream()));
+            out.writeInt(index);
+            out.flush();
+            if (connection.getInputStream().read() != GO) {
+                throw new IOException("Coordinator gone");
+            }
+
+            List<LoadReport> reports = runner.run();
+            out.writeInt(reports.size());
+            for (LoadReport report : reports) {
+                report.writeTo(out);
+            }
+            out.flush();
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Usage: DistributedRunner &lt;scenario file&gt; &lt;baseUrl |
+     * tcp://host:port | standin | standin-tcp&gt;
+     * &lt;processes&gt; [worker JVM options...]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: DistributedRunner <scenario file> <baseUrl | tcp://host:port | standin | standin-tcp> <processes> [worker JVM options...]");
+            System.exit(1);
+        }
+
+        FreqServerStandIn standIn = null;
+        String baseUrl = args[1];
+        if (baseUrl.startsWith("standin")) {
+            standIn = new FreqServerStandIn(0);
+            baseUrl = LoadHarness.serve(standIn, baseUrl);
+        }
+
+        DistributedRunner runner = new DistributedRunner(new File(args[0]),
+                baseUrl, Integer.parseInt(args[2]));
+        for (int i = 3; i < args.length; i++) {
+            runner.addJvmOption(args[i]);
+        }
+
+        try {
+            for (LoadReport report : runner.run()) {
+                report.print(System.out);
+                System.out.println();
+            }
+        } finally {
+            if (standIn != null) {
+                standIn.stop();
+            }
+        }
+    }
+
+}
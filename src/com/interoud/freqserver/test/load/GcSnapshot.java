@@ -0,0 +1,158 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collection counts and times of every garbage collector of the JVM at a given
+ * moment. The difference between two snapshots gives the GC activity of the
+ * interval between them.
+ *
+ * The collection time reported by the JVM is the elapsed time of the
+ * collections: for stop-the-world collectors it is the total pause time, but
+ * for concurrent ones (CMS, G1 concurrent cycles) it also includes the time
+ * spent running alongside the application.
+ */
+class GcSnapshot {
+
+    private final Map<String, long[]> collectors;
+
+    private GcSnapshot(Map<String, long[]> collectors) {
+        this.collectors = collectors;
+    }
+
+    public static GcSnapshot take() {
+        Map<String, long[]> collectors = new LinkedHashMap<String, long[]>();
+        for (GarbageCollectorMXBean gc : ManagementFactory
+                .getGarbageCollectorMXBeans()) {
+            collectors.put(gc.getName(), new long[] {
+                    Math.max(gc.getCollectionCount(), 0),
+                    Math.max(gc.getCollectionTime(), 0) });
+        }
+        return new GcSnapshot(collectors);
+    }
+
+    /**
+     * Returns the activity between an earlier snapshot and this one.
+     */
+    public GcSnapshot since(GcSnapshot earlier) {
+        Map<String, long[]> delta = new LinkedHashMap<String, long[]>();
+        for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+            long[] now = entry.getValue();
+            long[] before = earlier.collectors.get(entry.getKey());
+            if (before == null) {
+                before = new long[2];
+            }
+            delta.put(entry.getKey(), new long[] { now[0] - before[0],
+                    now[1] - before[1] });
+        }
+        return new GcSnapshot(delta);
+    }
+
+    /**
+     * Returns the activity of this snapshot and another one together, e.g.
+     * of two processes.
+     */
+    public GcSnapshot plus(GcSnapshot other) {
+        Map<String, long[]> sum = new LinkedHashMap<String, long[]>();
+        for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+            sum.put(entry.getKey(), entry.getValue().clone());
+        }
+        for (Map.Entry<String, long[]> entry : other.collectors.entrySet()) {
+            long[] values = sum.get(entry.getKey());
+            if (values == null) {
+                sum.put(entry.getKey(), entry.getValue().clone());
+            } else {
+                values[0] += entry.getValue()[0];
+                values[1] += entry.getValue()[1];
+            }
+        }
+        return new GcSnapshot(sum);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(collectors.size());
+        for (Map.Entry<String, long[]> entry : collectors.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue()[0]);
+            out.writeLong(entry.getValue()[1]);
+        }
+    }
+
+    static GcSnapshot readFrom(DataInput in) throws IOException {
+        Map<String, long[]> collectors = new LinkedHashMap<String, long[]>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            collectors.put(in.readUTF(), new long[] { in.readLong(),
+                    in.readLong() });
+        }
+        return new GcSnapshot(collectors);
+    }
+
+    public Iterable<String> getCollectors() {
+        return collectors.keySet();
+    }
+
+    public long getCount(String collector) {
+        return collectors.get(collector)[0];
+    }
+
+    public long getTimeMillis(String collector) {
+        return collectors.get(collector)[1];
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (long[] values : collectors.values()) {
+            count += values[0];
+        }
+        return count;
+    }
+
+    public long getTimeMillis() {
+        long time = 0;
+        for (long[] values : collectors.values()) {
+            time += values[1];
+        }
+        return time;
+    }
+
+}
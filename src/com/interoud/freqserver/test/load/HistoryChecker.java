@@ -0,0 +1,285 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks online, while the load runs, that the allocations and deallocations
+ * seen by the clients are consistent with a correct freq_server:
+ * <ul>
+ * <li>no frequency is held by two clients at once;</li>
+ * <li>deallocating a frequency held by the caller never answers
+ * NOT_ALLOCATED;</li>
+ * <li>once the load stops, deallocating any frequency that was released
+ * answers NOT_ALLOCATED (see {@link #getReleasedFrequencies()}).</li>
+ * </ul>
+ *
+ * Operations are judged by their invocation and response times, so only
+ * orders that no linearization could explain are reported: a frequency is
+ * surely held from the response of its allocation to the invocation of its
+ * deallocation, and two such intervals must never overlap. Only the latest
+ * holder of every frequency is remembered, so memory is bounded by the number
+ * of frequencies and not by the length of the run.
+ *
+ * Clients must only deallocate the frequencies they hold, and must call
+ * {@link #deallocating(int)} right before sending a deallocation. Sending
+ * second deallocations while the load runs would release frequencies other
+ * clients may have just been given, which is why released frequencies are
+ * only probed at the end.
+ *
+ * A request that got no answer may still have been applied by the server, at
+ * any time until the end of the run. Clients report those through
+ * {@link #allocationUnanswered()} and {@link #deallocationUnanswered(int)},
+ * and the checker stops judging what they could explain.
+ */
+public class HistoryChecker {
+
+    public static final String NOT_ALLOCATED = "NOT_ALLOCATED";
+    public static final int MAX_MESSAGES = 100;
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final long originNanos = System.nanoTime();
+
+    private final ConcurrentMap<Integer, Slot> slots = new ConcurrentHashMap<Integer, Slot>();
+
+    private final AtomicLong operations = new AtomicLong();
+
+    private final AtomicLong violations = new AtomicLong();
+
+    private final AtomicLong unanswered = new AtomicLong();
+
+    private volatile boolean allocationsUnanswered;
+
+    private final List<String> messages = new ArrayList<String>();
+
+    /*
+     * Latest holder of a frequency, guarded by its own lock
+     */
+    private static class Slot {
+        long allocationInvoked = NONE;
+        long allocationResponded = NONE;
+        long deallocationInvoked = NONE;
+        boolean released;
+        boolean deallocationUnanswered;
+    }
+
+    private Slot slotOf(int frequency) {
+        Integer key = Integer.valueOf(frequency);
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            Slot created = new Slot();
+            slot = slots.putIfAbsent(key, created);
+            if (slot == null) {
+                slot = created;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Records a successful allocation.
+     */
+    public void allocated(int frequency, long invokedNanos, long respondedNanos) {
+        operations.incrementAndGet();
+        Slot slot = slotOf(frequency);
+        synchronized (slot) {
+            if (slot.allocationResponded != NONE
+                    && respondedNanos < slot.deallocationInvoked) {
+                violation("Frequency " + frequency + " allocated at "
+                        + time(respondedNanos) + " while held since "
+                        + time(slot.allocationResponded));
+            }
+            slot.allocationInvoked = invokedNanos;
+            slot.allocationResponded = respondedNanos;
+            slot.deallocationInvoked = NONE;
+            slot.released = false;
+        }
+    }
+
+    /**
+     * Records that the holder of a frequency is about to deallocate it.
+     *
+     * @return the invocation time of the deallocation.
+     */
+    public long deallocating(int frequency) {
+        Slot slot = slotOf(frequency);
+        synchronized (slot) {
+            long now = System.nanoTime();
+            slot.deallocationInvoked = now;
+            return now;
+        }
+    }
+
+    /**
+     * Records an allocation that failed without an answer. The server may have
+     * given it any frequency, so released frequencies are no longer probed.
+     */
+    public void allocationUnanswered() {
+        unanswered.incrementAndGet();
+        allocationsUnanswered = true;
+    }
+
+    /**
+     * Records a deallocation that failed without an answer, after
+     * {@link #deallocating(int)}. The server may apply it late, even once the
+     * frequency has been given to another client, so later deallocations of
+     * the frequency answering NOT_ALLOCATED are no longer violations.
+     */
+    public void deallocationUnanswered(int frequency) {
+        unanswered.incrementAndGet();
+        Slot slot = slotOf(frequency);
+        synchronized (slot) {
+            slot.deallocationUnanswered = true;
+        }
+    }
+
+    /**
+     * Records the answer to the deallocation of a frequency by its holder.
+     *
+     * @param allocationInvokedNanos
+     *            invocation time of the allocation of the frequency.
+     * @param errorType
+     *            error type of the answer, null if it succeeded.
+     */
+    public void deallocated(int frequency, long allocationInvokedNanos,
+            long invokedNanos, long respondedNanos, String errorType) {
+        operations.incrementAndGet();
+        if (NOT_ALLOCATED.equals(errorType)) {
+            Slot slot = slotOf(frequency);
+            synchronized (slot) {
+                if (slot.deallocationUnanswered) {
+                    return;
+                }
+            }
+            violation("Frequency " + frequency + " allocated at "
+                    + time(allocationInvokedNanos)
+                    + " reported as not allocated at " + time(respondedNanos));
+            return;
+        }
+
+        if (errorType == null) {
+            Slot slot = slotOf(frequency);
+            synchronized (slot) {
+                if (slot.allocationInvoked == allocationInvokedNanos) {
+                    slot.released = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the frequencies whose latest deallocation succeeded. Once the
+     * load has stopped, none of them should be allocated. The list is empty
+     * if an allocation went unanswered.
+     */
+    public List<Integer> getReleasedFrequencies() {
+        List<Integer> released = new ArrayList<Integer>();
+        if (allocationsUnanswered) {
+            return released;
+        }
+        for (Integer frequency : slots.keySet()) {
+            Slot slot = slots.get(frequency);
+            synchronized (slot) {
+                if (slot.released) {
+                    released.add(frequency);
+                }
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Records the answer to deallocating a released frequency once the load
+     * has stopped.
+     *
+     * @param errorType
+     *            error type of the answer, null if it succeeded.
+     */
+    public void probed(int frequency, String errorType) {
+        operations.incrementAndGet();
+        if (errorType == null) {
+            Slot slot = slotOf(frequency);
+            long released;
+            synchronized (slot) {
+                released = slot.deallocationInvoked;
+            }
+            violation("Frequency " + frequency + " released at "
+                    + time(released) + " was still allocated");
+        }
+    }
+    private void violation(String message) {
+        violations.incrementAndGet();
+        synchronized (messages) {
+            if (messages.size() < MAX_MESSAGES) {
+                messages.add(message);
+            }
+        }
+    }
+
+    private String time(long nanos) {
+        return ((nanos - originNanos) / 1000) + " us";
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public long getViolations() {
+        return violations.get();
+    }
+
+    /**
+     * Number of requests that failed without an answer.
+     */
+    public long getUnanswered() {
+        return unanswered.get();
+    }
+
+    /**
+     * Descriptions of the first {@link #MAX_MESSAGES} violations.
+     */
+    public List<String> getMessages() {
+        synchronized (messages) {
+            return Collections.unmodifiableList(new ArrayList<String>(messages));
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class HistoryCheckerTest {
+
+    @Test
+    public void testSequentialHolders() {
+        HistoryChecker checker = new HistoryChecker();
+        for (int i = 0; i < 3; i++) {
+            long invoked = System.nanoTime();
+            checker.allocated(1, invoked, System.nanoTime());
+            long released = checker.deallocating(1);
+            checker.deallocated(1, invoked, released, System.nanoTime(), null);
+        }
+        checker.probed(1, HistoryChecker.NOT_ALLOCATED);
+
+        Assert.assertEquals(7, checker.getOperations());
+        Assert.assertEquals(0, checker.getViolations());
+    }
+
+    @Test
+    public void testAllocatedTwice() {
+        HistoryChecker checker = new HistoryChecker();
+        long first = System.nanoTime();
+        checker.allocated(1, first, System.nanoTime());
+        long second = System.nanoTime();
+        checker.allocated(1, second, System.nanoTime());
+
+        Assert.assertEquals(1, checker.getViolations());
+    }
+
+    @Test
+    public void testAllocatedWhileReleasing() {
+        HistoryChecker checker = new HistoryChecker();
+        long first = System.nanoTime();
+        checker.allocated(1, first, System.nanoTime());
+        long released = checker.deallocating(1);
+
+        /*
+         * Allocated by another client while the deallocation is in flight
+         */
+        long second = System.nanoTime();
+        checker.allocated(1, second, System.nanoTime());
+        checker.deallocated(1, first, released, System.nanoTime(), null);
+
+        Assert.assertEquals(0, checker.getViolations());
+        Assert.assertTrue(checker.getReleasedFrequencies().isEmpty());
+    }
+
+    @Test
+    public void testHeldReportedNotAllocated() {
+        HistoryChecker checker = new HistoryChecker();
+        long invoked = System.nanoTime();
+        checker.allocated(1, invoked, System.nanoTime());
+        long released = checker.deallocating(1);
+        checker.deallocated(1, invoked, released, System.nanoTime(),
+                HistoryChecker.NOT_ALLOCATED);
+
+        Assert.assertEquals(1, checker.getViolations());
+        Assert.assertEquals(1, checker.getMessages().size());
+    }
+
+    @Test
+    public void testReleasedStillAllocated() {
+        HistoryChecker checker = new HistoryChecker();
+        long invoked = System.nanoTime();
+        checker.allocated(1, invoked, System.nanoTime());
+        long released = checker.deallocating(1);
+        checker.deallocated(1, invoked, released, System.nanoTime(), null);
+
+        Assert.assertEquals(1, checker.getReleasedFrequencies().size());
+        checker.probed(1, null);
+        Assert.assertEquals(1, checker.getViolations());
+    }
+
+    @Test
+    public void testAllocationUnanswered() {
+        HistoryChecker checker = new HistoryChecker();
+        long invoked = System.nanoTime();
+        checker.allocated(1, invoked, System.nanoTime());
+        long released = checker.deallocating(1);
+        checker.deallocated(1, invoked, released, System.nanoTime(), null);
+
+        /*
+         * May have been given frequency 1 by the server
+         */
+        checker.allocationUnanswered();
+
+        Assert.assertTrue(checker.getReleasedFrequencies().isEmpty());
+        Assert.assertEquals(1, checker.getUnanswered());
+        Assert.assertEquals(0, checker.getViolations());
+    }
+
+    @Test
+    public void testDeallocationUnanswered() {
+        HistoryChecker checker = new HistoryChecker();
+        long first = System.nanoTime();
+        checker.allocated(1, first, System.nanoTime());
+        checker.deallocating(1);
+        checker.deallocationUnanswered(1);
+
+        /*
+         * The lost deallocation is applied while another client holds it
+         */
+        long second = System.nanoTime();
+        checker.allocated(1, second, System.nanoTime());
+        long released = checker.deallocating(1);
+        checker.deallocated(1, second, released, System.nanoTime(),
+                HistoryChecker.NOT_ALLOCATED);
+
+        Assert.assertEquals(1, checker.getUnanswered());
+        Assert.assertEquals(0, checker.getViolations());
+        Assert.assertTrue(checker.getReleasedFrequencies().isEmpty());
+    }
+
+}
@@ -0,0 +1,444 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.interoud.freqserver.test.client.FreqServerClient;
+import com.interoud.freqserver.test.client.FreqServerOperations;
+import com.interoud.freqserver.test.client.FreqServerWireClient;
+import com.interoud.freqserver.test.codec.ResponseCodecs;
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+/**
+ * Closed-loop load generator for the freq_server: every worker thread
+ * allocates a frequency and deallocates it again, as fast as the server
+ * answers, for the duration of the run.
+ *
+ * Besides the latency of every call, the harness measures the bytes allocated
+ * by the client in each call (on the worker thread) and the garbage collection
+ * activity of the whole run, so that allocation regressions show up next to
+ * the latency figures they end up affecting.
+ *
+ * The measurement is preceded by a warmup phase, which lasts until the
+ * throughput and the median latency of two consecutive windows are within a
+ * tolerance of each other (or until a maximum duration), so that class
+ * loading, JAXB initialisation and JIT compilation are not measured. The
+ * samples taken during the warmup are discarded.
+ *
+ * Every allocation and deallocation can also be fed to a
+ * {@link HistoryChecker}, which verifies that no frequency is handed out twice
+ * at full throughput. Once the load stops, every released frequency is
+ * deallocated again to check that the server refuses it.
+ */
+public class LoadHarness {
+
+    public static final String OK = "OK";
+
+    private final FreqServerOperations client;
+
+    private int threads = 4;
+
+    private long durationMillis = 10000;
+
+    private long maxWarmupMillis = 30000;
+
+    private long warmupWindowMillis = 1000;
+
+    private double warmupTolerance = 0.1;
+
+    private HistoryChecker checker;
+
+    /*
+     * Where the workers record their calls; replaced at every warmup window
+     * and at the beginning of the measurement
+     */
+    private volatile Map<String, OperationStats> stats = newStats();
+
+    private volatile boolean running;
+
+    public LoadHarness(FreqServerOperations client) {
+        this.client = client;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setDuration(long duration, TimeUnit unit) {
+        this.durationMillis = unit.toMillis(duration);
+    }
+
+    /**
+     * Sets the maximum duration of the warmup phase; 0 disables it.
+     */
+    public void setMaxWarmup(long duration, TimeUnit unit) {
+        this.maxWarmupMillis = unit.toMillis(duration);
+    }
+
+    /**
+     * Sets the length of the windows compared to detect the steady state.
+     */
+    public void setWarmupWindow(long duration, TimeUnit unit) {
+        this.warmupWindowMillis = unit.toMillis(duration);
+    }
+
+    /**
+     * Sets the maximum relative difference, in throughput and median latency,
+     * between two consecutive warmup windows for the load to be considered
+     * steady (0.1 by default).
+     */
+    public void setWarmupTolerance(double tolerance) {
+        this.warmupTolerance = tolerance;
+    }
+
+    /**
+     * Sets the checker of the allocations and deallocations made during the
+     * whole run, warmup included. Null (the default) does not check them.
+     */
+    public void setHistoryChecker(HistoryChecker checker) {
+        this.checker = checker;
+    }
+
+    /**
+     * Starts the server, runs the load and stops the server again.
+     *
+     * @throws IOException
+     *             if the server could not be started.
+     */
+    public LoadReport run() throws IOException, InterruptedException {
+        client.startServer();
+        try {
+            return runLoad();
+        } finally {
+            client.stopServer();
+        }
+    }
+
+    private LoadReport runLoad() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<Thread>(threads);
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread("load-worker-" + i) {
+                public void run() {
+                    try {
+                        while (running) {
+                            long bytes = AllocationMeter.allocatedBytes();
+                            long allocated = System.nanoTime();
+                            Integer frequency = allocate(bytes, allocated);
+                            if (frequency != null) {
+                                deallocate(frequency, allocated);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+
+        running = true;
+        for (Thread worker : workers) {
+            worker.start();
+        }
+
+        long warmupStart = System.nanoTime();
+        boolean steady = warmup();
+        long warmup = System.nanoTime() - warmupStart;
+
+        Map<String, OperationStats> measured = newStats();
+        GcSnapshot gcBefore = GcSnapshot.take();
+        CompilationSnapshot compilationBefore = CompilationSnapshot.take();
+        long start = System.nanoTime();
+        stats = measured;
+
+        Thread.sleep(durationMillis);
+        running = false;
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        GcSnapshot gc = GcSnapshot.take().since(gcBefore);
+        CompilationSnapshot compilation = CompilationSnapshot.take().since(
+                compilationBefore);
+
+        /*
+         * The probe is not part of the measured run
+         */
+        if (checker != null) {
+            probeReleased();
+        }
+
+        return new LoadReport(null, measured.values(), elapsed, gc,
+                AllocationMeter.isSupported(), warmup, steady, compilation,
+                checker);
+    }
+
+    /**
+     * Lets the workers run until two consecutive windows are within the
+     * tolerance or the maximum warmup duration is reached.
+     *
+     * @return whether the steady state was reached.
+     */
+    private boolean warmup() throws InterruptedException {
+        if (maxWarmupMillis <= 0) {
+            return false;
+        }
+
+        long end = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(maxWarmupMillis);
+        OperationStats previous = null;
+
+        while (System.nanoTime() < end) {
+            Map<String, OperationStats> window = newStats();
+            stats = window;
+            Thread.sleep(warmupWindowMillis);
+
+            OperationStats current = window.get(FreqServerClient.ALLOCATE_FREQUENCY);
+            if (previous != null && isSteady(previous, current)) {
+                return true;
+            }
+            previous = current;
+        }
+        return false;
+    }
+
+    private boolean isSteady(OperationStats previous, OperationStats current) {
+        if (previous.getCount() == 0 || current.getCount() == 0) {
+            return false;
+        }
+        return withinTolerance(previous.getCount(), current.getCount())
+                && withinTolerance(
+                        previous.getLatencyMicros().getValueAtPercentile(50),
+                        current.getLatencyMicros().getValueAtPercentile(50));
+    }
+
+    private boolean withinTolerance(long previous, long current) {
+        return Math.abs(current - previous) <= warmupTolerance
+                * Math.max(previous, current);
+    }
+
+    private static Map<String, OperationStats> newStats() {
+        Map<String, OperationStats> stats = new LinkedHashMap<String, OperationStats>();
+        stats.put(FreqServerClient.ALLOCATE_FREQUENCY, new OperationStats(
+                FreqServerClient.ALLOCATE_FREQUENCY));
+        stats.put(FreqServerClient.DEALLOCATE_FREQUENCY, new OperationStats(
+                FreqServerClient.DEALLOCATE_FREQUENCY));
+        return stats;
+    }
+
+    /**
+     * @param bytes
+     *            bytes allocated by the thread before the call, read before
+     *            the start time so that reading them is not timed.
+     * @param start
+     *            invocation time of the call.
+     */
+    private Integer allocate(long bytes, long start) {
+        OperationStats operation = stats.get(FreqServerClient.ALLOCATE_FREQUENCY);
+        try {
+            TypedResponse response = client.allocateFrequency();
+            long elapsed = System.nanoTime() - start;
+            boolean ok = response.isOk();
+            operation.record(elapsed, AllocationMeter.since(bytes), !ok);
+            if (!ok) {
+                return null;
+            }
+            int frequency = response.getFrequency();
+            if (checker != null) {
+                checker.allocated(frequency, start, start + elapsed);
+            }
+            return Integer.valueOf(frequency);
+        } catch (IOException ioe) {
+            operation.recordFailure(System.nanoTime() - start,
+                    AllocationMeter.since(bytes));
+            if (checker != null) {
+                checker.allocationUnanswered();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Deallocates a frequency allocated by the calling worker.
+     *
+     * @param allocated
+     *            invocation time of its allocation.
+     */
+    private void deallocate(Integer frequency, long allocated) {
+        OperationStats operation = stats.get(FreqServerClient.DEALLOCATE_FREQUENCY);
+        long invoked = 0;
+        if (checker != null) {
+            invoked = checker.deallocating(frequency.intValue());
+        }
+        long bytes = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        TypedResponse response;
+        try {
+            response = client.deallocateFrequency(frequency);
+            long elapsed = System.nanoTime() - start;
+            operation.record(elapsed, AllocationMeter.since(bytes),
+                    !response.isOk());
+        } catch (IOException ioe) {
+            operation.recordFailure(System.nanoTime() - start,
+                    AllocationMeter.since(bytes));
+            if (checker != null) {
+                checker.deallocationUnanswered(frequency.intValue());
+            }
+            return;
+        }
+
+        if (checker != null) {
+            String errorType = getErrorType(response);
+            checker.deallocated(frequency.intValue(), allocated, invoked,
+                    System.nanoTime(), errorType);
+        }
+    }
+
+    /*
+     * Deallocates again every frequency released during the run
+     */
+    private void probeReleased() {
+        for (Integer frequency : checker.getReleasedFrequencies()) {
+            try {
+                TypedResponse response = client.deallocateFrequency(frequency);
+                checker.probed(frequency.intValue(), getErrorType(response));
+            } catch (IOException ioe) {
+                // Nothing can be concluded from it
+            }
+        }
+    }
+
+    /*
+     * Error type of a response, null if it succeeded
+     */
+    static String getErrorType(TypedResponse response) {
+        if (response.isOk()) {
+            return null;
+        }
+        Error error = response.getFirstError();
+        if (error == null) {
+            return "";
+        }
+        return error.getErrorType();
+    }
+
+    /**
+     * Connects to the service at a url, or at "tcp://host:port" for the
+     * binary protocol.
+     */
+    static FreqServerOperations connect(String target) {
+        if (!target.startsWith("tcp://")) {
+            return new FreqServerClient(target);
+        }
+        String address = target.substring("tcp://".length());
+        int colon = address.lastIndexOf(':');
+        if (colon == -1) {
+            throw new IllegalArgumentException("Port missing: " + target);
+        }
+        return new FreqServerWireClient(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * Serves the stand-in over HTTP, or over the binary protocol too for
+     * "standin-tcp".
+     *
+     * @return the target to connect to.
+     */
+    static String serve(FreqServerStandIn standIn, String target)
+            throws IOException {
+        standIn.start();
+        if ("standin-tcp".equals(target)) {
+            return "tcp://localhost:" + standIn.startWire(0);
+        }
+        return standIn.getBaseUrl();
+    }
+
+    /**
+     * Usage: LoadHarness &lt;baseUrl | tcp://host:port | standin |
+     * standin-tcp&gt; [threads] [seconds] [max warmup seconds] [jaxb | xml |
+     * json | binary]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadHarness <baseUrl | tcp://host:port | standin | standin-tcp> [threads] [seconds] [max warmup seconds] [jaxb | xml | json | binary]");
+            System.exit(1);
+        }
+
+        FreqServerStandIn standIn = null;
+        String baseUrl = args[0];
+        if (baseUrl.startsWith("standin")) {
+            standIn = new FreqServerStandIn(0);
+            baseUrl = serve(standIn, baseUrl);
+        }
+
+        FreqServerOperations client = connect(baseUrl);
+        if (args.length > 4 && client instanceof FreqServerClient) {
+            ((FreqServerClient) client).setResponseCodecs(Collections
+                    .singletonList(ResponseCodecs.forName(args[4])));
+        }
+
+        LoadHarness harness = new LoadHarness(client);
+        harness.setHistoryChecker(new HistoryChecker());
+        if (args.length > 1) {
+            harness.setThreads(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            harness.setDuration(Long.parseLong(args[2]), TimeUnit.SECONDS);
+        }
+        if (args.length > 3) {
+            harness.setMaxWarmup(Long.parseLong(args[3]), TimeUnit.SECONDS);
+        }
+
+        try {
+            harness.run().print(System.out);
+        } finally {
+            if (standIn != null) {
+                standIn.stop();
+            }
+        }
+    }
+
+}
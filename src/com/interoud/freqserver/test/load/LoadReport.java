@@ -0,0 +1,275 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Results of a load run: per operation latency and allocation figures, the
+ * garbage collection activity of the run and how the warmup went. JIT
+ * compilation or class loading during the measurement mean the results may
+ * not be steady-state.
+ */
+public class LoadReport {
+
+    private final String name;
+
+    private final List<OperationStats> operations;
+
+    private final long elapsedNanos;
+
+    private final GcSnapshot gc;
+
+    private final boolean allocationMeasured;
+
+    private final long warmupNanos;
+
+    private final boolean steady;
+
+    private final CompilationSnapshot compilation;
+
+    private final HistoryChecker checker;
+
+    LoadReport(String name, Collection<OperationStats> operations,
+            long elapsedNanos,
+            GcSnapshot gc, boolean allocationMeasured, long warmupNanos,
+            boolean steady, CompilationSnapshot compilation,
+            HistoryChecker checker) {
+        this.name = name;
+        this.operations = new ArrayList<OperationStats>(operations);
+        this.elapsedNanos = elapsedNanos;
+        this.gc = gc;
+        this.allocationMeasured = allocationMeasured;
+        this.warmupNanos = warmupNanos;
+        this.steady = steady;
+        this.compilation = compilation;
+        this.checker = checker;
+    }
+
+    /**
+     * Merges the reports of the same phase run by several processes. Counts,
+     * histograms and GC activity are added up, so the percentiles are those
+     * of all the requests together; the elapsed time is the longest one.
+     */
+    static LoadReport merge(List<LoadReport> reports) {
+        Map<String, OperationStats> operations = new LinkedHashMap<String, OperationStats>();
+        LoadReport first = reports.get(0);
+        long elapsed = 0;
+        GcSnapshot gc = null;
+        CompilationSnapshot compilation = null;
+        boolean allocationMeasured = true;
+
+        for (LoadReport report : reports) {
+            for (OperationStats stats : report.operations) {
+                OperationStats merged = operations.get(stats.getOperation());
+                if (merged == null) {
+                    merged = new OperationStats(stats.getOperation());
+                    operations.put(stats.getOperation(), merged);
+                }
+                merged.add(stats);
+            }
+            elapsed = Math.max(elapsed, report.elapsedNanos);
+            gc = (gc == null) ? report.gc : gc.plus(report.gc);
+            compilation = (compilation == null) ? report.compilation
+                    : compilation.plus(report.compilation);
+            allocationMeasured &= report.allocationMeasured;
+        }
+
+        return new LoadReport(first.name, operations.values(), elapsed, gc,
+                allocationMeasured, 0, false, compilation, null);
+    }
+
+    /**
+     * Writes the measurements of the report, without the warmup and history
+     * checker results, to send them to another process.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(name != null);
+        if (name != null) {
+            out.writeUTF(name);
+        }
+        out.writeInt(operations.size());
+        for (OperationStats stats : operations) {
+            stats.writeTo(out);
+        }
+        out.writeLong(elapsedNanos);
+        gc.writeTo(out);
+        out.writeBoolean(allocationMeasured);
+        compilation.writeTo(out);
+    }
+
+    static LoadReport readFrom(DataInput in) throws IOException {
+        String name = in.readBoolean() ? in.readUTF() : null;
+        int size = in.readInt();
+        List<OperationStats> operations = new ArrayList<OperationStats>(size);
+        for (int i = 0; i < size; i++) {
+            operations.add(OperationStats.readFrom(in));
+        }
+        long elapsed = in.readLong();
+        GcSnapshot gc = GcSnapshot.readFrom(in);
+        boolean allocationMeasured = in.readBoolean();
+        CompilationSnapshot compilation = CompilationSnapshot.readFrom(in);
+        return new LoadReport(name, operations, elapsed, gc,
+                allocationMeasured, 0, false, compilation, null);
+    }
+
+    /**
+     * Name of the scenario phase reported, or null for a harness run.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+
+    public OperationStats getOperation(String operation) {
+        for (OperationStats stats : operations) {
+            if (stats.getOperation().equals(operation)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getGcCount() {
+        return gc.getCount();
+    }
+
+    public long getGcTimeMillis() {
+        return gc.getTimeMillis();
+    }
+
+    public long getWarmupNanos() {
+        return warmupNanos;
+    }
+
+    /**
+     * Whether the warmup reached a steady state before its maximum duration.
+     */
+    public boolean isSteady() {
+        return steady;
+    }
+
+    /**
+     * Time spent by the JIT compilers during the measurement, or -1 if the JVM
+     * does not report it.
+     */
+    public long getCompilationMillis() {
+        return compilation.getCompilationMillis();
+    }
+
+    public long getLoadedClasses() {
+        return compilation.getLoadedClasses();
+    }
+
+    /**
+     * Checker of the history of the run, or null if it was not checked.
+     */
+    public HistoryChecker getHistoryChecker() {
+        return checker;
+    }
+
+    public void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+
+        if (name != null) {
+            out.println("phase: " + name);
+        }
+        if (warmupNanos > 0) {
+            out.printf("warmup: %.1f s, %s%n", warmupNanos / 1e9,
+                    steady ? "steady state reached" : "steady state NOT reached");
+        }
+        out.printf("%-20s %9s %7s %7s %9s %9s %9s %9s %9s %11s %11s%n",
+                "operation", "calls", "errors", "fails", "calls/s",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "bytes/call",
+                "p99 bytes");
+        for (OperationStats stats : operations) {
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            LatencyHistogram latency = stats.getLatencyMicros();
+            LatencyHistogram bytes = stats.getAllocatedBytes();
+            total += stats.getCount();
+            out.printf("%-20s %9d %7d %7d %9.1f %9.3f %9.3f %9.3f %9.3f %11s %11s%n",
+                    stats.getOperation(), stats.getCount(), stats.getErrors(),
+                    stats.getFailures(), stats.getCount() / seconds,
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMax() / 1000.0,
+                    allocationMeasured ? String.format("%.0f", bytes.getMean()) : "n/a",
+                    allocationMeasured ? String.valueOf(bytes.getValueAtPercentile(99)) : "n/a");
+        }
+
+        out.printf("%ngc: %d collections, %d ms in %.1f s (%.3f ms per 1000 calls)%n",
+                gc.getCount(), gc.getTimeMillis(), seconds,
+                (total == 0) ? 0.0 : gc.getTimeMillis() * 1000.0 / total);
+        for (String collector : gc.getCollectors()) {
+            out.printf("  %-20s %6d collections %8d ms%n", collector,
+                    gc.getCount(collector), gc.getTimeMillis(collector));
+        }
+
+        out.printf("jit: %d ms compiling, %d classes loaded, %d unloaded during measurement%n",
+                compilation.getCompilationMillis(),
+                compilation.getLoadedClasses(),
+                compilation.getUnloadedClasses());
+
+        if (checker != null) {
+            out.printf("history: %d operations checked, %d unanswered, %d violations%n",
+                    checker.getOperations(), checker.getUnanswered(),
+                    checker.getViolations());
+            for (String message : checker.getMessages()) {
+                out.println("  " + message);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Measurements of one operation during a load run: latency, bytes allocated
+ * per call and outcome counts. Errors are calls answered with an ERROR state;
+ * failures are calls that threw an exception.
+ */
+public class OperationStats {
+
+    private final String operation;
+
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+
+    private final LatencyHistogram allocatedBytes = new LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    public OperationStats(String operation) {
+        this.operation = operation;
+    }
+
+    private OperationStats(String operation, LatencyHistogram latencyMicros,
+            LatencyHistogram allocatedBytes) {
+        this.operation = operation;
+        this.latencyMicros.add(latencyMicros);
+        this.allocatedBytes.add(allocatedBytes);
+    }
+
+    void record(long elapsedNanos, long bytes, boolean error) {
+        latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        allocatedBytes.record(bytes);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    void recordFailure(long elapsedNanos, long bytes) {
+        record(elapsedNanos, bytes, false);
+        failures.increment();
+    }
+
+    /**
+     * Adds the measurements of the same operation taken somewhere else, e.g.
+     * by another process.
+     */
+    void add(OperationStats other) {
+        latencyMicros.add(other.latencyMicros);
+        allocatedBytes.add(other.allocatedBytes);
+        errors.add(other.getErrors());
+        failures.add(other.getFailures());
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(operation);
+        latencyMicros.writeTo(out);
+        allocatedBytes.writeTo(out);
+        out.writeLong(getErrors());
+        out.writeLong(getFailures());
+    }
+
+    static OperationStats readFrom(DataInput in) throws IOException {
+        OperationStats stats = new OperationStats(in.readUTF(),
+                LatencyHistogram.readFrom(in), LatencyHistogram.readFrom(in));
+        stats.errors.add(in.readLong());
+        stats.failures.add(in.readLong());
+        return stats;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return latencyMicros.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public LatencyHistogram getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    public LatencyHistogram getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+}
@@ -0,0 +1,385 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import com.interoud.freqserver.test.proxy.LatencyDistribution;
+
+/**
+ * Workload described in a properties file, run by {@link ScenarioRunner} once
+ * compiled into a {@link Schedule}. A scenario is a sequence of phases, each
+ * either open loop (requests arrive at a given rate, whatever the latency) or
+ * closed loop (a number of clients that send a request, wait for the answer,
+ * think, and send the next one):
+ *
+ * <pre>
+ * phases = rampup, steady
+ *
+ * # defaults for every phase
+ * mix = allocate:95, deallocate:5
+ * hold = exponential:200
+ *
+ * phase.rampup.duration = 30s
+ * phase.rampup.rate = 500
+ * phase.rampup.rampUp = 30s
+ * phase.rampup.measure = false
+ *
+ * phase.steady.duration = 2m
+ * phase.steady.concurrency = 16
+ * phase.steady.think = uniform:5:15
+ * </pre>
+ *
+ * Every setting but phases can be given for all phases or for a single one,
+ * prefixing it with "phase.&lt;name&gt;.":
+ * <ul>
+ * <li>duration: length of the phase, in ms, s or m (seconds by default).</li>
+ * <li>rate: arrivals per second of an open loop phase.</li>
+ * <li>startRate: rate at the beginning of the ramp up, 0 by default.</li>
+ * <li>arrivals: "poisson" (default) or "uniform" spacing of the arrivals.</li>
+ * <li>threads: maximum requests in flight of an open loop phase, 64 by
+ * default.</li>
+ * <li>concurrency: clients of a closed loop phase.</li>
+ * <li>think: time a client waits between requests, as a
+ * {@link LatencyDistribution}.</li>
+ * <li>rampUp: time over which the rate grows from startRate to rate, or over
+ * which the clients of a closed loop phase are started.</li>
+ * <li>mix: relative weights of the operations start, stop, allocate and
+ * deallocate; "allocate:1" by default.</li>
+ * <li>hold: time allocated frequencies are held before being deallocated,
+ * as a {@link LatencyDistribution}; 0 by default. A deallocate operation
+ * in the mix releases the held frequency due soonest before its time.</li>
+ * <li>measure: whether the phase is reported, true by default.</li>
+ * <li>seed: seed of the random choices, so that runs can be repeated.</li>
+ * </ul>
+ */
+public class Scenario {
+
+    public enum Arrivals {
+        POISSON, UNIFORM
+    }
+
+    public static final String[] OPERATIONS = { "start", "stop", "allocate",
+            "deallocate" };
+
+    /**
+     * Settings of a phase.
+     */
+    public static class Phase {
+
+        private final String name;
+        private final long durationNanos;
+        private final boolean openLoop;
+        private final double rate;
+        private final double startRate;
+        private final Arrivals arrivals;
+        private final int threads;
+        private final int concurrency;
+        private final LatencyDistribution think;
+        private final long rampUpNanos;
+        private final double[] mix;
+        private final LatencyDistribution hold;
+        private final boolean measured;
+
+        Phase(String name, long durationNanos, boolean openLoop, double rate,
+                double startRate,
+                Arrivals arrivals, int threads, int concurrency,
+                LatencyDistribution think, long rampUpNanos, double[] mix,
+                LatencyDistribution hold, boolean measured) {
+            this.name = name;
+            this.durationNanos = durationNanos;
+            this.openLoop = openLoop;
+            this.rate = rate;
+            this.startRate = startRate;
+            this.arrivals = arrivals;
+            this.threads = threads;
+            this.concurrency = concurrency;
+            this.think = think;
+            this.rampUpNanos = rampUpNanos;
+            this.mix = mix;
+            this.hold = hold;
+            this.measured = measured;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public boolean isOpenLoop() {
+            return openLoop;
+        }
+
+        /*
+         * Share of the phase run by one of several processes
+         */
+        Phase share(int index, int processes) {
+            int clients = concurrency / processes
+                    + ((index < concurrency % processes) ? 1 : 0);
+            return new Phase(name, durationNanos, openLoop, rate / processes,
+                    startRate / processes, arrivals, Math.max(1,
+                            (threads + processes - 1) / processes), clients,
+                    think, rampUpNanos, mix, hold, measured);
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public double getStartRate() {
+            return startRate;
+        }
+
+        public Arrivals getArrivals() {
+            return arrivals;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        /**
+         * Think time of a closed loop phase, null if none.
+         */
+        public LatencyDistribution getThink() {
+            return think;
+        }
+
+        public long getRampUpNanos() {
+            return rampUpNanos;
+        }
+
+        /**
+         * Weights of the operations, indexed as {@link Scenario#OPERATIONS}.
+         */
+        public double[] getMix() {
+            return mix.clone();
+        }
+
+        /**
+         * Hold time of allocated frequencies, null if they are released right
+         * away.
+         */
+        public LatencyDistribution getHold() {
+            return hold;
+        }
+
+        public boolean isMeasured() {
+            return measured;
+        }
+
+    }
+
+    private final List<Phase> phases;
+
+    private final long seed;
+
+    private Scenario(List<Phase> phases, long seed) {
+        this.phases = Collections.unmodifiableList(phases);
+        this.seed = seed;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Whether any phase starts or stops the server, which discards the
+     * allocations made until then.
+     */
+    public boolean restartsServer() {
+        for (Phase phase : phases) {
+            if (phase.mix[0] > 0 || phase.mix[1] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the share of the scenario run by one of several processes: its
+     * rates are divided among the processes and its clients distributed
+     * among them, so that together they send the load of the whole scenario.
+     *
+     * @param index
+     *            index of the process, from 0 to processes - 1.
+     */
+    public Scenario share(int index, int processes) {
+        List<Phase> shares = new ArrayList<Phase>(phases.size());
+        for (Phase phase : phases) {
+            shares.add(phase.share(index, processes));
+        }
+        return new Scenario(shares, seed + index);
+    }
+
+    public static Scenario load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return parse(properties);
+    }
+
+    /**
+     * Reads a scenario from its properties.
+     *
+     * @throws IllegalArgumentException
+     *             if a setting is missing or wrong.
+     */
+    public static Scenario parse(Properties properties) {
+        String names = properties.getProperty("phases");
+        if (names == null || names.trim().length() == 0) {
+            throw new IllegalArgumentException("No phases defined");
+        }
+
+        List<Phase> phases = new ArrayList<Phase>();
+        for (String name : names.split(",")) {
+            phases.add(parsePhase(properties, name.trim()));
+        }
+
+        String seed = properties.getProperty("seed");
+        return new Scenario(phases, (seed != null) ? Long.parseLong(seed
+                .trim()) : System.nanoTime());
+    }
+
+    private static Phase parsePhase(Properties properties, String name) {
+        String duration = get(properties, name, "duration", null);
+        if (duration == null) {
+            throw new IllegalArgumentException("Phase " + name
+                    + " has no duration");
+        }
+
+        double rate = Double.parseDouble(get(properties, name, "rate", "0"));
+        int concurrency = Integer.parseInt(get(properties, name,
+                "concurrency", "0"));
+        if ((rate > 0) == (concurrency > 0)) {
+            throw new IllegalArgumentException("Phase " + name
+                    + " needs either a rate or a concurrency");
+        }
+
+        String think = get(properties, name, "think", null);
+        String hold = get(properties, name, "hold", null);
+
+        return new Phase(name, parseDuration(duration), rate > 0, rate,
+                Double.parseDouble(get(properties, name, "startRate", "0")),
+                Arrivals.valueOf(get(properties, name, "arrivals", "poisson")
+                        .toUpperCase()),
+                Integer.parseInt(get(properties, name, "threads", "64")),
+                concurrency,
+                (think != null) ? LatencyDistribution.parse(think) : null,
+                parseDuration(get(properties, name, "rampUp", "0")),
+                parseMix(get(properties, name, "mix", "allocate:1")),
+                (hold != null) ? LatencyDistribution.parse(hold) : null,
+                Boolean.parseBoolean(get(properties, name, "measure", "true")));
+    }
+
+    /*
+     * Setting of a phase, or the default for every phase
+     */
+    private static String get(Properties properties, String phase,
+            String key, String defaultValue) {
+        String value = properties.getProperty("phase." + phase + "." + key);
+        if (value == null) {
+            value = properties.getProperty(key, defaultValue);
+        }
+        return (value != null) ? value.trim() : null;
+    }
+
+    static long parseDuration(String duration) {
+        long unit = 1000000000L;
+        String number = duration;
+        if (duration.endsWith("ms")) {
+            unit = 1000000L;
+            number = duration.substring(0, duration.length() - 2);
+        } else if (duration.endsWith("s")) {
+            number = duration.substring(0, duration.length() - 1);
+        } else if (duration.endsWith("m")) {
+            unit = 60000000000L;
+            number = duration.substring(0, duration.length() - 1);
+        }
+        return (long) (Double.parseDouble(number.trim()) * unit);
+    }
+
+    static double[] parseMix(String mix) {
+        double[] weights = new double[OPERATIONS.length];
+        double total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int operation = indexOf(parts[0].trim());
+            if (operation < 0 || parts.length != 2) {
+                throw new IllegalArgumentException("Wrong mix entry: " + entry);
+            }
+            weights[operation] = Double.parseDouble(parts[1].trim());
+            total += weights[operation];
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Empty mix: " + mix);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+
+    private static int indexOf(String operation) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i].equals(operation)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
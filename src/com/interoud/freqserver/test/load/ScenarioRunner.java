@@ -0,0 +1,415 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.interoud.freqserver.test.client.FreqServerClient;
+import com.interoud.freqserver.test.client.FreqServerOperations;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+/**
+ * Runs a {@link Schedule} against the freq_server and reports every measured
+ * phase on its own.
+ *
+ * In open loop phases the latency of a request is measured from the time it
+ * was scheduled, not from the time it was actually sent, so that a server
+ * that falls behind is not flattered by the requests it delayed (coordinated
+ * omission). Frequencies whose hold time has elapsed are deallocated by the
+ * workers between scheduled requests; those deallocations are measured as
+ * well.
+ */
+public class ScenarioRunner {
+
+    private static final String[] OPERATIONS = {
+            FreqServerClient.START_SERVER, FreqServerClient.STOP_SERVER,
+            FreqServerClient.ALLOCATE_FREQUENCY,
+            FreqServerClient.DEALLOCATE_FREQUENCY };
+
+    private final FreqServerOperations client;
+
+    private final Scenario scenario;
+
+    private final Schedule schedule;
+
+    private HistoryChecker checker;
+
+    private boolean managingServer = true;
+
+    private final DelayQueue<Held> held = new DelayQueue<Held>();
+
+    /*
+     * A frequency allocated during the run, until its release time
+     */
+    private static class Held implements Delayed {
+        final Integer frequency;
+        final long allocated;
+        final long releaseAt;
+
+        Held(Integer frequency, long allocated, long releaseAt) {
+            this.frequency = frequency;
+            this.allocated = allocated;
+            this.releaseAt = releaseAt;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(releaseAt - System.nanoTime(),
+                    TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            long difference = releaseAt - ((Held) other).releaseAt;
+            return (difference < 0) ? -1 : (difference > 0) ? 1 : 0;
+        }
+    }
+
+    public ScenarioRunner(FreqServerOperations client, Scenario scenario) {
+        this.client = client;
+        this.scenario = scenario;
+        this.schedule = Schedule.compile(scenario);
+    }
+
+    /**
+     * Sets the checker of the allocations and deallocations of the run. It is
+     * ignored for scenarios that start or stop the server, since those
+     * discard the frequencies held by the clients.
+     */
+    public void setHistoryChecker(HistoryChecker checker) {
+        this.checker = checker;
+    }
+
+    /**
+     * Sets whether the runner starts and stops the server (the default). When
+     * several runners share a server, it is started and stopped once by
+     * whoever coordinates them; the runners are then not checked, since none
+     * of them sees all the allocations.
+     */
+    public void setManagingServer(boolean managingServer) {
+        this.managingServer = managingServer;
+    }
+
+    /**
+     * Starts the server, runs every phase and stops the server again. The
+     * frequencies still held at the end are deallocated before.
+     *
+     * @return the reports of the measured phases.
+     */
+    public List<LoadReport> run() throws IOException, InterruptedException {
+        HistoryChecker history = (scenario.restartsServer() || !managingServer) ? null
+                : checker;
+        List<LoadReport> reports = new ArrayList<LoadReport>();
+
+        if (managingServer) {
+            client.startServer();
+        }
+        try {
+            for (Schedule.Phase phase : schedule.getPhases()) {
+                LoadReport report = runPhase(phase, history);
+                if (phase.getSettings().isMeasured()) {
+                    reports.add(report);
+                }
+            }
+
+            Map<String, OperationStats> discarded = newStats();
+            Held holding;
+            while ((holding = takeAny()) != null) {
+                deallocate(holding, System.nanoTime(), discarded, history);
+            }
+            if (history != null) {
+                for (Integer frequency : history.getReleasedFrequencies()) {
+                    history.probed(frequency.intValue(),
+                            LoadHarness.getErrorType(client
+                                    .deallocateFrequency(frequency)));
+                }
+            }
+        } finally {
+            if (managingServer) {
+                client.stopServer();
+            }
+        }
+        return reports;
+    }
+
+    private LoadReport runPhase(final Schedule.Phase phase,
+            final HistoryChecker history) throws InterruptedException {
+        final Scenario.Phase settings = phase.getSettings();
+        final Map<String, OperationStats> stats = newStats();
+        final AtomicInteger next = new AtomicInteger();
+        int workers = settings.isOpenLoop() ? settings.getThreads() : settings
+                .getConcurrency();
+        final CountDownLatch done = new CountDownLatch(workers);
+
+        GcSnapshot gcBefore = GcSnapshot.take();
+        CompilationSnapshot compilationBefore = CompilationSnapshot.take();
+        final long start = System.nanoTime();
+        final long end = start + settings.getDurationNanos();
+
+        for (int i = 0; i < workers; i++) {
+            final long begin = start
+                    + (settings.isOpenLoop() ? 0 : settings.getRampUpNanos()
+                            * i / workers);
+            Thread worker = new Thread("scenario-" + settings.getName() + "-"
+                    + i) {
+                public void run() {
+                    try {
+                        if (settings.isOpenLoop()) {
+                            runOpenLoop(phase, start, next, stats, history);
+                        } else {
+                            runClosedLoop(phase, begin, end, next, stats,
+                                    history);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        done.await();
+        if (!settings.isOpenLoop()) {
+            // Even with no clients, so that phases stay aligned with others
+            waitUntil(end);
+        }
+        long elapsed = System.nanoTime() - start;
+        GcSnapshot gc = GcSnapshot.take().since(gcBefore);
+        CompilationSnapshot compilation = CompilationSnapshot.take().since(
+                compilationBefore);
+
+        return new LoadReport(settings.getName(), stats.values(), elapsed, gc,
+                AllocationMeter.isSupported(), 0, false, compilation, null);
+    }
+
+    private void runOpenLoop(Schedule.Phase phase, long start,
+            AtomicInteger next, Map<String, OperationStats> stats,
+            HistoryChecker history) {
+        int i;
+        while ((i = next.getAndIncrement()) < phase.size()) {
+            long due = start + phase.getArrivalNanos(i);
+            releaseExpired(stats, history);
+            waitUntil(due);
+            execute(phase.getOperation(i), phase.getHoldNanos(i), due, stats,
+                    history);
+        }
+    }
+
+    private void runClosedLoop(Schedule.Phase phase, long begin, long end,
+            AtomicInteger next, Map<String, OperationStats> stats,
+            HistoryChecker history) {
+        waitUntil(begin);
+        while (System.nanoTime() < end) {
+            int i = next.getAndIncrement() & (Schedule.CYCLE - 1);
+            releaseExpired(stats, history);
+            execute(phase.getOperation(i), phase.getHoldNanos(i),
+                    System.nanoTime(), stats, history);
+            long think = phase.getThinkNanos(i);
+            if (think > 0) {
+                waitUntil(Math.min(System.nanoTime() + think, end));
+            }
+        }
+    }
+
+    private static void waitUntil(long time) {
+        long wait;
+        while ((wait = time - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void releaseExpired(Map<String, OperationStats> stats,
+            HistoryChecker history) {
+        Held holding;
+        while ((holding = held.poll()) != null) {
+            deallocate(holding, System.nanoTime(), stats, history);
+        }
+    }
+
+    /*
+     * Takes the held frequency due soonest, even if it is not due yet
+     */
+    private Held takeAny() {
+        Held holding = held.peek();
+        while (holding != null && !held.remove(holding)) {
+            holding = held.peek();
+        }
+        return holding;
+    }
+
+    private void execute(byte operation, long holdNanos, long scheduled,
+            Map<String, OperationStats> stats, HistoryChecker history) {
+        switch (operation) {
+        case Schedule.ALLOCATE:
+            allocate(holdNanos, scheduled, stats, history);
+            break;
+        case Schedule.DEALLOCATE:
+            Held holding = takeAny();
+            if (holding != null) {
+                deallocate(holding, scheduled, stats, history);
+            }
+            break;
+        default:
+            OperationStats recorder = stats.get(OPERATIONS[operation]);
+            long bytes = AllocationMeter.allocatedBytes();
+            try {
+                TypedResponse response = (operation == Schedule.START) ? client
+                        .startServer() : client.stopServer();
+                recorder.record(System.nanoTime() - scheduled,
+                        AllocationMeter.since(bytes), !response.isOk());
+            } catch (IOException ioe) {
+                recorder.recordFailure(System.nanoTime() - scheduled,
+                        AllocationMeter.since(bytes));
+            }
+        }
+    }
+
+    private void allocate(long holdNanos, long scheduled,
+            Map<String, OperationStats> stats, HistoryChecker history) {
+        OperationStats recorder = stats.get(FreqServerClient.ALLOCATE_FREQUENCY);
+        long bytes = AllocationMeter.allocatedBytes();
+        long invoked = System.nanoTime();
+        try {
+            TypedResponse response = client.allocateFrequency();
+            long responded = System.nanoTime();
+            boolean ok = response.isOk();
+            recorder.record(responded - scheduled,
+                    AllocationMeter.since(bytes), !ok);
+            if (ok) {
+                int frequency = response.getFrequency();
+                if (history != null) {
+                    history.allocated(frequency, invoked, responded);
+                }
+                held.add(new Held(Integer.valueOf(frequency), invoked,
+                        responded + holdNanos));
+            }
+        } catch (IOException ioe) {
+            recorder.recordFailure(System.nanoTime() - scheduled,
+                    AllocationMeter.since(bytes));
+            if (history != null) {
+                history.allocationUnanswered();
+            }
+        }
+    }
+
+    private void deallocate(Held holding, long scheduled,
+            Map<String, OperationStats> stats, HistoryChecker history) {
+        OperationStats recorder = stats.get(FreqServerClient.DEALLOCATE_FREQUENCY);
+        int frequency = holding.frequency.intValue();
+        long invoked = (history != null) ? history.deallocating(frequency)
+                : 0;
+        long bytes = AllocationMeter.allocatedBytes();
+        try {
+            TypedResponse response = client
+                    .deallocateFrequency(holding.frequency);
+            long responded = System.nanoTime();
+            recorder.record(responded - scheduled,
+                    AllocationMeter.since(bytes), !response.isOk());
+            if (history != null) {
+                history.deallocated(frequency, holding.allocated, invoked,
+                        responded, LoadHarness.getErrorType(response));
+            }
+        } catch (IOException ioe) {
+            recorder.recordFailure(System.nanoTime() - scheduled,
+                    AllocationMeter.since(bytes));
+            if (history != null) {
+                history.deallocationUnanswered(frequency);
+            }
+        }
+    }
+
+    private static Map<String, OperationStats> newStats() {
+        Map<String, OperationStats> stats = new LinkedHashMap<String, OperationStats>();
+        for (String operation : OPERATIONS) {
+            stats.put(operation, new OperationStats(operation));
+        }
+        return stats;
+    }
+
+    /**
+     * Usage: ScenarioRunner &lt;scenario file&gt; &lt;baseUrl |
+     * tcp://host:port | standin | standin-tcp&gt;
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ScenarioRunner <scenario file> <baseUrl | tcp://host:port | standin | standin-tcp>");
+            System.exit(1);
+        }
+
+        Scenario scenario = Scenario.load(new File(args[0]));
+
+        FreqServerStandIn standIn = null;
+        String baseUrl = args[1];
+        if (baseUrl.startsWith("standin")) {
+            standIn = new FreqServerStandIn(0);
+            baseUrl = LoadHarness.serve(standIn, baseUrl);
+        }
+
+        ScenarioRunner runner = new ScenarioRunner(
+                LoadHarness.connect(baseUrl), scenario);
+        HistoryChecker checker = new HistoryChecker();
+        runner.setHistoryChecker(checker);
+
+        try {
+            for (LoadReport report : runner.run()) {
+                report.print(System.out);
+                System.out.println();
+            }
+            if (!scenario.restartsServer()) {
+                System.out.printf("history: %d operations checked, %d unanswered, %d violations%n",
+                        checker.getOperations(), checker.getUnanswered(),
+                        checker.getViolations());
+                for (String message : checker.getMessages()) {
+                    System.out.println("  " + message);
+                }
+            }
+        } finally {
+            if (standIn != null) {
+                standIn.stop();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ScenarioTest {
+
+    private static Properties properties(String... entries) {
+        Properties properties = new Properties();
+        for (int i = 0; i < entries.length; i += 2) {
+            properties.setProperty(entries[i], entries[i + 1]);
+        }
+        return properties;
+    }
+
+    @Test
+    public void testDurations() {
+        Assert.assertEquals(1500000000L, Scenario.parseDuration("1.5"));
+        Assert.assertEquals(2000000000L, Scenario.parseDuration("2s"));
+        Assert.assertEquals(250000000L, Scenario.parseDuration("250ms"));
+        Assert.assertEquals(120000000000L, Scenario.parseDuration("2m"));
+    }
+
+    @Test
+    public void testPhaseDefaults() {
+        Scenario scenario = Scenario.parse(properties("phases", "a, b",
+                "duration", "10s", "rate", "100", "phase.b.concurrency", "4",
+                "phase.b.rate", "0", "mix", "allocate:3, deallocate:1"));
+
+        Scenario.Phase a = scenario.getPhases().get(0);
+        Scenario.Phase b = scenario.getPhases().get(1);
+        Assert.assertTrue(a.isOpenLoop());
+        Assert.assertFalse(b.isOpenLoop());
+        Assert.assertEquals(4, b.getConcurrency());
+        Assert.assertEquals(0.75, a.getMix()[Schedule.ALLOCATE], 1e-9);
+        Assert.assertEquals(0.25, b.getMix()[Schedule.DEALLOCATE], 1e-9);
+        Assert.assertFalse(scenario.restartsServer());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateOrConcurrency() {
+        Scenario.parse(properties("phases", "a", "duration", "10s"));
+    }
+
+    @Test
+    public void testUniformRamp() {
+        Scenario scenario = Scenario.parse(properties("phases", "a", "seed",
+                "1", "duration", "20s", "rampUp", "10s", "rate", "100",
+                "arrivals", "uniform"));
+        Schedule.Phase phase = Schedule.compile(scenario).getPhases().get(0);
+
+        /*
+         * 500 arrivals during the ramp up and 1000 afterwards
+         */
+        Assert.assertEquals(1500, phase.size(), 1);
+        Assert.assertEquals(10000000000L, phase.getArrivalNanos(499),
+                50000000L);
+        for (int i = 1; i < phase.size(); i++) {
+            Assert.assertTrue(phase.getArrivalNanos(i) >= phase.getArrivalNanos(i - 1));
+        }
+    }
+
+    @Test
+    public void testPoissonMix() {
+        Scenario scenario = Scenario.parse(properties("phases", "a", "seed",
+                "1", "duration", "100s", "rate", "1000", "mix",
+                "allocate:90, stop:10", "hold", "fixed:5"));
+        Schedule.Phase phase = Schedule.compile(scenario).getPhases().get(0);
+
+        int stops = 0;
+        for (int i = 0; i < phase.size(); i++) {
+            if (phase.getOperation(i) == Schedule.STOP) {
+                stops++;
+            } else {
+                Assert.assertEquals(Schedule.ALLOCATE, phase.getOperation(i));
+                Assert.assertEquals(5000000L, phase.getHoldNanos(i));
+            }
+        }
+
+        Assert.assertEquals(100000, phase.size(), 1500);
+        Assert.assertEquals(0.1, (double) stops / phase.size(), 0.01);
+        Assert.assertTrue(scenario.restartsServer());
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.interoud.freqserver.test.proxy.LatencyDistribution;
+
+/**
+ * A {@link Scenario} compiled into primitive arrays: the operation, arrival
+ * time and hold time of every request are drawn before the run starts, so
+ * that the runner only has to read them and the random choices of the
+ * scenario do not add to the measured latencies.
+ */
+public class Schedule {
+
+    public static final byte START = 0;
+    public static final byte STOP = 1;
+    public static final byte ALLOCATE = 2;
+    public static final byte DEALLOCATE = 3;
+
+    /**
+     * Number of requests drawn for closed loop phases, which are reused
+     * cyclically since how many will be sent is not known in advance.
+     */
+    public static final int CYCLE = 1 << 16;
+
+    /**
+     * Requests of a phase. Times are relative to the start of the phase.
+     */
+    public static class Phase {
+
+        private final Scenario.Phase settings;
+        private final byte[] operations;
+        private final long[] arrivals;
+        private final long[] holds;
+        private final long[] thinks;
+
+        Phase(Scenario.Phase settings, byte[] operations, long[] arrivals,
+                long[] holds, long[] thinks) {
+            this.settings = settings;
+            this.operations = operations;
+            this.arrivals = arrivals;
+            this.holds = holds;
+            this.thinks = thinks;
+        }
+
+        public Scenario.Phase getSettings() {
+            return settings;
+        }
+
+        /**
+         * Number of requests of an open loop phase, or size of the cycle of a
+         * closed loop one.
+         */
+        public int size() {
+            return operations.length;
+        }
+
+        public byte getOperation(int i) {
+            return operations[i];
+        }
+
+        /**
+         * Arrival time of a request of an open loop phase.
+         */
+        public long getArrivalNanos(int i) {
+            return arrivals[i];
+        }
+
+        /**
+         * Hold time of the frequency allocated by a request.
+         */
+        public long getHoldNanos(int i) {
+            return holds[i];
+        }
+
+        /**
+         * Think time after a request of a closed loop phase.
+         */
+        public long getThinkNanos(int i) {
+            return (thinks != null) ? thinks[i] : 0;
+        }
+
+    }
+
+    private final List<Phase> phases;
+
+    private Schedule(List<Phase> phases) {
+        this.phases = Collections.unmodifiableList(phases);
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    public static Schedule compile(Scenario scenario) {
+        Random random = new Random(scenario.getSeed());
+        List<Phase> phases = new ArrayList<Phase>();
+        for (Scenario.Phase phase : scenario.getPhases()) {
+            phases.add(phase.isOpenLoop() ? compileOpenLoop(phase, random)
+                    : compileClosedLoop(phase, random));
+        }
+        return new Schedule(phases);
+    }
+
+    private static Phase compileOpenLoop(Scenario.Phase phase, Random random) {
+        long[] arrivals = arrivals(phase, random);
+        int size = arrivals.length;
+        byte[] operations = new byte[size];
+        long[] holds = new long[size];
+        fill(phase, random, operations, holds);
+        return new Phase(phase, operations, arrivals, holds, null);
+    }
+
+    private static Phase compileClosedLoop(Scenario.Phase phase, Random random) {
+        byte[] operations = new byte[CYCLE];
+        long[] holds = new long[CYCLE];
+        long[] thinks = null;
+        fill(phase, random, operations, holds);
+
+        LatencyDistribution think = phase.getThink();
+        if (think != null) {
+            thinks = new long[CYCLE];
+            for (int i = 0; i < CYCLE; i++) {
+                thinks[i] = think.nextNanos(random);
+            }
+        }
+        return new Phase(phase, operations, null, holds, thinks);
+    }
+
+    private static void fill(Scenario.Phase phase, Random random,
+            byte[] operations, long[] holds) {
+        double[] mix = phase.getMix();
+        LatencyDistribution hold = phase.getHold();
+        for (int i = 0; i < operations.length; i++) {
+            double choice = random.nextDouble();
+            byte operation = 0;
+            while (operation < mix.length - 1 && choice >= mix[operation]) {
+                choice -= mix[operation];
+                operation++;
+            }
+            operations[i] = operation;
+            if (operation == ALLOCATE && hold != null) {
+                holds[i] = hold.nextNanos(random);
+            }
+        }
+    }
+
+    /**
+     * Arrival times of an open loop phase. Arrivals are placed where the
+     * expected number of arrivals since the start of the phase, which grows
+     * quadratically during the ramp up and linearly afterwards, reaches the
+     * next integer (uniform spacing) or the next point of a unit rate Poisson
+     * process.
+     */
+    static long[] arrivals(Scenario.Phase phase, Random random) {
+        double duration = phase.getDurationNanos() / 1e9;
+        double ramp = Math.min(phase.getRampUpNanos() / 1e9, duration);
+        double from = (ramp > 0) ? phase.getStartRate() : phase.getRate();
+        double to = phase.getRate();
+        double rampArrivals = (from + to) / 2 * ramp;
+        double total = rampArrivals + to * (duration - ramp);
+
+        long[] arrivals = new long[(int) Math.min(total * 1.1 + 16,
+                Integer.MAX_VALUE - 8)];
+        int size = 0;
+        double expected = 0;
+
+        while (true) {
+            if (phase.getArrivals() == Scenario.Arrivals.POISSON) {
+                expected -= Math.log(1.0 - random.nextDouble());
+            } else {
+                expected += 1;
+            }
+
+            double time;
+            if (expected <= rampArrivals) {
+                /*
+                 * Solve from * t + (to - from) / (2 * ramp) * t^2 = expected
+                 */
+                double a = (to - from) / (2 * ramp);
+                if (Math.abs(a) < 1e-12) {
+                    time = expected / from;
+                } else {
+                    time = (-from + Math.sqrt(from * from + 4 * a * expected))
+                            / (2 * a);
+                }
+            } else {
+                time = ramp + (expected - rampArrivals) / to;
+            }
+            if (time >= duration) {
+                break;
+            }
+
+            if (size == arrivals.length) {
+                long[] grown = new long[size * 2];
+                System.arraycopy(arrivals, 0, grown, 0, size);
+                arrivals = grown;
+            }
+            arrivals[size++] = (long) (time * 1e9);
+        }
+
+        long[] trimmed = new long[size];
+        System.arraycopy(arrivals, 0, trimmed, 0, size);
+        return trimmed;
+    }
+
+}
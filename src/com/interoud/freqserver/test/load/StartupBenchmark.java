@@ -0,0 +1,170 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.interoud.freqserver.test.client.FreqServerClient;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+/**
+ * Measures how long a new JVM takes to allocate its first frequency: from
+ * launching a {@link StartupProbe} to the probe printing the response. This
+ * is what short-lived invocations of the client pay, JVM startup, class
+ * loading and the initialization of the codecs included.
+ *
+ * Compare runs with different probe modes and JVM options, e.g. with and
+ * without -XX:SharedArchiveFile pointing at the archive of the appcds
+ * profile.
+ */
+public class StartupBenchmark {
+
+    private final String baseUrl;
+
+    private final String mode;
+
+    private final List<String> jvmOptions = new ArrayList<String>();
+
+    /**
+     * @param mode
+     *            mode of the probe, see {@link StartupProbe#main(String[])}.
+     */
+    public StartupBenchmark(String baseUrl, String mode) {
+        this.baseUrl = baseUrl;
+        this.mode = mode;
+    }
+
+    /**
+     * Adds an option to the command line of the probe JVMs.
+     */
+    public void addJvmOption(String option) {
+        jvmOptions.add(option);
+    }
+
+    /**
+     * @return time to the first allocation of each run, in milliseconds.
+     */
+    public long[] run(int runs) throws IOException, InterruptedException {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = probe();
+        }
+        return millis;
+    }
+
+    private long probe() throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupProbe.class.getName());
+        command.add(baseUrl);
+        command.add(mode);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long elapsed = -1;
+        BufferedReader output = new BufferedReader(new InputStreamReader(
+                process.getInputStream(), "UTF-8"));
+        try {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (elapsed == -1 && line.startsWith(StartupProbe.ALLOCATED)) {
+                    elapsed = (System.nanoTime() - start) / 1000000;
+                } else {
+                    System.out.println(line);
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        int status = process.waitFor();
+        if (status != 0 || elapsed == -1) {
+            throw new IOException("Probe failed with status " + status);
+        }
+        return elapsed;
+    }
+
+    /**
+     * Usage: StartupBenchmark &lt;baseUrl | standin&gt; &lt;runs&gt; [lazy |
+     * preload | xml] [probe JVM options]
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = (args.length > 2) ? args[2] : "lazy";
+        int runs = Integer.parseInt(args[1]);
+
+        /*
+         * The stand-in runs here, so that the probes only load the client
+         */
+        FreqServerStandIn standIn = null;
+        String baseUrl = args[0];
+        if ("standin".equals(baseUrl)) {
+            standIn = new FreqServerStandIn(0);
+            standIn.start();
+            baseUrl = standIn.getBaseUrl();
+            new FreqServerClient(baseUrl).startServer();
+        }
+
+        try {
+            StartupBenchmark benchmark = new StartupBenchmark(baseUrl, mode);
+            for (int i = 3; i < args.length; i++) {
+                benchmark.addJvmOption(args[i]);
+            }
+
+            long[] millis = benchmark.run(runs);
+            System.out.println("Time to first allocation (ms), mode " + mode
+                    + ": " + Arrays.toString(millis));
+            Arrays.sort(millis);
+            System.out.println("min " + millis[0] + ", median "
+                    + millis[runs / 2] + ", max " + millis[runs - 1]);
+        } finally {
+            if (standIn != null) {
+                standIn.stop();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.load;
+
+import java.util.Collections;
+
+import com.interoud.freqserver.test.client.FreqServerClient;
+import com.interoud.freqserver.test.codec.ResponseCodecs;
+import com.interoud.freqserver.test.parser.TypedResponse;
+import com.interoud.freqserver.test.standin.FreqServerStandIn;
+
+/**
+ * Short-lived client launched by {@link StartupBenchmark}: allocates one
+ * frequency, reports it as soon as it has the response and then gives it
+ * back.
+ *
+ * With "standin" as the url it serves itself, which makes it a training run
+ * for the class list of the CDS archive (see the appcds profile of the
+ * pom).
+ */
+public class StartupProbe {
+
+    public static final String ALLOCATED = "ALLOCATED";
+
+    /**
+     * Usage: StartupProbe &lt;baseUrl | standin&gt; [lazy | preload | xml]
+     *
+     * lazy (the default) initializes the codecs on the first response,
+     * preload starts it in the background before connecting, and xml decodes
+     * with the streaming codec instead of JAXB.
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = (args.length > 1) ? args[1] : "lazy";
+
+        FreqServerStandIn standIn = null;
+        String baseUrl = args[0];
+        if ("standin".equals(baseUrl)) {
+            standIn = new FreqServerStandIn(0);
+            standIn.start();
+            baseUrl = standIn.getBaseUrl();
+            new FreqServerClient(baseUrl).startServer();
+        }
+
+        try {
+            FreqServerClient client = new FreqServerClient(baseUrl);
+            if ("xml".equals(mode)) {
+                client.setResponseCodecs(Collections
+                        .singletonList(ResponseCodecs.forName("xml")));
+            } else if ("preload".equals(mode)) {
+                client.preload();
+            } else if (!"lazy".equals(mode)) {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+
+            TypedResponse response = client.allocateFrequency();
+            System.out.println(ALLOCATED + " " + response.getState());
+            System.out.flush();
+
+            if (response.isOk()) {
+                client.deallocateFrequency(Integer.valueOf(response
+                        .getFrequency()));
+            }
+        } finally {
+            if (standIn != null) {
+                standIn.stop();
+            }
+        }
+    }
+
+}
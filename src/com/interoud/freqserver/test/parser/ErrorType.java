@@ -0,0 +1,93 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.parser;
+
+/**
+ * Types of the errors reported by the freq_server service.
+ */
+public enum ErrorType {
+
+    ALREADY_STARTED, NOT_RUNNING, NO_FREQUENCIES_AVAILABLE, WRONG_REQUEST,
+    NOT_ALLOCATED,
+
+    /**
+     * A type this version does not know about, see
+     * {@link TypedError#getErrorType()} for the actual one.
+     */
+    UNKNOWN;
+
+    private static final ErrorType[] KNOWN = { ALREADY_STARTED, NOT_RUNNING,
+        NO_FREQUENCIES_AVAILABLE, WRONG_REQUEST, NOT_ALLOCATED };
+
+    /**
+     * @return the type with that name, UNKNOWN for any other name and null
+     *         for null.
+     */
+    public static ErrorType of(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (ErrorType type : KNOWN) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return the type whose name is the given range of characters, or null
+     *         if none is.
+     */
+    public static ErrorType match(CharSequence text, int start, int end) {
+        return Names.match(KNOWN, text, start, end);
+    }
+
+    /**
+     * @return the type whose name is the given range of characters, or
+     *         null if none is.
+     */
+    public static ErrorType match(char[] text, int start, int end) {
+        return Names.match(KNOWN, text, start, end);
+    }
+
+    /**
+     * @return the type whose name is the given range of ASCII bytes, or null
+     *         if none is.
+     */
+    public static ErrorType match(byte[] bytes, int start, int end) {
+        return Names.match(KNOWN, bytes, start, end);
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.parser;
+
+/**
+ * Matching of enum constants against raw text, so that parsers do not need
+ * to build a string to find out which constant it names.
+ */
+final class Names {
+
+    private Names() {
+    }
+
+    static <E extends Enum<E>> E match(E[] values, CharSequence text,
+            int start, int end) {
+        int length = end - start;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && name.charAt(i) == text.charAt(start + i)) {
+                i++;
+            }
+            if (i == length) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    static <E extends Enum<E>> E match(E[] values, char[] text, int start,
+            int end) {
+        int length = end - start;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && name.charAt(i) == text[start + i]) {
+                i++;
+            }
+            if (i == length) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    static <E extends Enum<E>> E match(E[] values, byte[] bytes, int start,
+            int end) {
+        int length = end - start;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && name.charAt(i) == bytes[start + i]) {
+                i++;
+            }
+            if (i == length) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.parser;
+
+import java.io.IOException;
+
+/**
+ * Error with its type as an enum. The description may be left undecoded
+ * until it is asked for: callers mostly look at the type alone, and errors
+ * come in numbers when the server is overloaded.
+ */
+public class TypedError extends Error {
+
+    private ErrorType type;
+
+    private LazyText lazyDescription;
+
+    /**
+     * @return the error as is if it is already typed, or else a typed copy
+     *         of it.
+     */
+    public static TypedError of(Error error) {
+        if (error instanceof TypedError) {
+            return (TypedError) error;
+        }
+        TypedError typed = new TypedError();
+        typed.setErrorType(error.getErrorType());
+        typed.setErrorDescription(error.getErrorDescription());
+        return typed;
+    }
+
+    public ErrorType getType() {
+        return type;
+    }
+
+    /**
+     * @param type
+     *            any type but UNKNOWN, which is set through
+     *            {@link #setErrorType(String)}.
+     */
+    public void setType(ErrorType type) {
+        if (type == ErrorType.UNKNOWN) {
+            throw new IllegalArgumentException("Unknown types need a name");
+        }
+        this.type = type;
+        this.errorType = (type != null) ? type.name() : null;
+    }
+
+    public void setErrorType(String value) {
+        this.errorType = value;
+        this.type = ErrorType.of(value);
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if a description left undecoded turns out to be malformed.
+     */
+    public String getErrorDescription() {
+        if (lazyDescription != null) {
+            try {
+                errorDescription = lazyDescription.decode();
+            } catch (IOException ioe) {
+                throw new IllegalStateException(
+                        "Malformed error description", ioe);
+            }
+            lazyDescription = null;
+        }
+        return errorDescription;
+    }
+
+    public void setErrorDescription(String value) {
+        this.errorDescription = value;
+        this.lazyDescription = null;
+    }
+
+    /**
+     * Sets the description to be decoded when it is first asked for.
+     */
+    public void setErrorDescription(LazyText value) {
+        this.errorDescription = null;
+        this.lazyDescription = value;
+    }
+
+    public boolean hasErrorDescription() {
+        return lazyDescription != null || errorDescription != null;
+    }
+
+}
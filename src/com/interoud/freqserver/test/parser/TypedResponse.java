@@ -0,0 +1,148 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.parser;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+
+/**
+ * Response with typed accessors: the state and the error types as enums, and
+ * the frequency as a primitive. The parsers fill them in directly, and the
+ * string getters of the generated classes return the names of the constants,
+ * so a known state or error type costs no allocation and can be compared by
+ * identity.
+ */
+public class TypedResponse extends FreqServerResponse {
+
+    private ResponseState responseState;
+
+    /**
+     * @return the response as is if it is already typed, or else a typed
+     *         copy of it.
+     */
+    public static TypedResponse of(FreqServerResponse response) {
+        if (response instanceof TypedResponse) {
+            return (TypedResponse) response;
+        }
+        TypedResponse typed = new TypedResponse();
+        typed.setState(response.getState());
+        typed.setResult(response.getResult());
+        if (response.error != null) {
+            for (Error error : response.error) {
+                typed.getError().add(TypedError.of(error));
+            }
+        }
+        return typed;
+    }
+
+    public ResponseState getResponseState() {
+        return responseState;
+    }
+
+    /**
+     * @param responseState
+     *            any state but UNKNOWN, which is set through
+     *            {@link #setState(String)}.
+     */
+    public void setResponseState(ResponseState responseState) {
+        if (responseState == ResponseState.UNKNOWN) {
+            throw new IllegalArgumentException("Unknown states need a name");
+        }
+        this.responseState = responseState;
+        this.state = (responseState != null) ? responseState.name() : null;
+    }
+
+    public void setState(String value) {
+        this.state = value;
+        this.responseState = ResponseState.of(value);
+    }
+
+    public boolean isOk() {
+        return responseState == ResponseState.OK;
+    }
+
+    /**
+     * The result is always typed: results of other classes are copied.
+     */
+    public void setResult(Result value) {
+        this.result = (value != null) ? TypedResult.of(value) : null;
+    }
+
+    public TypedResult getTypedResult() {
+        return (TypedResult) result;
+    }
+
+    public boolean hasFrequency() {
+        return result != null && ((TypedResult) result).hasFrequency();
+    }
+
+    /**
+     * @throws NoSuchElementException
+     *             if the response has no frequency.
+     */
+    public int getFrequency() {
+        if (result == null) {
+            throw new NoSuchElementException("No result");
+        }
+        return ((TypedResult) result).getFrequency();
+    }
+
+    public OptionalInt getOptionalFrequency() {
+        return hasFrequency() ? OptionalInt.of(getFrequency()) : OptionalInt
+                .empty();
+    }
+
+    /**
+     * @return the first error, or null if there is none. Unlike
+     *         {@link #getError()}, it does not create the list of errors.
+     */
+    public Error getFirstError() {
+        return (error != null && !error.isEmpty()) ? error.get(0) : null;
+    }
+
+    /**
+     * @return the type of the first error, or null if there is none.
+     */
+    public ErrorType getErrorType() {
+        Error first = getFirstError();
+        if (first == null) {
+            return null;
+        }
+        if (first instanceof TypedError) {
+            return ((TypedError) first).getType();
+        }
+        return ErrorType.of(first.getErrorType());
+    }
+
+}
@@ -0,0 +1,108 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.parser;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+
+/**
+ * Result holding the frequency as a primitive, boxed only if
+ * {@link #getFrequencyAllocated()} is called.
+ */
+public class TypedResult extends Result {
+
+    private int frequency;
+
+    private boolean present;
+
+    /**
+     * @return the result as is if it is already typed, or else a typed copy
+     *         of it.
+     */
+    public static TypedResult of(Result result) {
+        if (result instanceof TypedResult) {
+            return (TypedResult) result;
+        }
+        TypedResult typed = new TypedResult();
+        typed.setFrequencyAllocated(result.getFrequencyAllocated());
+        return typed;
+    }
+
+    public boolean hasFrequency() {
+        return present;
+    }
+
+    /**
+     * @throws NoSuchElementException
+     *             if there is no frequency.
+     */
+    public int getFrequency() {
+        if (!present) {
+            throw new NoSuchElementException("No frequency allocated");
+        }
+        return frequency;
+    }
+
+    public OptionalInt getOptionalFrequency() {
+        return present ? OptionalInt.of(frequency) : OptionalInt.empty();
+    }
+
+    public void setFrequency(int frequency) {
+        this.frequency = frequency;
+        this.present = true;
+        this.frequencyAllocated = null;
+    }
+
+    public void clearFrequency() {
+        this.present = false;
+        this.frequencyAllocated = null;
+    }
+
+    public Integer getFrequencyAllocated() {
+        if (frequencyAllocated == null && present) {
+            frequencyAllocated = Integer.valueOf(frequency);
+        }
+        return frequencyAllocated;
+    }
+
+    public void setFrequencyAllocated(Integer value) {
+        if (value != null) {
+            setFrequency(value.intValue());
+        } else {
+            clearFrequency();
+        }
+        this.frequencyAllocated = value;
+    }
+
+}
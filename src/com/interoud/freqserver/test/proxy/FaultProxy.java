@@ -0,0 +1,354 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TCP proxy that degrades the connections to a server on purpose, to see how
+ * the client (timeouts, retries, hedging, limiters) behaves under slow or
+ * flaky servers without touching a real one. Since {@link com.interoud.util.net.HTTPUtils}
+ * opens a connection per request, every fault applies to a single request.
+ *
+ * For every connection the proxy can:
+ * <ul>
+ * <li>delay the response, taking the delay from a {@link LatencyDistribution};</li>
+ * <li>limit the bandwidth in both directions;</li>
+ * <li>reset the connection once the request has been forwarded, so the
+ * server does process it but the client never sees the response;</li>
+ * <li>stall the response after some bytes, holding the connection open until
+ * the client gives up.</li>
+ * </ul>
+ *
+ * The settings can be changed while the proxy runs and apply to the
+ * connections accepted afterwards.
+ */
+public class FaultProxy {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InetSocketAddress target;
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor;
+
+    private volatile LatencyDistribution latency;
+
+    private volatile long bytesPerSecond;
+
+    private volatile double resetProbability;
+
+    private volatile double stallProbability;
+
+    private volatile int stallAfterBytes;
+
+    private volatile boolean running;
+
+    private final AtomicLong connections = new AtomicLong();
+
+    private final AtomicLong resets = new AtomicLong();
+
+    private final AtomicLong stalls = new AtomicLong();
+
+    /**
+     * Creates the proxy, which does not accept connections until
+     * {@link #start()} is called.
+     *
+     * @param port
+     *            port to listen on, 0 for any free port.
+     */
+    public FaultProxy(int port, String targetHost, int targetPort)
+            throws IOException {
+        this.target = new InetSocketAddress(targetHost, targetPort);
+        this.serverSocket = new ServerSocket(port);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "fault-proxy");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Sets the distribution of the delay added before the response. Null (the
+     * default) adds no delay.
+     */
+    public void setLatency(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Limits the bandwidth of every connection, in each direction. 0 (the
+     * default) does not limit it.
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public void setResetProbability(double probability) {
+        this.resetProbability = probability;
+    }
+
+    /**
+     * Sets the probability of stalling a response, and the number of bytes of
+     * the response sent before stalling (0 to send none).
+     */
+    public void setStall(double probability, int afterBytes) {
+        this.stallProbability = probability;
+        this.stallAfterBytes = afterBytes;
+    }
+
+    public void start() {
+        running = true;
+        executor.execute(new Runnable() {
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ioe) {
+            // Nothing to do, it is being stopped anyway
+        }
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public long getResets() {
+        return resets.get();
+    }
+
+    public long getStalls() {
+        return stalls.get();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                final Socket client = serverSocket.accept();
+                connections.incrementAndGet();
+                executor.execute(new Runnable() {
+                    public void run() {
+                        proxy(client);
+                    }
+                });
+            } catch (IOException ioe) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void proxy(final Socket client) {
+        Socket server = null;
+        try {
+            Random random = new Random();
+            double fault = random.nextDouble();
+            boolean reset = fault < resetProbability;
+            boolean stall = !reset
+                    && fault < resetProbability + stallProbability;
+            LatencyDistribution delay = latency;
+            final long bandwidth = bytesPerSecond;
+
+            server = new Socket();
+            server.connect(target);
+            final Socket upstream = server;
+
+            /*
+             * Request: copied by another thread until the client closes
+             */
+            Future<?> requests = executor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        copy(client.getInputStream(),
+                                upstream.getOutputStream(), bandwidth,
+                                Long.MAX_VALUE);
+                        upstream.shutdownOutput();
+                    } catch (IOException ioe) {
+                        // The connection was closed on the other side
+                    }
+                }
+            });
+
+            /*
+             * Response: the faults are injected when it starts
+             */
+            PushbackInputStream in = new PushbackInputStream(
+                    server.getInputStream());
+            int first = in.read();
+            if (first < 0) {
+                return;
+            }
+            in.unread(first);
+
+            if (reset) {
+                resets.incrementAndGet();
+                client.setSoLinger(true, 0);
+                return;
+            }
+
+            if (delay != null) {
+                TimeUnit.NANOSECONDS.sleep(delay.nextNanos(random));
+            }
+
+            OutputStream out = client.getOutputStream();
+            if (stall) {
+                stalls.incrementAndGet();
+                copy(in, out, bandwidth, stallAfterBytes);
+                out.flush();
+                requests.get();
+                return;
+            }
+
+            copy(in, out, bandwidth, Long.MAX_VALUE);
+            client.shutdownOutput();
+            requests.get();
+
+        } catch (Exception e) {
+            // Either side went away; close both
+        } finally {
+            close(client);
+            close(server);
+        }
+    }
+
+    /**
+     * Copies up to limit bytes, pacing the writes to the bandwidth (if not 0).
+     */
+    private static void copy(InputStream in, OutputStream out, long bandwidth,
+            long limit) throws IOException {
+        int chunk = BUFFER_SIZE;
+        if (bandwidth > 0) {
+            chunk = (int) Math.max(1, Math.min(BUFFER_SIZE, bandwidth / 20));
+        }
+        byte[] buffer = new byte[chunk];
+        long copied = 0;
+        long start = System.nanoTime();
+
+        while (copied < limit) {
+            int read = in.read(buffer, 0, (int) Math.min(chunk, limit - copied));
+            if (read < 0) {
+                return;
+            }
+            out.write(buffer, 0, read);
+            copied += read;
+
+            if (bandwidth > 0) {
+                long due = start + copied * 1000000000L / bandwidth;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException ie) {
+                        throw new SocketException("Proxy stopped");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Usage: FaultProxy &lt;port&gt; &lt;targetHost:targetPort&gt; [latency]
+     * [bytes per second] [reset probability] [stall probability]
+     *
+     * where latency is given as accepted by
+     * {@link LatencyDistribution#parse(String)}, or "none".
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FaultProxy <port> <targetHost:targetPort> [latency] [bytes per second] [reset probability] [stall probability]");
+            System.exit(1);
+        }
+
+        int separator = args[1].lastIndexOf(':');
+        FaultProxy proxy = new FaultProxy(Integer.parseInt(args[0]),
+                args[1].substring(0, separator),
+                Integer.parseInt(args[1].substring(separator + 1)));
+        if (args.length > 2 && !"none".equals(args[2])) {
+            proxy.setLatency(LatencyDistribution.parse(args[2]));
+        }
+        if (args.length > 3) {
+            proxy.setBandwidth(Long.parseLong(args[3]));
+        }
+        if (args.length > 4) {
+            proxy.setResetProbability(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            proxy.setStall(Double.parseDouble(args[5]), 0);
+        }
+
+        proxy.start();
+        System.out.println("Proxy listening on port " + proxy.getPort()
+                + ", forwarding to " + args[1]);
+    }
+
+    private static void close(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ioe) {
+                // Already closed
+            }
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.interoud.util.net.HTTPUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class FaultProxyTest {
+
+    private static final String RESPONSE = "<response/>";
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private HttpServer server;
+
+    private FaultProxy proxy;
+
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                InputStream in = exchange.getRequestBody();
+                while (in.read() >= 0) {
+                }
+                byte[] body = RESPONSE.getBytes(HTTPUtils.ENCODING);
+                exchange.getResponseHeaders().set("Content-Type", "text/xml");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        proxy = new FaultProxy(0, "127.0.0.1", server.getAddress().getPort());
+        proxy.start();
+        url = "http://127.0.0.1:" + proxy.getPort() + "/freq_server/"
+                + "AllocateFrequency";
+    }
+
+    @After
+    public void tearDown() {
+        proxy.stop();
+        server.stop(0);
+    }
+
+    @Test
+    public void testForward() throws IOException {
+        Assert.assertEquals(RESPONSE, HTTPUtils.doPost(url, "<request/>",
+                1000, 1000).trim());
+        Assert.assertEquals(1, requests.get());
+        Assert.assertEquals(1, proxy.getConnections());
+    }
+
+    @Test
+    public void testLatency() throws IOException {
+        proxy.setLatency(LatencyDistribution.fixed(300));
+
+        long start = System.nanoTime();
+        Assert.assertEquals(RESPONSE, HTTPUtils.doPost(url, "<request/>",
+                1000, 2000).trim());
+        long elapsed = System.nanoTime() - start;
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void testReset() {
+        proxy.setResetProbability(1);
+
+        try {
+            HTTPUtils.doPost(url, "<request/>", 1000, 2000);
+            Assert.fail();
+        } catch (SocketTimeoutException ste) {
+            Assert.fail("Reset seen as a timeout: " + ste);
+        } catch (IOException ioe) {
+            // expected, once the server has processed the request
+        }
+        Assert.assertTrue(requests.get() >= 1);
+        Assert.assertTrue(proxy.getResets() >= 1);
+    }
+
+    @Test
+    public void testStall() throws IOException {
+        proxy.setStall(1, 0);
+
+        long start = System.nanoTime();
+        try {
+            HTTPUtils.doPost(url, "<request/>", 1000, 300);
+            Assert.fail();
+        } catch (SocketTimeoutException ste) {
+            // expected
+        }
+        long elapsed = System.nanoTime() - start;
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(300));
+        Assert.assertEquals(1, requests.get());
+        Assert.assertEquals(1, proxy.getStalls());
+    }
+}
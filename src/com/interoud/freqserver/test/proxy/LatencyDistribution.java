@@ -0,0 +1,146 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.proxy;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of the delays injected by {@link FaultProxy}. Delays are given
+ * in milliseconds and sampled in nanoseconds.
+ */
+public abstract class LatencyDistribution {
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Returns a delay in nanoseconds.
+     */
+    public abstract long nextNanos(Random random);
+
+    public static LatencyDistribution fixed(final double millis) {
+        return new LatencyDistribution() {
+            public long nextNanos(Random random) {
+                return toNanos(millis);
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(final double minMillis,
+            final double maxMillis) {
+        return new LatencyDistribution() {
+            public long nextNanos(Random random) {
+                return toNanos(minMillis + random.nextDouble()
+                        * (maxMillis - minMillis));
+            }
+        };
+    }
+
+    public static LatencyDistribution exponential(final double meanMillis) {
+        return new LatencyDistribution() {
+            public long nextNanos(Random random) {
+                return toNanos(-meanMillis * Math.log(1.0 - random.nextDouble()));
+            }
+        };
+    }
+
+    /**
+     * Log-normal distribution, the usual shape of service latencies: most
+     * values close to the median and a long tail whose weight grows with
+     * sigma.
+     */
+    public static LatencyDistribution logNormal(final double medianMillis,
+            final double sigma) {
+        return new LatencyDistribution() {
+            public long nextNanos(Random random) {
+                return toNanos(medianMillis
+                        * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    /**
+     * Takes the delay from the tail distribution with the given probability
+     * and from the body distribution otherwise, e.g. to add occasional
+     * multi-second hiccups to a fast server.
+     */
+    public static LatencyDistribution mixture(final double tailProbability,
+            final LatencyDistribution tail, final LatencyDistribution body) {
+        return new LatencyDistribution() {
+            public long nextNanos(Random random) {
+                if (random.nextDouble() < tailProbability) {
+                    return tail.nextNanos(random);
+                }
+                return body.nextNanos(random);
+            }
+        };
+    }
+
+    /**
+     * Parses a distribution from its textual form: "fixed:ms",
+     * "uniform:minMs:maxMs", "exponential:meanMs" or
+     * "lognormal:medianMs:sigma".
+     *
+     * @throws IllegalArgumentException
+     *             if the text is not a valid distribution.
+     */
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            if ("fixed".equals(parts[0]) && parts.length == 2) {
+                return fixed(Double.parseDouble(parts[1]));
+            }
+            if ("uniform".equals(parts[0]) && parts.length == 3) {
+                return uniform(Double.parseDouble(parts[1]),
+                        Double.parseDouble(parts[2]));
+            }
+            if ("exponential".equals(parts[0]) && parts.length == 2) {
+                return exponential(Double.parseDouble(parts[1]));
+            }
+            if ("lognormal".equals(parts[0]) && parts.length == 3) {
+                return logNormal(Double.parseDouble(parts[1]),
+                        Double.parseDouble(parts[2]));
+            }
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Malformed distribution: "
+                    + spec, nfe);
+        }
+        throw new IllegalArgumentException("Unknown distribution: " + spec);
+    }
+
+    private static long toNanos(double millis) {
+        return Math.max((long) (millis * NANOS_PER_MILLI), 0);
+    }
+
+}
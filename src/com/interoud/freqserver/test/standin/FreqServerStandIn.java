@@ -0,0 +1,452 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.freqserver.test.standin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.interoud.freqserver.test.client.WireProtocol;
+import com.interoud.freqserver.test.codec.ResponseCodec;
+import com.interoud.freqserver.test.codec.ResponseCodecs;
+import com.interoud.freqserver.test.parser.Error;
+import com.interoud.freqserver.test.parser.FreqServerResponse;
+import com.interoud.freqserver.test.parser.Result;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded stand-in for the freq_server Web Service, with the same operations
+ * and error semantics, for running the client and the load harness on a
+ * single machine. It keeps all its state in memory and answers as fast as it
+ * can, so it is not a substitute for the real server when measuring it.
+ *
+ * Responses are encoded in any of the formats of {@link ResponseCodecs},
+ * chosen through the Accept header of the request, XML by default. The
+ * binary protocol of {@link WireProtocol} is served on a port of its own,
+ * see {@link #startWire(int)}.
+ */
+@SuppressWarnings("restriction")
+public class FreqServerStandIn {
+
+    public static final String CONTEXT = "/freq_server/";
+    public static final int DEFAULT_FREQUENCIES = 10000;
+    public static final int DEFAULT_THREADS = 16;
+    public static final int MAX_BATCH = 10000;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final int frequencies;
+
+    private final List<ResponseCodec> codecs = ResponseCodecs.getCodecs();
+
+    /*
+     * Binary protocol listener, one thread per connection
+     */
+    private volatile ServerSocket wireServer;
+
+    private final ExecutorService wireExecutor = Executors
+            .newCachedThreadPool();
+
+    private final Set<Socket> wireConnections = Collections
+            .synchronizedSet(new HashSet<Socket>());
+
+    /*
+     * State of the simulated server, guarded by this object's lock
+     */
+    private boolean running;
+
+    private final BitSet allocated = new BitSet();
+
+    public FreqServerStandIn(int port) throws IOException {
+        this(port, DEFAULT_FREQUENCIES, DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates the stand-in, which does not listen until {@link #start()} is
+     * called.
+     *
+     * @param port
+     *            port to listen on, 0 for any free port.
+     * @param frequencies
+     *            number of frequencies available, numbered from 1.
+     * @param threads
+     *            number of threads serving requests.
+     */
+    public FreqServerStandIn(int port, int frequencies, int threads)
+            throws IOException {
+        this.frequencies = frequencies;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext(CONTEXT, new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String operation = exchange.getRequestURI().getPath()
+                        .substring(CONTEXT.length());
+                String body = readBody(exchange.getRequestBody());
+                if (isBatch(operation)) {
+                    respond(exchange, null, processBatch(operation, body));
+                } else {
+                    respond(exchange, process(operation, body), null);
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+
+        ServerSocket listener = wireServer;
+        if (listener != null) {
+            close(listener);
+        }
+        synchronized (wireConnections) {
+            for (Socket connection : wireConnections) {
+                close(connection);
+            }
+        }
+        wireExecutor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts serving the binary protocol, besides HTTP.
+     *
+     * @param port
+     *            port to listen on, 0 for any free port.
+     * @return the port it listens on.
+     */
+    public synchronized int startWire(int port) throws IOException {
+        if (wireServer != null) {
+            throw new IllegalStateException("Already serving the binary protocol");
+        }
+        final ServerSocket listener = new ServerSocket(port);
+        wireServer = listener;
+        wireExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket connection = listener.accept();
+                        wireConnections.add(connection);
+                        wireExecutor.execute(new Runnable() {
+                            public void run() {
+                                serveWire(connection);
+                            }
+                        });
+                    }
+                } catch (IOException ioe) {
+                    // Closed by stop()
+                }
+            }
+        });
+        return listener.getLocalPort();
+    }
+
+    /**
+     * @return the port of the binary protocol, or -1 if it is not served.
+     */
+    public int getWirePort() {
+        ServerSocket listener = wireServer;
+        return (listener != null) ? listener.getLocalPort() : -1;
+    }
+
+    /**
+     * Url to give to the client, ending with a slash.
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + CONTEXT;
+    }
+
+    /* =========================================================================
+     * Operations
+     * =======================================================================*/
+    synchronized FreqServerResponse process(String operation, String body) {
+        if ("StartServer".equals(operation)) {
+            if (running) {
+                return error("ALREADY_STARTED", "The server is already running");
+            }
+            running = true;
+            allocated.clear();
+            return ok(null);
+        }
+
+        if ("StopServer".equals(operation)) {
+            if (!running) {
+                return error("NOT_RUNNING", "The server is not running");
+            }
+            running = false;
+            return ok(null);
+        }
+
+        if ("AllocateFrequency".equals(operation)) {
+            if (!running) {
+                return error("NOT_RUNNING", "The server is not running");
+            }
+            int frequency = allocated.nextClearBit(1);
+            if (frequency > frequencies) {
+                return error("NO_FREQUENCIES_AVAILABLE",
+                        "All the frequencies are allocated");
+            }
+            allocated.set(frequency);
+            return ok(Integer.valueOf(frequency));
+        }
+
+        if ("DeallocateFrequency".equals(operation)) {
+            if (!running) {
+                return error("NOT_RUNNING", "The server is not running");
+            }
+            int frequency;
+            try {
+                frequency = Integer.parseInt(body.trim());
+            } catch (NumberFormatException nfe) {
+                return error("WRONG_REQUEST", "Not a frequency: " + body);
+            }
+            if (frequency < 1 || !allocated.get(frequency)) {
+                return error("NOT_ALLOCATED", "Frequency " + frequency
+                        + " is not allocated");
+            }
+            allocated.clear(frequency);
+            return ok(null);
+        }
+
+        return error("WRONG_REQUEST", "Unknown operation: " + operation);
+    }
+
+    private static boolean isBatch(String operation) {
+        return "AllocateFrequencies".equals(operation)
+                || "DeallocateFrequencies".equals(operation);
+    }
+
+    /**
+     * Batch operations: AllocateFrequencies takes the number of frequencies
+     * to allocate, DeallocateFrequencies a list of frequencies separated by
+     * commas or whitespace. There is a response for each frequency, as if
+     * they had been requested one by one, or a single WRONG_REQUEST one if
+     * the request is malformed.
+     */
+    synchronized List<FreqServerResponse> processBatch(String operation,
+            String body) {
+        List<FreqServerResponse> responses = new ArrayList<FreqServerResponse>();
+
+        if ("AllocateFrequencies".equals(operation)) {
+            int count;
+            try {
+                count = Integer.parseInt(body.trim());
+            } catch (NumberFormatException nfe) {
+                count = -1;
+            }
+            if (count < 1 || count > MAX_BATCH) {
+                responses.add(error("WRONG_REQUEST", "Not a batch size: "
+                        + body));
+                return responses;
+            }
+            for (int i = 0; i < count; i++) {
+                responses.add(process("AllocateFrequency", null));
+            }
+            return responses;
+        }
+
+        String[] frequencies = body.trim().split("[,\\s]+");
+        if (frequencies.length > MAX_BATCH || frequencies[0].length() == 0) {
+            responses.add(error("WRONG_REQUEST", "Not a batch of frequencies"));
+            return responses;
+        }
+        for (String frequency : frequencies) {
+            responses.add(process("DeallocateFrequency", frequency));
+        }
+        return responses;
+    }
+
+    /* =========================================================================
+     * Binary protocol
+     * =======================================================================*/
+    private void serveWire(Socket connection) {
+        try {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(connection.getOutputStream()));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+
+            while (true) {
+                DataInputStream frame;
+                try {
+                    frame = WireProtocol.readFrame(in);
+                } catch (EOFException eofe) {
+                    break;
+                }
+
+                byte opcode = frame.readByte();
+                String operation;
+                String body = "";
+                switch (opcode) {
+                case WireProtocol.START_SERVER:
+                    operation = "StartServer";
+                    break;
+                case WireProtocol.STOP_SERVER:
+                    operation = "StopServer";
+                    break;
+                case WireProtocol.ALLOCATE_FREQUENCY:
+                    operation = "AllocateFrequency";
+                    break;
+                case WireProtocol.DEALLOCATE_FREQUENCY:
+                    operation = "DeallocateFrequency";
+                    if (frame.available() >= 4) {
+                        body = Integer.toString(frame.readInt());
+                    }
+                    break;
+                default:
+                    operation = "Opcode " + opcode;
+                }
+
+                WireProtocol.writeResponse(out, process(operation, body),
+                        buffer);
+                out.flush();
+            }
+        } catch (IOException ioe) {
+            // Broken connection, or closed by stop()
+        } finally {
+            wireConnections.remove(connection);
+            close(connection);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ioe) {
+            // Nothing else to do
+        }
+    }
+
+    /* =========================================================================
+     * Responses
+     * =======================================================================*/
+    private static FreqServerResponse ok(Integer frequency) {
+        FreqServerResponse response = new FreqServerResponse();
+        response.setState("OK");
+        response.setResult(new Result());
+        response.getResult().setFrequencyAllocated(frequency);
+        return response;
+    }
+
+    private static FreqServerResponse error(String type, String description) {
+        FreqServerResponse response = new FreqServerResponse();
+        response.setState("ERROR");
+        response.setResult(new Result());
+        Error error = new Error();
+        error.setErrorType(type);
+        error.setErrorDescription(description);
+        response.getError().add(error);
+        return response;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return body.toString("UTF-8");
+    }
+
+    /*
+     * Requests that accept none of the formats get the default one, like they
+     * would from a server that does not negotiate
+     */
+    private void respond(HttpExchange exchange, FreqServerResponse response,
+            List<FreqServerResponse> batch) throws IOException {
+        ResponseCodec codec = ResponseCodecs.negotiate(exchange
+                .getRequestHeaders().getFirst("Accept"), codecs);
+        if (codec == null) {
+            codec = codecs.get(0);
+        }
+        byte[] bytes = (batch != null) ? codec.encodeBatch(batch) : codec
+                .encode(response);
+        exchange.getResponseHeaders().set("Content-Type",
+                codec.getContentType());
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /**
+     * Usage: FreqServerStandIn [port] [binary protocol port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+        FreqServerStandIn standIn = new FreqServerStandIn(port);
+        standIn.start();
+        System.out.println("Stand-in listening at " + standIn.getBaseUrl());
+        if (args.length > 1) {
+            standIn.startWire(Integer.parseInt(args[1]));
+            System.out.println("Binary protocol on port "
+                    + standIn.getWirePort());
+        }
+    }
+
+}
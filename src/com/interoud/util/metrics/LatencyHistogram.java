@@ -0,0 +1,229 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.metrics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values (typically latencies in
+ * microseconds). Values are grouped in log-linear buckets: every power of two
+ * is split in {@link #SUB_BUCKETS} buckets, so the relative error of the
+ * reported percentiles is bounded by 1/SUB_BUCKETS regardless of the
+ * magnitude of the values.
+ *
+ * Histograms with the same layout can be merged, which makes them suitable
+ * for aggregating measurements taken by several threads or processes.
+ */
+public class LatencyHistogram {
+
+    public static final int SUB_BUCKET_BITS = 5;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + subBucket - SUB_BUCKETS;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return (n == 0) ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, rounded up to the upper bound of its bucket (and never
+     * above the maximum recorded value).
+     *
+     * @param percentile
+     *            percentile in the range [0, 100].
+     * @return the value, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Adds all the values recorded in another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+
+        long otherMax = other.max.get();
+        long currentMax = max.get();
+        while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Writes the histogram in a compact form, listing only its non empty
+     * buckets, so that it can be sent to another process and merged there.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                used++;
+            }
+        }
+
+        out.writeShort(used);
+        for (int i = 0; i < BUCKETS && used > 0; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                out.writeShort(i);
+                out.writeLong(bucketCount);
+                used--;
+            }
+        }
+        out.writeLong(count.get());
+        out.writeLong(sum.get());
+        out.writeLong(max.get());
+    }
+
+    /**
+     * Reads a histogram written by {@link #writeTo(DataOutput)}.
+     */
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int used = in.readShort();
+        for (int i = 0; i < used; i++) {
+            int index = in.readShort();
+            if (index < 0 || index >= BUCKETS) {
+                throw new IOException("Wrong histogram bucket " + index);
+            }
+            histogram.counts.set(index, in.readLong());
+        }
+        histogram.count.set(in.readLong());
+        histogram.sum.set(in.readLong());
+        histogram.max.set(in.readLong());
+        return histogram;
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently with a reset
+     * may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+}
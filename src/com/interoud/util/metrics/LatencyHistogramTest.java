@@ -0,0 +1,119 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        long[] values = new long[] {
+            0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, Long.MAX_VALUE
+        };
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            Assert.assertTrue(index < LatencyHistogram.BUCKETS);
+            Assert.assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                Assert.assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        assertWithin(500, histogram.getValueAtPercentile(50));
+        assertWithin(990, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 500; i++) {
+            first.record(i);
+            second.record(500 + i);
+        }
+
+        first.add(second);
+
+        Assert.assertEquals(1000, first.getCount());
+        Assert.assertEquals(1000, first.getMax());
+        assertWithin(500, first.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(i * i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.writeTo(new DataOutputStream(bytes));
+        LatencyHistogram read = LatencyHistogram.readFrom(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(histogram.getCount(), read.getCount());
+        Assert.assertEquals(histogram.getSum(), read.getSum());
+        Assert.assertEquals(histogram.getMax(), read.getMax());
+        Assert.assertEquals(histogram.getValueAtPercentile(99),
+                read.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        Assert.assertTrue("Expected " + expected + " but was " + actual,
+                error <= 1.0 / LatencyHistogram.SUB_BUCKETS);
+    }
+
+}
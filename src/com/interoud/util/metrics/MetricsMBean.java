@@ -0,0 +1,182 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the metrics of a {@link MetricsRegistry} as read-only attributes of
+ * a JMX MBean. There is one attribute per counter and gauge series, named
+ * after the metric and its labels (e.g. "requests_total{method=GET}"), and
+ * one attribute per histogram series and statistic (count, mean, max and the
+ * registry quantiles, e.g. "duration{method=GET}.p99").
+ *
+ * Attributes are computed on every read, so series created after the
+ * registration show up without registering again.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.interoud:type=Metrics";
+
+    private final MetricsRegistry registry;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers the metrics of the registry in the platform MBean server.
+     */
+    public static ObjectName register(MetricsRegistry registry,
+            String objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+        server.registerMBean(new MetricsMBean(registry), name);
+        return name;
+    }
+
+    private Map<String, Number> getValues() {
+        Map<String, Number> values = new LinkedHashMap<String, Number>();
+
+        for (MetricsRegistry.Family<?> family : registry.getFamilies()) {
+            for (Map.Entry<List<String>, ?> series : family.getSeries()) {
+                String name = getName(family, series.getKey());
+                Object metric = series.getValue();
+                if (metric instanceof MetricsRegistry.Counter) {
+                    values.put(name, ((MetricsRegistry.Counter) metric).get());
+                } else if (metric instanceof MetricsRegistry.CounterSource) {
+                    values.put(name, ((MetricsRegistry.CounterSource) metric)
+                            .getCount());
+                } else if (metric instanceof MetricsRegistry.Gauge) {
+                    values.put(name, ((MetricsRegistry.Gauge) metric).getValue());
+                } else {
+                    LatencyHistogram histogram = (LatencyHistogram) metric;
+                    values.put(name + ".count", histogram.getCount());
+                    values.put(name + ".mean", histogram.getMean());
+                    values.put(name + ".max", histogram.getMax());
+                    for (double quantile : MetricsRegistry.QUANTILES) {
+                        values.put(name + ".p" + Double.toString(quantile * 100)
+                                .replaceAll("\\.0$", ""), histogram
+                                .getValueAtPercentile(quantile * 100));
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    private static String getName(MetricsRegistry.Family<?> family,
+            List<String> labelValues) {
+        List<String> labelNames = family.getLabelNames();
+        if (labelNames.isEmpty()) {
+            return family.getName();
+        }
+        StringBuilder name = new StringBuilder(family.getName()).append('{');
+        for (int i = 0; i < labelNames.size(); i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(labelNames.get(i)).append('=')
+                    .append(labelValues.get(i));
+        }
+        return name.append('}').toString();
+    }
+
+    public Object getAttribute(String attribute)
+            throws AttributeNotFoundException {
+        Number value = getValues().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> values = getValues();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = values.get(attribute);
+            if (value != null) {
+                result.add(new Attribute(attribute, value));
+            }
+        }
+        return result;
+    }
+
+    public void setAttribute(Attribute attribute)
+            throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature)
+            throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName),
+                "Metrics have no operations");
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (Map.Entry<String, Number> value : getValues().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(value.getKey(), value
+                    .getValue().getClass().getName(), value.getKey(), true,
+                    false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Client metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+    }
+
+}
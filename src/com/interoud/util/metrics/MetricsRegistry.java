@@ -0,0 +1,403 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.metrics;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of named metrics: counters, latency histograms and gauges.
+ * Counts kept elsewhere are exported as counters through a
+ * {@link CounterSource}, so they are not mistaken for gauges. Each
+ * metric is a family of series distinguished by the values of its labels, in
+ * the same way Prometheus models them.
+ *
+ * Counters are backed by striped {@link LongAdder}s and histograms by
+ * {@link LatencyHistogram}s, so recording never blocks. Looking up a series
+ * by its label values costs a hash map lookup, callers on hot paths with
+ * fixed labels should keep the series they get.
+ */
+public class MetricsRegistry {
+
+    public static final double[] QUANTILES = new double[] {
+        0.5, 0.9, 0.99, 0.999
+    };
+
+    public interface Gauge {
+
+        double getValue();
+
+    }
+
+    /**
+     * Count kept elsewhere, read when the metrics are exported. It must never
+     * decrease.
+     */
+    public interface CounterSource {
+
+        long getCount();
+
+    }
+
+    public static class Counter {
+
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long value) {
+            adder.add(value);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+
+    }
+
+    /*
+     * Label values of a series, compared by content
+     */
+    private static final class LabelValues {
+
+        final String[] values;
+
+        private final int hash;
+
+        LabelValues(String[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object other) {
+            return (other instanceof LabelValues)
+                    && Arrays.equals(values, ((LabelValues) other).values);
+        }
+
+    }
+
+    /**
+     * Metric with a name and a set of labels, whose series are created on
+     * first use.
+     */
+    public abstract static class Family<T> {
+
+        private final String name;
+
+        private final String help;
+
+        final String[] labelNames;
+
+        private final ConcurrentMap<LabelValues, T> series =
+                new ConcurrentHashMap<LabelValues, T>();
+
+        Family(String name, String help, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames.clone();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public List<String> getLabelNames() {
+            return Collections.unmodifiableList(Arrays.asList(labelNames));
+        }
+
+        /**
+         * Returns the series with the given label values, in the same order as
+         * the label names, creating it if needed.
+         */
+        public T labels(String... values) {
+            if (values.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects "
+                        + labelNames.length + " label values");
+            }
+            LabelValues key = new LabelValues(values);
+            T value = series.get(key);
+            if (value == null) {
+                value = create();
+                T existing = series.putIfAbsent(new LabelValues(values.clone()),
+                        value);
+                if (existing != null) {
+                    value = existing;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Label values of every series created so far, and the series.
+         */
+        public List<Map.Entry<List<String>, T>> getSeries() {
+            List<Map.Entry<List<String>, T>> result =
+                    new ArrayList<Map.Entry<List<String>, T>>();
+            for (Map.Entry<LabelValues, T> entry : series.entrySet()) {
+                result.add(new AbstractMap.SimpleImmutableEntry<List<String>, T>(
+                        Arrays.asList(entry.getKey().values), entry.getValue()));
+            }
+            return result;
+        }
+
+        abstract T create();
+
+    }
+
+    public static class CounterFamily extends Family<Counter> {
+
+        CounterFamily(String name, String help, String[] labelNames) {
+            super(name, help, labelNames);
+        }
+
+        Counter create() {
+            return new Counter();
+        }
+
+    }
+
+    public static class HistogramFamily extends Family<LatencyHistogram> {
+
+        HistogramFamily(String name, String help, String[] labelNames) {
+            super(name, help, labelNames);
+        }
+
+        LatencyHistogram create() {
+            return new LatencyHistogram();
+        }
+
+    }
+
+    public static class GaugeFamily extends Family<Gauge> {
+
+        private final Gauge gauge;
+
+        GaugeFamily(String name, String help, Gauge gauge) {
+            super(name, help, new String[0]);
+            this.gauge = gauge;
+        }
+
+        Gauge create() {
+            return gauge;
+        }
+
+    }
+
+    public static class CounterSourceFamily extends Family<CounterSource> {
+
+        private final CounterSource source;
+
+        CounterSourceFamily(String name, String help, CounterSource source) {
+            super(name, help, new String[0]);
+            this.source = source;
+        }
+
+        CounterSource create() {
+            return source;
+        }
+
+    }
+
+    private final ConcurrentMap<String, Family<?>> families =
+            new ConcurrentHashMap<String, Family<?>>();
+
+    /*
+     * Registration order, used when exporting
+     */
+    private final List<Family<?>> ordered = new CopyOnWriteArrayList<Family<?>>();
+
+    private <F extends Family<?>> F register(F family, Class<F> type) {
+        Family<?> existing = families.putIfAbsent(family.getName(), family);
+        if (existing == null) {
+            ordered.add(family);
+            return family;
+        }
+        if (!type.isInstance(existing)
+                || !Arrays.equals(existing.labelNames, family.labelNames)) {
+            throw new IllegalArgumentException("Metric " + family.getName()
+                    + " is already registered with a different definition");
+        }
+        return type.cast(existing);
+    }
+
+    /**
+     * Registers a counter, or returns the existing one with the same name.
+     */
+    public CounterFamily counter(String name, String help,
+            String... labelNames) {
+        return register(new CounterFamily(name, help, labelNames),
+                CounterFamily.class);
+    }
+
+    /**
+     * Registers a counter without labels whose count is kept elsewhere, and
+     * read when the metrics are exported.
+     */
+    public void counter(String name, String help, CounterSource source) {
+        CounterSourceFamily family = register(new CounterSourceFamily(name,
+                help, source), CounterSourceFamily.class);
+        family.labels();
+    }
+
+    /**
+     * Registers a histogram, or returns the existing one with the same name.
+     * Values are expected in microseconds.
+     */
+    public HistogramFamily histogram(String name, String help,
+            String... labelNames) {
+        return register(new HistogramFamily(name, help, labelNames),
+                HistogramFamily.class);
+    }
+
+    /**
+     * Registers a gauge without labels, whose value is read when the metrics
+     * are exported.
+     */
+    public void gauge(String name, String help, Gauge gauge) {
+        GaugeFamily family = register(new GaugeFamily(name, help, gauge),
+                GaugeFamily.class);
+        family.labels();
+    }
+
+    public Collection<Family<?>> getFamilies() {
+        return Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     * Histograms are written as summaries with the {@link #QUANTILES}.
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Family<?> family : ordered) {
+            String type = (family instanceof CounterFamily
+                    || family instanceof CounterSourceFamily) ? "counter"
+                    : (family instanceof HistogramFamily) ? "summary" : "gauge";
+            out.append("# HELP ").append(family.getName()).append(' ')
+                    .append(escapeHelp(family.getHelp())).append('\n');
+            out.append("# TYPE ").append(family.getName()).append(' ')
+                    .append(type).append('\n');
+
+            for (Map.Entry<List<String>, ?> series : family.getSeries()) {
+                List<String> values = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Counter) {
+                    writeSample(out, family.getName(), family.labelNames,
+                            values, null, null,
+                            Long.toString(((Counter) metric).get()));
+                } else if (metric instanceof CounterSource) {
+                    writeSample(out, family.getName(), family.labelNames,
+                            values, null, null, Long.toString(
+                                    ((CounterSource) metric).getCount()));
+                } else if (metric instanceof Gauge) {
+                    writeSample(out, family.getName(), family.labelNames,
+                            values, null, null,
+                            Double.toString(((Gauge) metric).getValue()));
+                } else {
+                    LatencyHistogram histogram = (LatencyHistogram) metric;
+                    for (double quantile : QUANTILES) {
+                        writeSample(out, family.getName(), family.labelNames,
+                                values, "quantile", Double.toString(quantile),
+                                Long.toString(histogram
+                                        .getValueAtPercentile(quantile * 100)));
+                    }
+                    writeSample(out, family.getName() + "_sum",
+                            family.labelNames, values, null, null,
+                            Long.toString(histogram.getSum()));
+                    writeSample(out, family.getName() + "_count",
+                            family.labelNames, values, null, null,
+                            Long.toString(histogram.getCount()));
+                }
+            }
+        }
+    }
+
+    private static void writeSample(Appendable out, String name,
+            String[] labelNames, List<String> labelValues, String extraName,
+            String extraValue, String value) throws IOException {
+
+        out.append(name);
+        if (labelNames.length > 0 || extraName != null) {
+            out.append('{');
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(labelNames[i]).append("=\"")
+                        .append(escapeLabel(labelValues.get(i))).append('"');
+            }
+            if (extraName != null) {
+                if (labelNames.length > 0) {
+                    out.append(',');
+                }
+                out.append(extraName).append("=\"").append(extraValue)
+                        .append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String escapeLabel(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+}
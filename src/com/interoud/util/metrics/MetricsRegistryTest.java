@@ -0,0 +1,115 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.ReflectionException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testPrometheus() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests_total", "Requests sent", "path").labels(
+                "/a\"b\\c\nd").add(3);
+        registry.histogram("duration_microseconds", "Duration\nof requests",
+                "path").labels("/x").record(100);
+        registry.gauge("pool_available", "Idle buffers",
+                new MetricsRegistry.Gauge() {
+                    public double getValue() {
+                        return 2;
+                    }
+                });
+        registry.counter("pool_hits_total", "Buffers taken",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        return 7;
+                    }
+                });
+
+        StringBuilder text = new StringBuilder();
+        registry.writePrometheus(text);
+        List<String> lines = Arrays.asList(text.toString().split("\n"));
+
+        Assert.assertTrue(lines.contains("# HELP requests_total Requests sent"));
+        Assert.assertTrue(lines.contains("# TYPE requests_total counter"));
+        Assert.assertTrue(lines
+                .contains("requests_total{path=\"/a\\\"b\\\\c\\nd\"} 3"));
+
+        Assert.assertTrue(lines
+                .contains("# HELP duration_microseconds Duration\\nof requests"));
+        Assert.assertTrue(lines
+                .contains("# TYPE duration_microseconds summary"));
+        Assert.assertTrue(lines
+                .contains("duration_microseconds_count{path=\"/x\"} 1"));
+        Assert.assertTrue(lines
+                .contains("duration_microseconds_sum{path=\"/x\"} 100"));
+        Assert.assertTrue(text.indexOf(
+                "duration_microseconds{path=\"/x\",quantile=\"0.99\"} ") >= 0);
+
+        Assert.assertTrue(lines.contains("# TYPE pool_available gauge"));
+        Assert.assertTrue(lines.contains("pool_available 2.0"));
+
+        Assert.assertTrue(lines.contains("# TYPE pool_hits_total counter"));
+        Assert.assertTrue(lines.contains("pool_hits_total 7"));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("pool_hits_total", "Buffers taken",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        return 7;
+                    }
+                });
+        MetricsMBean bean = new MetricsMBean(registry);
+        Assert.assertEquals(Long.valueOf(7), bean
+                .getAttribute("pool_hits_total"));
+        try {
+            bean.invoke("reset", new Object[0], new String[0]);
+            Assert.fail();
+        } catch (ReflectionException re) {
+            Assert.assertTrue(re.getTargetException()
+                    instanceof NoSuchMethodException);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Timeouts derived from the latencies observed for each endpoint (host and
+ * port). The latencies of the successful requests are collected in windows of
+ * a fixed duration, and when a window closes the timeout of the endpoint
+ * becomes a multiple of its 99th percentile, clamped between a floor and a
+ * ceiling. The ceiling is used until the first window with enough samples
+ * closes.
+ *
+ * Requests that time out leave no latency, so a window with timeouts, or
+ * without enough samples, doubles the timeout instead (up to the ceiling):
+ * otherwise a timeout that became too short would keep every request from
+ * succeeding, and from ever raising it again.
+ *
+ * The timeout is a deadline for the whole request (connecting, writing the
+ * body and reading the response), enforced by disconnecting the request when
+ * it expires.
+ */
+public class AdaptiveTimeouts {
+
+    public static final double DEFAULT_PERCENTILE = 99.0;
+    public static final double DEFAULT_MULTIPLIER = 3.0;
+    public static final long DEFAULT_WINDOW_MILLIS = 10000;
+    public static final int MIN_SAMPLES = 50;
+
+    private static class EndpointStats {
+
+        private volatile LatencyHistogram current = new LatencyHistogram();
+
+        private volatile AtomicInteger currentTimeouts = new AtomicInteger();
+
+        private volatile AtomicInteger currentFailures = new AtomicInteger();
+
+        private volatile int timeouts;
+
+        private volatile int failures;
+
+        private volatile long windowEnd;
+
+        private volatile long percentileMicros = -1;
+
+        private volatile int timeoutMillis;
+
+    }
+
+    /**
+     * Disconnects a request when its deadline expires.
+     */
+    static class Deadline implements Runnable {
+
+        private final HttpURLConnection connection;
+
+        private final int timeoutMillis;
+
+        private volatile boolean expired;
+
+        private ScheduledFuture<?> future;
+
+        Deadline(HttpURLConnection connection, int timeoutMillis) {
+            this.connection = connection;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public void run() {
+            expired = true;
+            connection.disconnect();
+        }
+
+        int getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        boolean isExpired() {
+            return expired;
+        }
+
+        void cancel() {
+            future.cancel(false);
+        }
+
+    }
+
+    private static final ScheduledThreadPoolExecutor scheduler;
+    static {
+        scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "http-deadlines");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    private final double percentile;
+
+    private final double multiplier;
+
+    private final int floorMillis;
+
+    private final int ceilingMillis;
+
+    private final long windowMillis;
+
+    private final ConcurrentMap<String, EndpointStats> endpoints =
+            new ConcurrentHashMap<String, EndpointStats>();
+
+    public AdaptiveTimeouts(int floorMillis, int ceilingMillis) {
+        this(DEFAULT_PERCENTILE, DEFAULT_MULTIPLIER, floorMillis,
+                ceilingMillis, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param percentile
+     *            percentile of the latencies the timeouts are based on.
+     * @param multiplier
+     *            factor applied to that percentile.
+     * @param floorMillis
+     *            minimum timeout.
+     * @param ceilingMillis
+     *            maximum timeout, also used while there are not enough
+     *            samples.
+     * @param windowMillis
+     *            duration of the windows in which latencies are collected.
+     */
+    public AdaptiveTimeouts(double percentile, double multiplier,
+            int floorMillis, int ceilingMillis, long windowMillis) {
+        if (floorMillis <= 0 || ceilingMillis < floorMillis) {
+            throw new IllegalArgumentException("Invalid timeout bounds");
+        }
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.floorMillis = floorMillis;
+        this.ceilingMillis = ceilingMillis;
+        this.windowMillis = windowMillis;
+    }
+
+    private EndpointStats getStats(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = new EndpointStats();
+            stats.windowEnd = System.currentTimeMillis() + windowMillis;
+            stats.timeoutMillis = ceilingMillis;
+            EndpointStats existing = endpoints.putIfAbsent(endpoint, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Current timeout for requests to the endpoint of the url.
+     */
+    public int getTimeoutMillis(URL url) {
+        return getTimeoutMillis(url.getAuthority());
+    }
+
+    /**
+     * Current timeout for requests to an endpoint, given as "host:port".
+     */
+    public int getTimeoutMillis(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return (stats != null) ? stats.timeoutMillis : ceilingMillis;
+    }
+
+    /**
+     * Percentile of the latencies of the endpoint in the last complete window,
+     * in microseconds, or -1 if no window had enough samples yet.
+     */
+    public long getPercentileMicros(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return (stats != null) ? stats.percentileMicros : -1;
+    }
+
+    /**
+     * Requests to the endpoint that timed out in the last complete window.
+     */
+    public int getTimeouts(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return (stats != null) ? stats.timeouts : 0;
+    }
+
+    /**
+     * Requests to the endpoint that failed otherwise in the last complete
+     * window.
+     */
+    public int getFailures(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return (stats != null) ? stats.failures : 0;
+    }
+
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(endpoints.keySet());
+    }
+
+    /**
+     * Records the latency of a successful request.
+     */
+    public void record(URL url, long elapsedNanos) {
+        EndpointStats stats = getStats(url.getAuthority());
+        stats.current.record(elapsedNanos / 1000);
+
+        long now = System.currentTimeMillis();
+        if (now >= stats.windowEnd) {
+            closeWindow(stats, now);
+        }
+    }
+
+    /**
+     * Records a failed request.
+     *
+     * @param timedOut
+     *            whether it failed because it took too long.
+     */
+    public void recordFailure(URL url, boolean timedOut) {
+        EndpointStats stats = getStats(url.getAuthority());
+        if (timedOut) {
+            stats.currentTimeouts.incrementAndGet();
+        } else {
+            stats.currentFailures.incrementAndGet();
+        }
+
+        long now = System.currentTimeMillis();
+        if (now >= stats.windowEnd) {
+            closeWindow(stats, now);
+        }
+    }
+
+    private void closeWindow(EndpointStats stats, long now) {
+        LatencyHistogram closed;
+        int timeouts;
+        synchronized (stats) {
+            if (now < stats.windowEnd) {
+                return;
+            }
+            closed = stats.current;
+            timeouts = stats.currentTimeouts.get();
+            stats.failures = stats.currentFailures.get();
+            stats.timeouts = timeouts;
+            stats.current = new LatencyHistogram();
+            stats.currentTimeouts = new AtomicInteger();
+            stats.currentFailures = new AtomicInteger();
+            stats.windowEnd = now + windowMillis;
+        }
+
+        long timeout = 0;
+        if (closed.getCount() >= MIN_SAMPLES) {
+            long value = closed.getValueAtPercentile(percentile);
+            timeout = (long) Math.ceil(value * multiplier / 1000.0);
+            stats.percentileMicros = value;
+        }
+        if (timeouts > 0 || closed.getCount() < MIN_SAMPLES) {
+            timeout = Math.max(timeout, 2L * stats.timeoutMillis);
+        }
+        stats.timeoutMillis = (int) Math.max(floorMillis,
+                Math.min(ceilingMillis, timeout));
+    }
+
+    /*
+     * Schedules the disconnection of the request when the timeout expires.
+     */
+    Deadline startDeadline(HttpURLConnection connection, int timeoutMillis) {
+        Deadline deadline = new Deadline(connection, timeoutMillis);
+        deadline.future = scheduler.schedule(deadline, timeoutMillis,
+                TimeUnit.MILLISECONDS);
+        return deadline;
+    }
+
+}
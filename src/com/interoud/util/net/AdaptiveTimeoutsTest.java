@@ -0,0 +1,92 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.net.URL;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class AdaptiveTimeoutsTest {
+
+    private static final long WINDOW_MILLIS = 20;
+
+    @Test
+    public void testRecovery() throws Exception {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(99.0, 3.0, 10, 1000,
+                WINDOW_MILLIS);
+        URL url = new URL("http://localhost:8080/freq_server/StartServer");
+        Assert.assertEquals(1000, timeouts.getTimeoutMillis(url));
+
+        // fast responses bring the timeout down
+        window(timeouts, url, 10);
+        Assert.assertEquals(30, timeouts.getTimeoutMillis(url));
+
+        // then the latency rises above it: every request times out, and
+        // each window of timeouts doubles the timeout
+        int previous = timeouts.getTimeoutMillis(url);
+        for (int i = 0; i < 10
+                && timeouts.getTimeoutMillis(url) < 1000; i++) {
+            Thread.sleep(WINDOW_MILLIS);
+            for (int j = 0; j < AdaptiveTimeouts.MIN_SAMPLES; j++) {
+                timeouts.recordFailure(url, true);
+            }
+            Assert.assertTrue(timeouts.getTimeoutMillis(url) > previous);
+            previous = timeouts.getTimeoutMillis(url);
+        }
+        Assert.assertEquals(1000, timeouts.getTimeoutMillis(url));
+        Assert.assertEquals(AdaptiveTimeouts.MIN_SAMPLES,
+                timeouts.getTimeouts(url.getAuthority()));
+
+        // until the requests succeed again and set it from their latency
+        window(timeouts, url, 200);
+        Assert.assertEquals(600, timeouts.getTimeoutMillis(url));
+        Assert.assertEquals(0, timeouts.getTimeouts(url.getAuthority()));
+    }
+
+    /*
+     * Fills a window with requests of the given latency and closes it
+     */
+    private static void window(AdaptiveTimeouts timeouts, URL url,
+            long latencyMillis) throws InterruptedException {
+        Thread.sleep(WINDOW_MILLIS);
+        timeouts.record(url, latencyMillis * 1000000);
+        for (int i = 0; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+            timeouts.record(url, latencyMillis * 1000000);
+        }
+        Thread.sleep(WINDOW_MILLIS);
+        timeouts.record(url, latencyMillis * 1000000);
+    }
+}
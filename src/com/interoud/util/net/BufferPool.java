@@ -0,0 +1,122 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe pool of byte buffers of a fixed size. Buffers that are
+ * not available in the pool are allocated on demand, and buffers returned when
+ * the pool is already full are left to the garbage collector.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong discarded = new AtomicLong();
+
+    public BufferPool(int bufferSize, int capacity) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Buffer size and capacity must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<byte[]>(capacity);
+    }
+
+    /**
+     * Borrows a buffer from the pool, allocating a new one if the pool is
+     * empty. The buffer should be given back with {@link #release(byte[])}.
+     *
+     * @return a buffer of exactly {@link #getBufferSize()} bytes.
+     */
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if (buffer != null) {
+            hits.incrementAndGet();
+            return buffer;
+        }
+        misses.incrementAndGet();
+        return new byte[bufferSize];
+    }
+
+    /**
+     * Gives a buffer back to the pool. Buffers of a different size than the
+     * pooled ones are ignored.
+     *
+     * @param buffer
+     *            buffer previously obtained with {@link #acquire()}.
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        if (!buffers.offer(buffer)) {
+            discarded.incrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getAvailable() {
+        return buffers.size();
+    }
+
+    public int getCapacity() {
+        return buffers.size() + buffers.remainingCapacity();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of requests in flight to each endpoint (host and port).
+ * When the limit is reached, requests wait in a bounded queue for a limited
+ * time, and are rejected with a {@link RequestRejectedException} if the queue
+ * is full or the time runs out. This way a slow server makes the client shed
+ * load instead of piling up threads and connections.
+ *
+ * The limit is either fixed or adapted with AIMD: it grows by one for every
+ * "limit" successful requests and it is cut by a factor when a request times
+ * out or cannot connect, within the given bounds. Other failures (such as a
+ * 404) say nothing about the load of the server and leave the limit as is.
+ * Like TCP does once per round trip, the limit is cut at most once per window:
+ * the requests in flight when it was cut have to complete before it is cut
+ * again, so a burst of failures of the same requests counts once.
+ */
+public class ConcurrencyLimiter {
+
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    public enum Mode {
+        FIXED, AIMD
+    }
+
+    /**
+     * State of the limit of one endpoint. All the fields are guarded by the
+     * object's lock, which is also used to wait for a free slot.
+     */
+    public class Limit {
+
+        private double limit;
+
+        private int inFlight;
+
+        private int queued;
+
+        private long admitted;
+
+        private long rejected;
+
+        private long completed;
+
+        /*
+         * Count of completed requests up to which the limit is not cut again
+         */
+        private long windowEnd;
+
+        private Limit(int initialLimit) {
+            this.limit = initialLimit;
+        }
+
+        private synchronized void acquire() throws IOException {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                admitted++;
+                return;
+            }
+
+            if (queued >= maxQueue) {
+                rejected++;
+                throw new RequestRejectedException("Too many requests in "
+                        + "flight (" + inFlight + ") and queued (" + queued
+                        + ")");
+            }
+
+            queued++;
+            try {
+                long deadline = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (inFlight >= (int) limit) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new RequestRejectedException("Timed out after "
+                                + maxWaitMillis + " ms waiting for one of "
+                                + inFlight + " requests in flight");
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                inFlight++;
+                admitted++;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting "
+                        + "for a request slot");
+            } finally {
+                queued--;
+            }
+        }
+
+        private synchronized void release(boolean failed, boolean overloaded) {
+            inFlight--;
+            completed++;
+            if (mode == Mode.AIMD) {
+                if (overloaded) {
+                    if (completed > windowEnd) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        windowEnd = completed + inFlight;
+                    }
+                } else if (!failed) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            notifyAll();
+        }
+
+        public synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        public synchronized int getInFlight() {
+            return inFlight;
+        }
+
+        public synchronized int getQueueDepth() {
+            return queued;
+        }
+
+        public synchronized long getAdmitted() {
+            return admitted;
+        }
+
+        public synchronized long getRejected() {
+            return rejected;
+        }
+
+    }
+
+    private final Mode mode;
+
+    private final int initialLimit;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final int maxQueue;
+
+    private final long maxWaitMillis;
+
+    private final ConcurrentMap<String, Limit> limits =
+            new ConcurrentHashMap<String, Limit>();
+
+    /**
+     * Creates a limiter with a fixed limit.
+     */
+    public ConcurrencyLimiter(int limit, int maxQueue, long maxWaitMillis) {
+        this(Mode.FIXED, limit, limit, limit, maxQueue, maxWaitMillis);
+    }
+
+    /**
+     * @param mode
+     *            whether the limit is fixed or adapted.
+     * @param initialLimit
+     *            limit of every endpoint until it is adapted.
+     * @param minLimit
+     *            lower bound of the adapted limit.
+     * @param maxLimit
+     *            upper bound of the adapted limit.
+     * @param maxQueue
+     *            maximum number of requests waiting for each endpoint, 0
+     *            rejects requests as soon as the limit is reached.
+     * @param maxWaitMillis
+     *            maximum time a request waits in the queue.
+     */
+    public ConcurrencyLimiter(Mode mode, int initialLimit, int minLimit,
+            int maxLimit, int maxQueue, long maxWaitMillis) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid limits");
+        }
+        this.mode = mode;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = DEFAULT_BACKOFF_RATIO;
+        this.maxQueue = maxQueue;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    private Limit getOrCreateLimit(String endpoint) {
+        Limit limit = limits.get(endpoint);
+        if (limit == null) {
+            limit = new Limit(initialLimit);
+            Limit existing = limits.putIfAbsent(endpoint, limit);
+            if (existing != null) {
+                limit = existing;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Waits for a free slot for a request to the endpoint of the url.
+     *
+     * @throws RequestRejectedException
+     *             if no slot becomes available in time.
+     */
+    public void acquire(URL url) throws IOException {
+        getOrCreateLimit(url.getAuthority()).acquire();
+    }
+
+    /**
+     * Frees the slot taken by a request.
+     *
+     * @param failed
+     *            whether the request failed.
+     * @param failure
+     *            the error of a failed request, null if it was not an
+     *            IOException. Timeouts and connection failures lower the limit
+     *            in AIMD mode.
+     */
+    public void release(URL url, boolean failed, IOException failure) {
+        getOrCreateLimit(url.getAuthority()).release(failed,
+                failure instanceof SocketTimeoutException
+                        || (failure != null && HTTPUtils
+                                .isConnectFailure(failure)));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(limits.keySet());
+    }
+
+    /**
+     * State of the limit of an endpoint, given as "host:port", or null if no
+     * request has been sent to it.
+     */
+    public Limit getLimitOf(String endpoint) {
+        return limits.get(endpoint);
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    private static final String ENDPOINT = "localhost:8080";
+
+    @Test
+    public void testIncrease() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+                ConcurrencyLimiter.Mode.AIMD, 2, 1, 10, 0, 0);
+        URL url = url();
+        for (int i = 0; i < 2; i++) {
+            limiter.acquire(url);
+            limiter.release(url, false, null);
+        }
+        ConcurrencyLimiter.Limit limit = limiter.getLimitOf(ENDPOINT);
+        Assert.assertEquals(2, limit.getLimit());
+
+        // one more per "limit" successes, up to the maximum
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(url);
+            limiter.release(url, false, null);
+        }
+        Assert.assertEquals(10, limit.getLimit());
+        Assert.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testDecrease() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+                ConcurrencyLimiter.Mode.AIMD, 10, 1, 10, 0, 0);
+        URL url = url();
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(url);
+        }
+        ConcurrencyLimiter.Limit limit = limiter.getLimitOf(ENDPOINT);
+
+        // client errors are no sign of overload
+        limiter.release(url, true, new FileNotFoundException(url.toString()));
+        limiter.release(url, true, null);
+        Assert.assertEquals(10, limit.getLimit());
+
+        // the requests in flight failing together cut the limit once
+        for (int i = 0; i < 8; i++) {
+            limiter.release(url, true, new SocketTimeoutException());
+        }
+        Assert.assertEquals(9, limit.getLimit());
+
+        // the next window cuts it again
+        limiter.acquire(url);
+        limiter.release(url, true, new ConnectException());
+        Assert.assertEquals(8, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(url);
+            limiter.release(url, true, new SocketTimeoutException());
+        }
+        Assert.assertEquals(1, limit.getLimit());
+    }
+
+    @Test
+    public void testRejection() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 20);
+        URL url = url();
+        limiter.acquire(url);
+        long start = System.nanoTime();
+        try {
+            limiter.acquire(url);
+            Assert.fail();
+        } catch (RequestRejectedException rre) {
+            // waited in the queue for the maximum time
+            Assert.assertTrue(System.nanoTime() - start >= 20000000);
+        }
+
+        ConcurrencyLimiter noQueue = new ConcurrencyLimiter(1, 0, 1000);
+        noQueue.acquire(url);
+        try {
+            noQueue.acquire(url);
+            Assert.fail();
+        } catch (RequestRejectedException rre) {
+            // rejected right away
+        }
+        Assert.assertEquals(1, noQueue.getLimitOf(ENDPOINT).getRejected());
+
+        limiter.release(url, false, null);
+        limiter.acquire(url);
+        ConcurrencyLimiter.Limit limit = limiter.getLimitOf(ENDPOINT);
+        Assert.assertEquals(2, limit.getAdmitted());
+        Assert.assertEquals(1, limit.getRejected());
+        Assert.assertEquals(1, limit.getLimit());
+    }
+
+    private static URL url() throws IOException {
+        return new URL("http://" + ENDPOINT + "/freq_server/StartServer");
+    }
+}
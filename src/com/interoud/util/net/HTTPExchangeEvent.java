@@ -0,0 +1,86 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted for every request sent by {@link HTTPUtils}.
+ * Its duration goes from the opening of the connection to the end of the
+ * response; the time spent waiting for permits or free slots is not
+ * included.
+ */
+@Name("com.interoud.util.net.HTTPExchange")
+@Label("HTTP Exchange")
+@Category({ "Interoud", "HTTP" })
+class HTTPExchangeEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Connect Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectTime;
+
+    @Label("Time To First Byte")
+    @Description("Time from the end of the request until the response headers are received")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToFirstByte;
+
+    @Label("Error")
+    String error;
+
+}
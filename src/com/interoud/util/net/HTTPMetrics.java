@@ -0,0 +1,154 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.net.URL;
+
+import com.interoud.util.metrics.LatencyHistogram;
+import com.interoud.util.metrics.MetricsRegistry;
+
+/**
+ * Metrics recorded by {@link HTTPUtils} once a registry is set.
+ */
+class HTTPMetrics {
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MetricsRegistry.CounterFamily requests;
+
+    private final MetricsRegistry.HistogramFamily duration;
+
+    HTTPMetrics(MetricsRegistry registry, final BufferPool pool) {
+
+        requests = registry.counter("http_client_requests_total",
+                "Requests sent, by outcome", "method", "host", "path",
+                "outcome");
+        duration = registry.histogram(
+                "http_client_request_duration_microseconds",
+                "Duration of the successful requests", "method", "host",
+                "path");
+
+        registry.counter("http_client_buffer_pool_hits_total",
+                "Read buffers taken from the pool",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        return pool.getHits();
+                    }
+                });
+        registry.counter("http_client_buffer_pool_misses_total",
+                "Read buffers allocated because the pool was empty",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        return pool.getMisses();
+                    }
+                });
+        registry.gauge("http_client_buffer_pool_available",
+                "Read buffers idle in the pool", new MetricsRegistry.Gauge() {
+                    public double getValue() {
+                        return pool.getAvailable();
+                    }
+                });
+        registry.counter("http_client_cache_hits_total",
+                "GET responses served from the cache without a request",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        ResponseCache cache = HTTPUtils.getResponseCache();
+                        return (cache != null) ? cache.getHits() : 0;
+                    }
+                });
+        registry.counter("http_client_cache_misses_total",
+                "GET responses fetched whole while the cache was enabled",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        ResponseCache cache = HTTPUtils.getResponseCache();
+                        return (cache != null) ? cache.getMisses() : 0;
+                    }
+                });
+        registry.counter("http_client_cache_revalidations_total",
+                "Cached GET responses confirmed by a 304 Not Modified",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        ResponseCache cache = HTTPUtils.getResponseCache();
+                        return (cache != null) ? cache.getRevalidations() : 0;
+                    }
+                });
+        registry.counter("http_client_cache_evictions_total",
+                "Responses evicted from the cache to stay within its size",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        ResponseCache cache = HTTPUtils.getResponseCache();
+                        return (cache != null) ? cache.getEvictions() : 0;
+                    }
+                });
+        registry.gauge("http_client_cache_bytes",
+                "Bytes held by the response cache", new MetricsRegistry.Gauge() {
+                    public double getValue() {
+                        ResponseCache cache = HTTPUtils.getResponseCache();
+                        return (cache != null) ? cache.getBytes() : 0;
+                    }
+                });
+        registry.counter("http_client_coalesced_requests_total",
+                "GET requests answered with the response of an identical "
+                        + "request in flight",
+                new MetricsRegistry.CounterSource() {
+                    public long getCount() {
+                        RequestCoalescer coalescer = HTTPUtils
+                                .getRequestCoalescer();
+                        return (coalescer != null) ? coalescer.getCoalesced()
+                                : 0;
+                    }
+                });
+        registry.gauge("http_client_buffer_pool_capacity",
+                "Maximum number of idle read buffers kept in the pool",
+                new MetricsRegistry.Gauge() {
+                    public double getValue() {
+                        return pool.getCapacity();
+                    }
+                });
+    }
+
+    void record(String method, URL url, boolean failed, long elapsedNanos) {
+        String host = url.getAuthority();
+        String path = url.getPath();
+
+        requests.labels(method, host, path, failed ? FAILURE : SUCCESS)
+                .increment();
+        if (!failed) {
+            LatencyHistogram histogram = duration.labels(method, host, path);
+            histogram.record(elapsedNanos / 1000);
+        }
+    }
+
+}
@@ -33,26 +33,39 @@
 */
 package com.interoud.util.net;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+
+import jdk.jfr.FlightRecorder;
+
+import com.interoud.util.metrics.MetricsRegistry;
 
 public class HTTPUtils {
 
     public static final String ENCODING = "UTF-8";
     public static final int INITIAL_BUFFER_SIZE = 1024;
     public static final int MAX_COOKIES = 4;
+    public static final int READ_BUFFER_SIZE = 8192;
+    public static final int MAX_POOLED_BUFFERS = 64;
+    public static final String XML_CONTENT_TYPE = "text/xml; charset=\""
+            + ENCODING + "\"";
 
     private static List<HTTPCookie> cookieJar;
     static {
@@ -60,32 +73,246 @@ public class HTTPUtils {
         cookieJar = Collections.synchronizedList(cookieJar);
     }
 
-    private static String getEncodedUrlWithParams(String url,
+    private static final BufferPool bufferPool = new BufferPool(
+            READ_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+    private static volatile RetryPolicy retryPolicy;
+
+    private static volatile HedgingPolicy hedgingPolicy;
+
+    private static volatile AdaptiveTimeouts adaptiveTimeouts;
+
+    private static volatile ConcurrencyLimiter concurrencyLimiter;
+
+    private static volatile RateLimiter rateLimiter;
+
+    private static volatile HTTPMetrics metrics;
+
+    private static volatile TrafficRecorder trafficRecorder;
+
+    private static volatile ResponseCache responseCache;
+
+    private static volatile RequestCoalescer requestCoalescer;
+
+    /**
+     * Pool of buffers used to read the responses. Exposed so that its hit and
+     * miss counters can be monitored.
+     */
+    public static BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the policy used to retry failed GET requests. Null (the default)
+     * disables retries.
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = policy;
+    }
+
+    public static RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy used to hedge slow GET requests. Null (the default)
+     * disables hedging.
+     */
+    public static void setHedgingPolicy(HedgingPolicy policy) {
+        hedgingPolicy = policy;
+    }
+
+    public static HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Enables the adaptive timeout mode: every request gets a deadline derived
+     * from the latencies of its endpoint, and the connect and read timeouts
+     * given by the caller are only used as upper bounds. Null (the default)
+     * disables it.
+     */
+    public static void setAdaptiveTimeouts(AdaptiveTimeouts timeouts) {
+        adaptiveTimeouts = timeouts;
+    }
+
+    public static AdaptiveTimeouts getAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    /**
+     * Sets the limiter of concurrent requests per endpoint. Null (the
+     * default) sends every request right away.
+     */
+    public static void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        concurrencyLimiter = limiter;
+    }
+
+    public static ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets the rate limiter shared by every request. Null (the default) does
+     * not limit the rate. Limits for single endpoints can be set on their
+     * {@link RequestTemplate}.
+     */
+    public static void setRateLimiter(RateLimiter limiter) {
+        rateLimiter = limiter;
+    }
+
+    public static RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Starts recording the requests (counts by method, endpoint and outcome,
+     * and latencies) and the usage of the buffer pool in the registry. Null
+     * (the default) stops recording.
+     */
+    public static void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = (registry != null) ? new HTTPMetrics(registry, bufferPool)
+                : null;
+    }
+
+    /**
+     * Starts appending every request to the trace log of the recorder. Null
+     * (the default) stops recording; the recorder is not closed.
+     */
+    public static void setTrafficRecorder(TrafficRecorder recorder) {
+        trafficRecorder = recorder;
+    }
+
+    public static TrafficRecorder getTrafficRecorder() {
+        return trafficRecorder;
+    }
+
+    /**
+     * Sets the cache of the responses to GET requests. Null (the default)
+     * sends every GET request to the server.
+     */
+    public static void setResponseCache(ResponseCache cache) {
+        responseCache = cache;
+    }
+
+    public static ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the coalescer letting concurrent identical GET requests share one
+     * request to the server. Null (the default) sends them all.
+     */
+    public static void setRequestCoalescer(RequestCoalescer coalescer) {
+        requestCoalescer = coalescer;
+    }
+
+    public static RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Executes an idempotent request applying the given policies: every
+     * attempt made by the retry policy is hedged on its own.
+     *
+     * @param retry
+     *            retry policy, can be null.
+     * @param hedging
+     *            hedging policy, can be null.
+     */
+    public static <T> T executeIdempotent(final HTTPCall<T> call,
+            RetryPolicy retry, final HedgingPolicy hedging) throws IOException {
+
+        HTTPCall<T> attempt = call;
+        if (hedging != null) {
+            attempt = new HTTPCall<T>() {
+                public T call() throws IOException {
+                    return hedging.execute(call);
+                }
+            };
+        }
+
+        return (retry != null) ? retry.execute(attempt) : attempt.call();
+    }
+
+    /*
+     * Appends the encoded parameters to the given buffer. The separator used
+     * before the first one depends on whether the buffer already contains a
+     * query string.
+     */
+    static void appendEncodedParams(StringBuilder url,
             Map<String, String[]> params) throws UnsupportedEncodingException {
 
-        boolean firstElem = true;
-        String encodedUrl = url;
-
-        if (params != null) {
-            for (String key : params.keySet()) {
-                String[] values = params.get(key);
-                if (values != null) {
-                    for (String value : values) {
-                        if (firstElem) {
-                            encodedUrl += "?";
-                            firstElem = false;
-                        } else {
-                            encodedUrl += "&";
-                        }
-                        encodedUrl += URLEncoder.encode(key, ENCODING) + "="
-                                + URLEncoder.encode(value, ENCODING);
+        if (params == null) {
+            return;
+        }
+
+        boolean firstElem = url.indexOf("?") == -1;
+        for (Map.Entry<String, String[]> entry : params.entrySet()) {
+            String[] values = entry.getValue();
+            if (values != null) {
+                String key = URLEncoder.encode(entry.getKey(), ENCODING);
+                for (String value : values) {
+                    if (firstElem) {
+                        url.append('?');
+                        firstElem = false;
+                    } else {
+                        url.append('&');
                     }
+                    url.append(key).append('=')
+                            .append(URLEncoder.encode(value, ENCODING));
                 }
             }
         }
+    }
 
-        return encodedUrl;
+    private static String getEncodedUrlWithParams(String url,
+            Map<String, String[]> params) throws UnsupportedEncodingException {
+
+        if (params == null || params.isEmpty()) {
+            return url;
+        }
+
+        StringBuilder encodedUrl = new StringBuilder(url);
+        appendEncodedParams(encodedUrl, params);
+        return encodedUrl.toString();
+
+    }
 
+    /*
+     * Flattens the headers into name/value pairs, adding the content type
+     * unless it is already among them.
+     */
+    static String[] toHeaderArray(Map<String, String> headers,
+            String contentType) {
+
+        int size = (headers != null) ? headers.size() : 0;
+        boolean addContentType = contentType != null
+                && (headers == null || !headers.containsKey("Content-Type"));
+        String[] result = new String[2 * (addContentType ? size + 1 : size)];
+
+        int i = 0;
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                result[i++] = entry.getKey();
+                result[i++] = entry.getValue();
+            }
+        }
+        if (addContentType) {
+            result[i++] = "Content-Type";
+            result[i++] = contentType;
+        }
+
+        return result;
+    }
+
+    private static boolean containsHeader(String[] headers, String name) {
+        for (int i = 0; i < headers.length; i += 2) {
+            if (headers[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static String doGet(String urlStr, Map<String, String[]> params,
@@ -109,138 +336,127 @@ public class HTTPUtils {
             Map<String, String> headers, Integer connectTimeout,
             Integer readTimeout) throws IOException {
 
-        /*
-         * URL
-         */
-        String encodedUrl = getEncodedUrlWithParams(urlStr, params);
-        URL url = new URL(encodedUrl);
+        URL url = new URL(getEncodedUrlWithParams(urlStr, params));
+        return executeGet(url, toHeaderArray(headers, null), connectTimeout,
+                readTimeout);
+    }
 
-        /*
-         * Make request
-         */
-        HttpURLConnection hpConn = (HttpURLConnection) url.openConnection();
+    /*
+     * GET requests are idempotent, so they can be retried and hedged.
+     */
+    static String executeGet(final URL url, final String[] headers,
+            final Integer connectTimeout, final Integer readTimeout)
+            throws IOException {
 
-        /*
-         * Get cookies
-         */
-        String cookie = getCookie(url);
-        if (cookie != null) {
-            hpConn.setRequestProperty("Cookie", cookie);
-        }
+        return executeGet(url, headers, connectTimeout, readTimeout,
+                TEXT_WITH_LINE_BREAKS);
+    }
 
-        /*
-         * Set the other headers
-         */
+    static <T> T executeGet(URL url, String[] headers,
+            Integer connectTimeout, Integer readTimeout,
+            CachedResponseReader<T> reader) throws IOException {
 
-        if (headers != null) {
-            for (String key : headers.keySet()) {
-                hpConn.setRequestProperty(key, headers.get(key));
+        ResponseCache cache = responseCache;
+        RequestCoalescer coalescer = requestCoalescer;
+        if (cache == null || ResponseCache.isBypassed(headers)) {
+            if (coalescer == null) {
+                return fetch(url, headers, connectTimeout, readTimeout, reader);
             }
-        }
-        hpConn.setRequestMethod("GET");
-        hpConn.setRequestProperty("Connection", "close");
-        hpConn.setInstanceFollowRedirects(false);
-        if (connectTimeout != null) {
-            hpConn.setConnectTimeout(connectTimeout.intValue());
-        }
-        if (readTimeout != null) {
-            hpConn.setReadTimeout(readTimeout.intValue());
+            ResponseCache.Entry response = fetchShared(coalescer, url,
+                    headers, connectTimeout, readTimeout);
+            return reader.read(response.contentType, response.body);
         }
 
-        /*
-         * Read response
-         */
-        BufferedReader reader = new BufferedReader(new InputStreamReader(
-                hpConn.getInputStream()));
-
-        /*
-         * Store cookies
-         */
-        putCookie(url, hpConn.getHeaderFields().get("Set-Cookie"));
-
-        /*
-         * Get result
-         */
-        StringBuilder result = new StringBuilder(INITIAL_BUFFER_SIZE);
-        String input = null;
-
-        while ((input = reader.readLine()) != null) {
-            result.append(input + "\n");
+        String key = ResponseCache.key(url, headers);
+        ResponseCache.Entry cached = cache.get(key);
+        if (cached != null && cached.isFresh()
+                && !ResponseCache.isRevalidationRequested(headers)) {
+            cache.hit();
+            return reader.read(cached.contentType, cached.body);
         }
 
-        return result.toString();
+        ResponseCache.Entry response = fetchShared(coalescer, url,
+                (cached != null) ? cached.conditional(headers) : headers,
+                connectTimeout, readTimeout);
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED
+                && cached != null) {
+            cache.revalidated();
+            response = cached.revalidate(response);
+        } else {
+            cache.miss();
+        }
 
+        if (response.isStorable()) {
+            cache.put(key, response);
+        } else {
+            cache.remove(key);
+        }
+        return reader.read(response.contentType, response.body);
     }
 
-    public static String doDelete(String urlStr, Map<String, String> headers,
-            Integer connectTimeout, Integer readTimeout) throws IOException {
-
-        /*
-         * URL
-         */
-        URL url = new URL(urlStr);
-
-        /*
-         * Make request
-         */
-        HttpURLConnection hpConn = (HttpURLConnection) url.openConnection();
+    /*
+     * Sends a GET request to the server, or waits for the identical one in
+     * flight (if the coalescer is not null) no longer than the timeouts of
+     * this request allow
+     */
+    private static ResponseCache.Entry fetchShared(RequestCoalescer coalescer,
+            final URL url, final String[] headers,
+            final Integer connectTimeout, final Integer readTimeout)
+            throws IOException {
 
-        /*
-         * Get cookies
-         */
-        String cookie = getCookie(url);
-        if (cookie != null) {
-            hpConn.setRequestProperty("Cookie", cookie);
+        if (coalescer == null) {
+            return fetch(url, headers, connectTimeout, readTimeout, CACHEABLE);
         }
-
-        /*
-         * Set the other headers
-         */
-
-        if (headers != null) {
-            for (String key : headers.keySet()) {
-                hpConn.setRequestProperty(key, headers.get(key));
+        long maxWaitMillis = 0;
+        if (readTimeout != null && readTimeout.intValue() > 0) {
+            maxWaitMillis = readTimeout.intValue();
+            if (connectTimeout != null && connectTimeout.intValue() > 0) {
+                maxWaitMillis += connectTimeout.intValue();
             }
         }
-        hpConn.setRequestMethod("DELETE");
-        hpConn.setRequestProperty("Connection", "close");
-        hpConn.setInstanceFollowRedirects(false);
-        if (connectTimeout != null) {
-            hpConn.setConnectTimeout(connectTimeout.intValue());
-        }
-        if (readTimeout != null) {
-            hpConn.setReadTimeout(readTimeout.intValue());
-        }
-
-        /*
-         * Read response
-         */
-        BufferedReader reader = new BufferedReader(new InputStreamReader(
-                hpConn.getInputStream()));
-
-        /*
-         * Store cookies
-         */
-        putCookie(url, hpConn.getHeaderFields().get("Set-Cookie"));
-
-        /*
-         * Get result
-         */
-        StringBuilder result = new StringBuilder(INITIAL_BUFFER_SIZE);
-        String input = null;
+        return coalescer.execute(ResponseCache.key(url, headers),
+                maxWaitMillis, new Callable<ResponseCache.Entry>() {
+                    public ResponseCache.Entry call() throws IOException {
+                        return fetch(url, headers, connectTimeout,
+                                readTimeout, CACHEABLE);
+                    }
+                });
+    }
 
-        while ((input = reader.readLine()) != null) {
-            result.append(input + "\n");
+    /*
+     * Sends a GET request to the server, without looking at the cache
+     */
+    private static <T> T fetch(final URL url, final String[] headers,
+            final Integer connectTimeout, final Integer readTimeout,
+            final ResponseReader<T> reader) throws IOException {
+
+        RetryPolicy retry = retryPolicy;
+        HedgingPolicy hedging = hedgingPolicy;
+        if (retry == null && hedging == null) {
+            return exchange("GET", url, headers, null, connectTimeout,
+                    readTimeout, reader);
         }
 
-        return result.toString();
+        return executeIdempotent(new HTTPCall<T>() {
+            public T call() throws IOException {
+                return exchange("GET", url, headers, null, connectTimeout,
+                        readTimeout, reader);
+            }
+        }, retry, hedging);
+    }
+
+    public static String doDelete(String urlStr, Map<String, String> headers,
+            Integer connectTimeout, Integer readTimeout) throws IOException {
 
+        return execute("DELETE", new URL(urlStr),
+                toHeaderArray(headers, null), null, connectTimeout,
+                readTimeout);
     }
 
     public static String doPost(String urlStr, String data,
             Integer connectTimeout, Integer readTimeout) throws IOException {
-        return doPost(urlStr, data, "text/xml; charset=\"" + ENCODING + "\"",
-                connectTimeout, readTimeout);
+        return doPost(urlStr, data, XML_CONTENT_TYPE, connectTimeout,
+                readTimeout);
     }
 
     /**
@@ -264,99 +480,9 @@ public class HTTPUtils {
             Map<String, String> headers, String contentType,
             Integer connectTimeout, Integer readTimeout) throws IOException {
 
-        HttpURLConnection hpConn = null;
-        data = (data != null) ? data : "";
-
-        try {
-
-            /*
-             * URL
-             */
-            URL url = new URL(urlStr);
-
-            /*
-             * Make request
-             */
-            hpConn = (HttpURLConnection) url.openConnection();
-
-            /*
-             * Get cookies
-             */
-            String cookie = getCookie(url);
-            if (cookie != null) {
-                hpConn.setRequestProperty("Cookie", cookie);
-            }
-
-            // hpConn.setRequestProperty("Content-Length",
-            // Integer.toString(data.getBytes().length));
-            // hpConn.setRequestProperty("Content-Type", contentType);
-            if (headers != null) {
-                for (String key : headers.keySet()) {
-                    hpConn.setRequestProperty(key, headers.get(key));
-                }
-            }
-            if (headers == null || !headers.containsKey("Content-Length")) {
-                hpConn.setRequestProperty("Content-Length",
-                        Integer.toString(data.getBytes().length));
-            }
-            if (headers == null || !headers.containsKey("Content-Type")) {
-                hpConn.setRequestProperty("Content-Type", contentType);
-            }
-            hpConn.setRequestMethod("POST");
-            hpConn.setRequestProperty("Connection", "close");
-            hpConn.setInstanceFollowRedirects(false);
-            hpConn.setDoInput(true);
-            hpConn.setDoOutput(true);
-            hpConn.setUseCaches(false);
-            if (connectTimeout != null) {
-                hpConn.setConnectTimeout(connectTimeout.intValue());
-            }
-            if (readTimeout != null) {
-                hpConn.setReadTimeout(readTimeout.intValue());
-            }
-
-            /*
-             * Do not use DataOutputStream for this, horrible things will
-             * happen.
-             */
-            OutputStreamWriter out = new OutputStreamWriter(
-                    hpConn.getOutputStream(), ENCODING);
-            out.write(data);
-            out.close();
-
-            /*
-             * Getting the response is required to force the request, otherwise
-             * it might not even be sent at all.
-             */
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    hpConn.getInputStream()));
-
-            /*
-             * Store cookies
-             */
-            putCookie(url, hpConn.getHeaderFields().get("Set-Cookie"));
-
-            /*
-             * Get result
-             */
-            String input;
-            StringBuilder response = new StringBuilder(INITIAL_BUFFER_SIZE);
-
-            while ((input = in.readLine()) != null) {
-                response.append(input);
-            }
-
-            String result = response.toString();
-
-            return result;
-
-        } catch (IOException ioe) {
-            throw ioe;
-        } finally {
-            if (hpConn != null) {
-                hpConn.disconnect();
-            }
-        }
+        return execute("POST", new URL(urlStr),
+                toHeaderArray(headers, contentType), encode(data),
+                connectTimeout, readTimeout);
     }
 
     public static String doPut(String urlStr, String data, String contentType,
@@ -380,20 +506,99 @@ public class HTTPUtils {
             Map<String, String> headers, String contentType,
             Integer connectTimeout, Integer readTimeout) throws IOException {
 
+        return execute("PUT", new URL(urlStr),
+                toHeaderArray(headers, contentType), encode(data),
+                connectTimeout, readTimeout);
+    }
+
+    static byte[] encode(String data) throws UnsupportedEncodingException {
+        return (data != null) ? data.getBytes(ENCODING) : new byte[0];
+    }
+
+    /**
+     * Performs a request with an already parsed url and already flattened
+     * headers. Every public method, and {@link RequestTemplate}, ends up here.
+     *
+     * @param method
+     *            HTTP verb.
+     * @param url
+     *            url, including the encoded query string.
+     * @param headers
+     *            name/value pairs, as returned by toHeaderArray().
+     * @param body
+     *            encoded request body, or null for requests without one (GET
+     *            and DELETE).
+     * @return the response. Line breaks are normalized for requests without
+     *         body and removed for requests with body.
+     * @throws IOException
+     */
+    static String execute(String method, URL url, String[] headers,
+            byte[] body, Integer connectTimeout, Integer readTimeout)
+            throws IOException {
+        return exchange(method, url, headers, body, connectTimeout,
+                readTimeout, (body == null) ? TEXT_WITH_LINE_BREAKS : TEXT);
+    }
+
+    /**
+     * Performs a request like {@link #execute}, but returns the response
+     * untouched, together with its content type, for bodies that are not
+     * text or that have to be decoded according to their content type.
+     */
+    static HTTPResponse executeRaw(String method, URL url, String[] headers,
+            byte[] body, Integer connectTimeout, Integer readTimeout)
+            throws IOException {
+        return exchange(method, url, headers, body, connectTimeout,
+                readTimeout, RAW);
+    }
+
+    private static <T> T exchange(String method, URL url, String[] headers,
+            byte[] body, Integer connectTimeout, Integer readTimeout,
+            ResponseReader<T> reader) throws IOException {
+
+        RateLimiter rate = rateLimiter;
+        if (rate != null) {
+            rate.acquireForRequest();
+        }
+
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            limiter.acquire(url);
+        }
+
+        AdaptiveTimeouts timeouts = adaptiveTimeouts;
+        AdaptiveTimeouts.Deadline deadline = null;
+        long start = System.nanoTime();
         HttpURLConnection hpConn = null;
-        data = (data != null) ? data : "";
+        boolean connected = false;
+        boolean failed = true;
+        IOException failure = null;
+        TrafficRecorder traffic = trafficRecorder;
+        RequestCancellation cancellation = RequestCancellation.current();
+        int status = 0;
 
-        try {
+        /*
+         * Flight Recorder event, only filled in when it is enabled
+         */
+        HTTPExchangeEvent event = isRecording() ? new HTTPExchangeEvent()
+                : null;
+        boolean traced = event != null && event.isEnabled();
+        if (traced) {
+            event.begin();
+            event.method = method;
+            event.host = url.getAuthority();
+            event.path = url.getPath();
+            event.requestBytes = (body != null) ? body.length : 0;
+        }
 
-            /*
-             * URL
-             */
-            URL url = new URL(urlStr);
+        try {
 
             /*
              * Make request
              */
             hpConn = (HttpURLConnection) url.openConnection();
+            if (cancellation != null) {
+                cancellation.attach(hpConn);
+            }
 
             /*
              * Get cookies
@@ -404,48 +609,82 @@ public class HTTPUtils {
             }
 
             /*
-             * Set the headers
+             * Set the other headers
              */
-            if (headers != null) {
-                for (String key : headers.keySet()) {
-                    hpConn.setRequestProperty(key, headers.get(key));
-                }
+            for (int i = 0; i < headers.length; i += 2) {
+                hpConn.setRequestProperty(headers[i], headers[i + 1]);
             }
-            if (headers == null || !headers.containsKey("Content-Length")) {
+            if (body != null && !containsHeader(headers, "Content-Length")) {
                 hpConn.setRequestProperty("Content-Length",
-                        Integer.toString(data.getBytes().length));
-            }
-            if (headers == null || !headers.containsKey("Content-Type")) {
-                hpConn.setRequestProperty("Content-Type", contentType);
+                        Integer.toString(body.length));
             }
-            hpConn.setRequestMethod("PUT");
+            hpConn.setRequestMethod(method);
             hpConn.setRequestProperty("Connection", "close");
             hpConn.setInstanceFollowRedirects(false);
-            hpConn.setDoInput(true);
-            hpConn.setDoOutput(true);
-            hpConn.setUseCaches(false);
+            if (body != null) {
+                hpConn.setDoInput(true);
+                hpConn.setDoOutput(true);
+                hpConn.setUseCaches(false);
+            }
+            int timeout = 0;
+            if (timeouts != null) {
+                timeout = timeouts.getTimeoutMillis(url);
+                connectTimeout = min(connectTimeout, timeout);
+                readTimeout = min(readTimeout, timeout);
+            }
             if (connectTimeout != null) {
                 hpConn.setConnectTimeout(connectTimeout.intValue());
             }
             if (readTimeout != null) {
                 hpConn.setReadTimeout(readTimeout.intValue());
             }
+            if (timeouts != null) {
+                deadline = timeouts.startDeadline(hpConn, timeout);
+            }
+
+            /*
+             * Connecting explicitly tells connect timeouts apart from read
+             * timeouts, and times the connection
+             */
+            long mark = System.nanoTime();
+            try {
+                hpConn.connect();
+            } catch (SocketTimeoutException ste) {
+                ConnectTimeoutException timeoutException = new ConnectTimeoutException(
+                        ste.getMessage());
+                timeoutException.initCause(ste);
+                throw timeoutException;
+            }
+            connected = true;
+            if (traced) {
+                event.connectTime = System.nanoTime() - mark;
+            }
 
             /*
-             * Do not use DataOutputStream for this, horrible things will
-             * happen.
+             * The body is already encoded, so it is written as is. Do not use
+             * DataOutputStream for this, horrible things will happen.
              */
-            OutputStreamWriter out = new OutputStreamWriter(
-                    hpConn.getOutputStream(), ENCODING);
-            out.write(data);
-            out.close();
+            if (body != null) {
+                OutputStream out = hpConn.getOutputStream();
+                out.write(body);
+                out.close();
+            }
 
             /*
              * Getting the response is required to force the request, otherwise
              * it might not even be sent at all.
              */
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    hpConn.getInputStream()));
+            if (traced) {
+                mark = System.nanoTime();
+            }
+            InputStream in = hpConn.getInputStream();
+            if (traced || traffic != null) {
+                status = hpConn.getResponseCode();
+            }
+            if (traced) {
+                event.timeToFirstByte = System.nanoTime() - mark;
+                event.status = status;
+            }
 
             /*
              * Store cookies
@@ -455,32 +694,333 @@ public class HTTPUtils {
             /*
              * Get result
              */
-            String input;
-            StringBuilder response = new StringBuilder(INITIAL_BUFFER_SIZE);
+            T result = reader.read(hpConn, in, traced ? event : null);
 
-            while ((input = in.readLine()) != null) {
-                response.append(input);
+            if (timeouts != null) {
+                timeouts.record(url, System.nanoTime() - start);
             }
 
-            String result = response.toString();
-
+            failed = false;
             return result;
 
         } catch (IOException ioe) {
+            /*
+             * Asking an unconnected connection for its status would connect
+             * it again, and send the request a second time
+             */
+            if (connected && (traced || traffic != null)) {
+                status = getResponseCode(hpConn);
+            }
+            if (traced) {
+                event.error = ioe.getClass().getName();
+                event.status = status;
+            }
+            /*
+             * Whatever failed after the deadline expired failed because of it
+             */
+            if (deadline != null && deadline.isExpired()) {
+                SocketTimeoutException timeoutException = new SocketTimeoutException(
+                        "Request deadline of " + deadline.getTimeoutMillis()
+                                + " ms exceeded");
+                timeoutException.initCause(ioe);
+                ioe = timeoutException;
+            }
+            if (timeouts != null) {
+                timeouts.recordFailure(url,
+                        ioe instanceof SocketTimeoutException);
+            }
+            failure = ioe;
             throw ioe;
         } finally {
+            if (traced) {
+                event.commit();
+            }
+            HTTPMetrics recorder = metrics;
+            if (recorder != null) {
+                recorder.record(method, url, failed, System.nanoTime() - start);
+            }
+            if (traffic != null) {
+                traffic.record(start, method, url, headers, body,
+                        status, System.nanoTime() - start);
+            }
+            if (deadline != null) {
+                deadline.cancel();
+            }
             if (hpConn != null) {
+                if (cancellation != null) {
+                    cancellation.detach(hpConn);
+                }
                 hpConn.disconnect();
             }
+            if (limiter != null) {
+                limiter.release(url, failed, failure);
+            }
         }
     }
 
+    /**
+     * Whether a request failed because the connection to the server could not
+     * be established: refused, unreachable or timed out.
+     */
+    public static boolean isConnectFailure(IOException failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException
+                    || t instanceof NoRouteToHostException
+                    || t instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Status of a failed request, if the server sent one
+     */
+    private static int getResponseCode(HttpURLConnection hpConn) {
+        if (hpConn == null) {
+            return 0;
+        }
+        try {
+            return hpConn.getResponseCode();
+        } catch (IOException ioe) {
+            return 0;
+        }
+    }
+
+    private static Integer min(Integer value, int bound) {
+        if (value == null || value.intValue() > bound) {
+            return Integer.valueOf(bound);
+        }
+        return value;
+    }
+
+    /*
+     * How the body of a response is turned into the result of a request
+     */
+    interface ResponseReader<T> {
+        T read(HttpURLConnection connection, InputStream in,
+                HTTPExchangeEvent event) throws IOException;
+    }
+
+    /*
+     * Reader that can also turn a body read before (from the cache or by an
+     * identical request) into the result
+     */
+    interface CachedResponseReader<T> extends ResponseReader<T> {
+        T read(String contentType, byte[] body) throws IOException;
+    }
+
+    private static final CachedResponseReader<String> TEXT = new CachedResponseReader<String>() {
+        public String read(HttpURLConnection connection, InputStream in,
+                HTTPExchangeEvent event) throws IOException {
+            return readResponse(in, false, event);
+        }
+
+        public String read(String contentType, byte[] body)
+                throws IOException {
+            return readResponse(new ByteArrayInputStream(body), false, null);
+        }
+    };
+
+    private static final CachedResponseReader<String> TEXT_WITH_LINE_BREAKS = new CachedResponseReader<String>() {
+        public String read(HttpURLConnection connection, InputStream in,
+                HTTPExchangeEvent event) throws IOException {
+            return readResponse(in, true, event);
+        }
+
+        public String read(String contentType, byte[] body)
+                throws IOException {
+            return readResponse(new ByteArrayInputStream(body), true, null);
+        }
+    };
+
+    static final CachedResponseReader<HTTPResponse> RAW = new CachedResponseReader<HTTPResponse>() {
+        public HTTPResponse read(HttpURLConnection connection, InputStream in,
+                HTTPExchangeEvent event) throws IOException {
+            return new HTTPResponse(connection.getContentType(), readBytes(
+                    in, event));
+        }
+
+        public HTTPResponse read(String contentType, byte[] body) {
+            return new HTTPResponse(contentType, body);
+        }
+    };
+
+    /*
+     * Keeps what the cache needs of a response: the whole body and the
+     * caching headers
+     */
+    private static final ResponseReader<ResponseCache.Entry> CACHEABLE = new ResponseReader<ResponseCache.Entry>() {
+        public ResponseCache.Entry read(HttpURLConnection connection,
+                InputStream in, HTTPExchangeEvent event) throws IOException {
+            return ResponseCache.Entry.of(connection, readBytes(in, event));
+        }
+    };
+
+    /*
+     * What is made of the bytes of a response, while they are still in the
+     * pooled buffer
+     */
+    private interface BodyDecoder<T> {
+        T decode(byte[] buffer, int length);
+    }
+
+    private static final BodyDecoder<byte[]> BYTES = new BodyDecoder<byte[]>() {
+        public byte[] decode(byte[] buffer, int length) {
+            return Arrays.copyOf(buffer, length);
+        }
+    };
+
+    private static final BodyDecoder<String> LINES = new BodyDecoder<String>() {
+        public String decode(byte[] buffer, int length) {
+            return decodeText(buffer, length, true);
+        }
+    };
+
+    private static final BodyDecoder<String> JOINED_LINES = new BodyDecoder<String>() {
+        public String decode(byte[] buffer, int length) {
+            return decodeText(buffer, length, false);
+        }
+    };
+
+    /*
+     * Reads the whole response as is
+     */
+    private static byte[] readBytes(InputStream in, HTTPExchangeEvent event)
+            throws IOException {
+        return readPooled(in, event, BYTES);
+    }
+
+    /*
+     * Reads the whole response and decodes it in one go, see decodeText
+     */
+    private static String readResponse(InputStream in, boolean keepLineBreaks,
+            HTTPExchangeEvent event) throws IOException {
+        return readPooled(in, event, keepLineBreaks ? LINES : JOINED_LINES);
+    }
+
+    /*
+     * Reads the whole response into a buffer borrowed from the pool, and
+     * hands it to the decoder before giving the buffer back. The buffer is
+     * never completely filled.
+     */
+    private static <T> T readPooled(InputStream in, HTTPExchangeEvent event,
+            BodyDecoder<T> decoder) throws IOException {
+
+        byte[] pooled = bufferPool.acquire();
+        try {
+            byte[] buffer = pooled;
+            int length = 0;
+            int read;
+
+            try {
+                while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+                    length += read;
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+
+            if (event != null) {
+                event.responseBytes = length;
+            }
+            return decoder.decode(buffer, length);
+
+        } finally {
+            bufferPool.release(pooled);
+        }
+    }
+
+    /*
+     * Decodes text whose line breaks are either normalized to a single "\n"
+     * per line (the same output BufferedReader.readLine() would give) or
+     * dropped altogether. Working on the raw bytes is safe because CR and LF
+     * never appear inside a multi-byte character. The line breaks are
+     * filtered in place, there is always room for a trailing one since the
+     * buffer is never completely filled.
+     */
+    private static String decodeText(byte[] buffer, int length,
+            boolean keepLineBreaks) {
+        int end = 0;
+        boolean skipLF = false;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            if (b == '\r' || b == '\n') {
+                if (keepLineBreaks && !(b == '\n' && skipLF)) {
+                    buffer[end++] = '\n';
+                }
+                skipLF = (b == '\r');
+            } else {
+                buffer[end++] = b;
+                skipLF = false;
+            }
+        }
+        if (keepLineBreaks && end > 0 && buffer[end - 1] != '\n') {
+            buffer[end++] = '\n';
+        }
+
+        return new String(buffer, 0, end);
+    }
+
+    /**
+     * Whether a Flight Recorder has been started, in which case events may
+     * be enabled. Until then no event is created: the first one sets up the
+     * event support of the JVM, which takes hundreds of milliseconds and
+     * would be paid by every short-lived process on its first request.
+     */
+    public static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    private static void putCookie(URL url, List<String> cookieList)
+            throws IOException {
+
+        CookieJarEvent event = isRecording() ? new CookieJarEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        putCookieInJar(url, cookieList);
+
+        if (event != null && event.shouldCommit()) {
+            event.operation = "put";
+            event.host = url.getHost();
+            event.cookies = (cookieList != null) ? cookieList.size() : 0;
+            event.jarSize = cookieJar.size();
+            event.commit();
+        }
+    }
+
+    private static String getCookie(URL url) throws IOException {
+
+        CookieJarEvent event = isRecording() ? new CookieJarEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        String cookie = getCookieFromJar(url);
+
+        if (event != null && event.shouldCommit()) {
+            event.operation = "get";
+            event.host = url.getHost();
+            event.cookies = (cookie.length() == 0) ? 0
+                    : cookie.split("; ").length;
+            event.jarSize = cookieJar.size();
+            event.commit();
+        }
+
+        return cookie;
+    }
+
     /*
      * This method is synchornized to avoid concurrent modification exceptions
      * of cookieJar.
      */
-    private static synchronized void putCookie(URL url, List<String> cookieList)
-            throws IOException {
+    private static synchronized void putCookieInJar(URL url,
+            List<String> cookieList) throws IOException {
 
         if (cookieList != null) {
             for (String item : cookieList) {
@@ -522,7 +1062,8 @@ public class HTTPUtils {
      * This method is synchornized to avoid concurrent modification exceptions
      * of cookieJar.
      */
-    private static synchronized String getCookie(URL url) throws IOException {
+    private static synchronized String getCookieFromJar(URL url)
+            throws IOException {
 
         /*
          * Remove expired cookies
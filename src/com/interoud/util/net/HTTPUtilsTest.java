@@ -0,0 +1,165 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HTTPUtilsTest {
+
+    private static final String[] BODIES = new String[] {
+        "", "a", "a\r\nb\r\n", "a\rb", "a\nb", "a\n", "\n", "a\r\n\r\nb",
+        "a\r\nb\r", "a\r\n\n\rb"
+    };
+
+    @Test
+    public void testLineBreaks() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/body", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                while (in.read() != -1) {
+                }
+                String path = exchange.getRequestURI().getPath();
+                byte[] body = BODIES[Integer.parseInt(path.substring(path
+                        .lastIndexOf('/') + 1))].getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, (body.length > 0)
+                        ? body.length : -1);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        try {
+            String base = "http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/body/";
+            for (int i = 0; i < BODIES.length; i++) {
+                Assert.assertEquals(readLines(BODIES[i], true),
+                        HTTPUtils.doGet(base + i, null, null, null));
+                Assert.assertEquals(readLines(BODIES[i], false),
+                        HTTPUtils.doPost(base + i, "<request/>", null, null));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /*
+     * What reading the response line by line used to give
+     */
+    private static String readLines(String body, boolean keepLineBreaks)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(body));
+        StringBuilder result = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            result.append(line);
+            if (keepLineBreaks) {
+                result.append('\n');
+            }
+        }
+        return result.toString();
+    }
+
+    /*
+     * Counts the connection attempts: HttpURLConnection asks for a proxy for
+     * the http url before each one (the socket asks again for its own)
+     */
+    private static class CountingProxySelector extends ProxySelector {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        public List<Proxy> select(URI uri) {
+            if ("http".equals(uri.getScheme())) {
+                attempts.incrementAndGet();
+            }
+            return Collections.singletonList(Proxy.NO_PROXY);
+        }
+
+        public void connectFailed(URI uri, SocketAddress address,
+                IOException ioe) {
+        }
+    }
+
+    @Test
+    public void testRefusedConnectWithRecorder() throws IOException {
+        ServerSocket closed = new ServerSocket(0);
+        int port = closed.getLocalPort();
+        closed.close();
+
+        File file = File.createTempFile("traffic", ".trace");
+        TrafficRecorder recorder = new TrafficRecorder(file);
+        ProxySelector previous = ProxySelector.getDefault();
+        CountingProxySelector selector = new CountingProxySelector();
+        ProxySelector.setDefault(selector);
+        HTTPUtils.setTrafficRecorder(recorder);
+        try {
+            HTTPUtils.doPost("http://127.0.0.1:" + port + "/freq_server/"
+                    + "AllocateFrequency", "<request/>", 500, 500);
+            Assert.fail();
+        } catch (ConnectException ce) {
+            Assert.assertEquals(1, selector.attempts.get());
+            Assert.assertEquals(1, recorder.getRecords());
+        } finally {
+            HTTPUtils.setTrafficRecorder(null);
+            ProxySelector.setDefault(previous);
+            recorder.close();
+            file.delete();
+        }
+    }
+}
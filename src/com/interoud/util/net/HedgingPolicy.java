@@ -0,0 +1,233 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Sends a duplicate of an idempotent request when the first one takes longer
+ * than most requests do (the given percentile of the latencies observed so
+ * far), and returns whichever response arrives first. This bounds the tail
+ * latency caused by a single slow response while only adding
+ * (100 - percentile)% of extra requests.
+ *
+ * Until enough latencies have been observed, a fixed delay is used instead.
+ */
+public class HedgingPolicy {
+
+    public static final double DEFAULT_PERCENTILE = 95.0;
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+    public static final int MIN_SAMPLES = 100;
+
+    private final double percentile;
+
+    private final long initialDelayMillis;
+
+    private final long minDelayMillis;
+
+    private final ExecutorService executor;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_INITIAL_DELAY_MILLIS,
+                DEFAULT_MIN_DELAY_MILLIS, Executors
+                        .newCachedThreadPool(new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "http-hedging");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        }));
+    }
+
+    /**
+     * @param percentile
+     *            percentile of the observed latencies after which the
+     *            duplicate is sent.
+     * @param initialDelayMillis
+     *            delay used until {@link #MIN_SAMPLES} latencies have been
+     *            observed.
+     * @param minDelayMillis
+     *            lower bound of the delay.
+     * @param executor
+     *            executor running the requests. It needs at least two threads
+     *            per concurrent request.
+     */
+    public HedgingPolicy(double percentile, long initialDelayMillis,
+            long minDelayMillis, ExecutorService executor) {
+        this.percentile = percentile;
+        this.initialDelayMillis = initialDelayMillis;
+        this.minDelayMillis = minDelayMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Latencies of the requests executed with this policy, in microseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Number of times the duplicate answered before the original request.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public long getDelayMillis() {
+        if (latency.getCount() < MIN_SAMPLES) {
+            return initialDelayMillis;
+        }
+        return Math.max(minDelayMillis,
+                latency.getValueAtPercentile(percentile) / 1000);
+    }
+
+    /**
+     * Executes the request, hedging it if it is slow. Failures are not
+     * hedged: if the original request fails before the duplicate is sent, its
+     * error is thrown, and if both fail, the error of the last one is thrown.
+     * The request that loses is disconnected.
+     */
+    public <T> T execute(final HTTPCall<T> call) throws IOException {
+
+        final long start = System.nanoTime();
+        CompletionService<T> completion = new ExecutorCompletionService<T>(
+                executor);
+        RequestCancellation originalCancellation = new RequestCancellation();
+        RequestCancellation hedgeCancellation = new RequestCancellation();
+
+        Future<T> original = completion.submit(task(call,
+                originalCancellation));
+        Future<T> hedge = null;
+
+        try {
+            Future<T> first = completion.poll(getDelayMillis(),
+                    TimeUnit.MILLISECONDS);
+            if (first == null) {
+                hedges.incrementAndGet();
+                hedge = completion.submit(task(call, hedgeCancellation));
+                first = completion.take();
+            }
+
+            try {
+                T result = first.get();
+                if (first == hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+                latency.record((System.nanoTime() - start) / 1000);
+                return result;
+            } catch (ExecutionException ee) {
+                if (hedge == null) {
+                    throw ee;
+                }
+                /*
+                 * The first one failed, wait for the other one
+                 */
+                Future<T> second = completion.take();
+                T result = second.get();
+                if (second == hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+                latency.record((System.nanoTime() - start) / 1000);
+                return result;
+            }
+
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.toString());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for "
+                    + "the response");
+        } finally {
+            originalCancellation.cancel();
+            original.cancel(false);
+            if (hedge != null) {
+                hedgeCancellation.cancel();
+                hedge.cancel(false);
+            }
+        }
+    }
+
+    /*
+     * Runs the call in the executor, where the cancellation can abort it
+     */
+    private static <T> Callable<T> task(final HTTPCall<T> call,
+            final RequestCancellation cancellation) {
+        return new Callable<T>() {
+            public T call() throws IOException {
+                cancellation.enter();
+                try {
+                    return call.call();
+                } finally {
+                    cancellation.exit();
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,328 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Client-side load balancer for a fixed set of equivalent endpoints.
+ *
+ * Every request must {@link #acquire()} a node and then release it, either
+ * with the elapsed time when it succeeds or with the phase in which it
+ * failed. Nodes that fail to accept connections a number of consecutive times
+ * are ejected for a while. When every node is ejected, the one whose
+ * ejection expires first is used anyway, so that requests keep failing (or
+ * succeeding) fast instead of not being sent at all.
+ */
+public class LoadBalancer {
+
+    public static final int DEFAULT_MAX_CONNECT_FAILURES = 3;
+    public static final long DEFAULT_EJECTION_MILLIS = 10000;
+
+    /**
+     * Where a failed request failed.
+     */
+    public enum Phase {
+        /**
+         * The connection could not be established: refused, unreachable or
+         * timed out (see {@link HTTPUtils#isConnectFailure}).
+         */
+        CONNECT,
+        /**
+         * The connection was established, sending the request or reading the
+         * response failed.
+         */
+        EXCHANGE
+    }
+
+    public enum Strategy {
+        /**
+         * Always picks the node with fewer requests in progress.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Picks two random nodes and uses the one with fewer requests in
+         * progress. Avoids the herding of LEAST_OUTSTANDING when many clients
+         * see the same counts.
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    public static class Node {
+
+        private final int index;
+
+        private final String url;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private final AtomicLong requests = new AtomicLong();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicLong ejections = new AtomicLong();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private volatile long ejectedUntil;
+
+        Node(int index, String url) {
+            this.index = index;
+            this.url = url;
+        }
+
+        /**
+         * Position of the node in the list given to the balancer.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getURL() {
+            return url;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getEjections() {
+            return ejections.get();
+        }
+
+        public boolean isEjected() {
+            return System.currentTimeMillis() < ejectedUntil;
+        }
+
+        /**
+         * Latencies of the successful requests, in microseconds.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public String toString() {
+            return url;
+        }
+
+    }
+
+    private final List<Node> nodes;
+
+    private final Strategy strategy;
+
+    private final int maxConnectFailures;
+
+    private final long ejectionMillis;
+
+    /*
+     * Nodes not ejected, rebuilt only when a node is ejected or readmitted
+     */
+    private volatile Node[] healthy;
+
+    private volatile long nextReadmission = Long.MAX_VALUE;
+
+    public LoadBalancer(List<String> urls, Strategy strategy) {
+        this(urls, strategy, DEFAULT_MAX_CONNECT_FAILURES,
+                DEFAULT_EJECTION_MILLIS);
+    }
+
+    /**
+     * @param urls
+     *            endpoints to balance, at least one.
+     * @param strategy
+     *            how to choose among the nodes that are not ejected.
+     * @param maxConnectFailures
+     *            consecutive connection failures after which a node is
+     *            ejected.
+     * @param ejectionMillis
+     *            time a node stays ejected.
+     */
+    public LoadBalancer(List<String> urls, Strategy strategy,
+            int maxConnectFailures, long ejectionMillis) {
+
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one url is required");
+        }
+
+        List<Node> nodes = new ArrayList<Node>(urls.size());
+        for (String url : urls) {
+            nodes.add(new Node(nodes.size(), url));
+        }
+
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.strategy = strategy;
+        this.maxConnectFailures = maxConnectFailures;
+        this.ejectionMillis = ejectionMillis;
+        this.healthy = nodes.toArray(new Node[nodes.size()]);
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Chooses a node for a new request and counts the request as outstanding
+     * on it.
+     */
+    public Node acquire() {
+        Node node = (nodes.size() == 1) ? nodes.get(0) : select();
+        node.outstanding.incrementAndGet();
+        node.requests.incrementAndGet();
+        return node;
+    }
+
+    /**
+     * Releases a node that was not sent the request after all.
+     */
+    public void cancel(Node node) {
+        node.outstanding.decrementAndGet();
+        node.requests.decrementAndGet();
+    }
+
+    /**
+     * Releases a node after a successful request.
+     *
+     * @param elapsedNanos
+     *            duration of the request.
+     */
+    public void release(Node node, long elapsedNanos) {
+        node.outstanding.decrementAndGet();
+        node.consecutiveFailures.set(0);
+        node.latency.record(elapsedNanos / 1000);
+    }
+
+    /**
+     * Releases a node after a failed request. Only failures to connect count
+     * towards the ejection of the node, other errors are up to the caller.
+     *
+     * @param phase
+     *            where the request failed.
+     */
+    public void release(Node node, Phase phase) {
+        node.outstanding.decrementAndGet();
+        node.failures.incrementAndGet();
+
+        if (phase == Phase.CONNECT
+                && node.consecutiveFailures.incrementAndGet() >= maxConnectFailures) {
+            // once re-admitted, it gets maxConnectFailures chances again
+            node.consecutiveFailures.set(0);
+            long now = System.currentTimeMillis();
+            node.ejectedUntil = now + ejectionMillis;
+            node.ejections.incrementAndGet();
+            updateHealthy(now);
+        }
+    }
+
+    private synchronized void updateHealthy(long now) {
+        List<Node> available = new ArrayList<Node>(nodes.size());
+        long next = Long.MAX_VALUE;
+        for (Node node : nodes) {
+            if (now >= node.ejectedUntil) {
+                available.add(node);
+            } else {
+                next = Math.min(next, node.ejectedUntil);
+            }
+        }
+        healthy = available.toArray(new Node[available.size()]);
+        nextReadmission = next;
+    }
+
+    private Node select() {
+        long now = System.currentTimeMillis();
+        if (now >= nextReadmission) {
+            updateHealthy(now);
+        }
+        Node[] healthy = this.healthy;
+
+        if (healthy.length == 0) {
+            Node first = nodes.get(0);
+            for (Node node : nodes) {
+                if (node.ejectedUntil < first.ejectedUntil) {
+                    first = node;
+                }
+            }
+            return first;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (strategy == Strategy.POWER_OF_TWO_CHOICES && healthy.length > 2) {
+            int i = random.nextInt(healthy.length);
+            int j = random.nextInt(healthy.length - 1);
+            if (j >= i) {
+                j++;
+            }
+            Node a = healthy[i];
+            Node b = healthy[j];
+            return (b.outstanding.get() < a.outstanding.get()) ? b : a;
+        }
+
+        /*
+         * Start the scan at a random node so that ties are not always broken
+         * in favour of the first one.
+         */
+        int offset = random.nextInt(healthy.length);
+        Node best = null;
+        for (int k = 0; k < healthy.length; k++) {
+            Node node = healthy[(offset + k) % healthy.length];
+            if (best == null
+                    || node.outstanding.get() < best.outstanding.get()) {
+                best = node;
+            }
+        }
+        return best;
+    }
+
+}
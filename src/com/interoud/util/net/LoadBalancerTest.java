@@ -0,0 +1,110 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LoadBalancerTest {
+
+    @Test
+    public void testEjection() {
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("http://a",
+                "http://b"), LoadBalancer.Strategy.LEAST_OUTSTANDING, 3,
+                60000);
+        LoadBalancer.Node a = balancer.getNodes().get(0);
+
+        for (int i = 0; i < 3; i++) {
+            balancer.acquire();
+            balancer.release(a, LoadBalancer.Phase.EXCHANGE);
+        }
+        Assert.assertFalse(a.isEjected());
+
+        for (int i = 0; i < 3; i++) {
+            balancer.acquire();
+            balancer.release(a, LoadBalancer.Phase.CONNECT);
+        }
+        Assert.assertTrue(a.isEjected());
+        Assert.assertEquals(1, a.getEjections());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertSame(balancer.getNodes().get(1), balancer.acquire());
+        }
+    }
+
+    @Test
+    public void testReadmission() throws InterruptedException {
+        LoadBalancer balancer = new LoadBalancer(Arrays.asList("http://a",
+                "http://b"), LoadBalancer.Strategy.LEAST_OUTSTANDING, 3, 50);
+        LoadBalancer.Node a = balancer.getNodes().get(0);
+
+        for (int i = 0; i < 3; i++) {
+            balancer.acquire();
+            balancer.release(a, LoadBalancer.Phase.CONNECT);
+        }
+        Assert.assertTrue(a.isEjected());
+        Thread.sleep(100);
+        Assert.assertFalse(a.isEjected());
+
+        // a re-admitted node is not ejected again on its first failure
+        balancer.acquire();
+        balancer.release(a, LoadBalancer.Phase.CONNECT);
+        Assert.assertFalse(a.isEjected());
+        Assert.assertEquals(1, a.getEjections());
+        for (int i = 0; i < 2; i++) {
+            balancer.acquire();
+            balancer.release(a, LoadBalancer.Phase.CONNECT);
+        }
+        Assert.assertTrue(a.isEjected());
+        Assert.assertEquals(2, a.getEjections());
+    }
+
+    @Test
+    public void testConnectFailures() {
+        IOException timeout = new ConnectTimeoutException("connect timed out");
+        Assert.assertTrue(HTTPUtils.isConnectFailure(timeout));
+        Assert.assertTrue(HTTPUtils.isConnectFailure(new ConnectException()));
+        Assert.assertFalse(HTTPUtils.isConnectFailure(
+                new SocketTimeoutException("Read timed out")));
+
+        IOException deadline = new SocketTimeoutException("deadline");
+        deadline.initCause(timeout);
+        Assert.assertTrue(HTTPUtils.isConnectFailure(deadline));
+    }
+}
@@ -0,0 +1,243 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket. Instead of a token count refilled over time, the
+ * bucket keeps the time at which it would be full again (the "theoretical
+ * arrival time" of the generic cell rate algorithm): taking permits pushes
+ * that time forward, and permits are available as long as it is no further
+ * in the future than the burst size allows. This needs a single
+ * compare-and-set per acquisition and no background refill.
+ *
+ * Callers that have to wait reserve their permits before waiting, so
+ * waiting callers are served in order and the rate is respected precisely.
+ */
+public class RateLimiter {
+
+    /*
+     * Source of the time, replaced in tests
+     */
+    interface Clock {
+        long nanoTime();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final Clock clock;
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final long intervalNanos;
+
+    private final long capacityNanos;
+
+    private final AtomicLong fullAt;
+
+    private final AtomicLong waits = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile long maxWaitNanos = Long.MAX_VALUE;
+
+    /**
+     * @param permitsPerSecond
+     *            sustained rate.
+     * @param burst
+     *            maximum number of permits that can be taken at once after a
+     *            period of inactivity.
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, SYSTEM_CLOCK);
+    }
+
+    RateLimiter(double permitsPerSecond, int burst, Clock clock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1,
+                Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.capacityNanos = intervalNanos * burst;
+        this.clock = clock;
+        this.fullAt = new AtomicLong(clock.nanoTime());
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Number of acquisitions that had to wait.
+     */
+    public long getWaits() {
+        return waits.get();
+    }
+
+    /**
+     * Number of acquisitions that failed because the permits were not
+     * available in time.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Sets how long requests sent through {@link HTTPUtils} or a
+     * {@link RequestTemplate} wait for a permit before being rejected with a
+     * {@link RequestRejectedException}. By default they wait as long as
+     * needed, 0 makes them fail right away.
+     */
+    public void setMaxWait(long maxWait, TimeUnit unit) {
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    /**
+     * Takes a permit if it is available right away.
+     */
+    public boolean tryAcquire() {
+        return reserve(1, 0) == 0;
+    }
+
+    /**
+     * Takes the permits if they are available right away.
+     */
+    public boolean tryAcquire(int permits) {
+        return reserve(permits, 0) == 0;
+    }
+
+    /**
+     * Takes the permits, waiting for them if they become available within the
+     * timeout.
+     *
+     * @return false, without taking any permits, if they would not be
+     *         available in time.
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit)
+            throws InterruptedIOException {
+        long wait = reserve(permits, unit.toNanos(timeout));
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            park(wait);
+        }
+        return true;
+    }
+
+    /**
+     * Takes a permit, waiting as long as needed.
+     */
+    public void acquire() throws InterruptedIOException {
+        acquire(1);
+    }
+
+    /**
+     * Takes the permits, waiting as long as needed.
+     */
+    public void acquire(int permits) throws InterruptedIOException {
+        tryAcquire(permits, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /*
+     * Used in the request path
+     */
+    void acquireForRequest() throws IOException {
+        if (!tryAcquire(1, maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            throw new RequestRejectedException("Rate limit of "
+                    + permitsPerSecond + " requests per second exceeded");
+        }
+    }
+
+    /*
+     * Reserves the permits if the wait for them is within the limit.
+     * Returns the time to wait, or -1 if nothing was reserved.
+     */
+    private long reserve(int permits, long maxWaitNanos) {
+        long cost = intervalNanos * permits;
+        long now;
+        long current;
+        long next;
+        long wait;
+
+        do {
+            now = clock.nanoTime();
+            current = fullAt.get();
+            next = ((current - now > 0) ? current : now) + cost;
+            wait = next - now - capacityNanos;
+            if (wait > maxWaitNanos) {
+                rejected.incrementAndGet();
+                return -1;
+            }
+        } while (!fullAt.compareAndSet(current, next));
+
+        if (wait > 0) {
+            waits.incrementAndGet();
+            return wait;
+        }
+        return 0;
+    }
+
+    private static void park(long nanos) throws InterruptedIOException {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting "
+                        + "for a permit");
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+}
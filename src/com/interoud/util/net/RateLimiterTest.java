@@ -0,0 +1,123 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testBurst() {
+        RateLimiter limiter = new RateLimiter(10, 5);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire(2));
+        Assert.assertEquals(2, limiter.getRejected());
+        Assert.assertEquals(0, limiter.getWaits());
+    }
+
+    /*
+     * Only moves when the test steps it
+     */
+    private static class SteppedClock implements RateLimiter.Clock {
+
+        private volatile long nanos = 1000;
+
+        public long nanoTime() {
+            return nanos;
+        }
+
+        void step(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    @Test
+    public void testRefill() throws IOException {
+        SteppedClock clock = new SteppedClock();
+        RateLimiter limiter = new RateLimiter(10, 2, clock);
+        Assert.assertTrue(limiter.tryAcquire(2));
+        Assert.assertFalse(limiter.tryAcquire());
+
+        // one permit every 100 ms, never more than the burst
+        clock.step(99);
+        Assert.assertFalse(limiter.tryAcquire());
+        clock.step(1);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        clock.step(1000);
+        Assert.assertTrue(limiter.tryAcquire(2));
+        Assert.assertFalse(limiter.tryAcquire());
+
+        // too long a wait takes nothing
+        Assert.assertFalse(limiter.tryAcquire(1, 99, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(0, limiter.getWaits());
+        limiter.setMaxWait(0, TimeUnit.MILLISECONDS);
+        try {
+            limiter.acquireForRequest();
+            Assert.fail();
+        } catch (RequestRejectedException rre) {
+            // expected
+        }
+        Assert.assertEquals(6, limiter.getRejected());
+    }
+
+    @Test
+    public void testWait() throws IOException {
+        SteppedClock clock = new SteppedClock();
+        RateLimiter limiter = new RateLimiter(10, 1, clock);
+        Assert.assertTrue(limiter.tryAcquire());
+
+        // waiting callers reserve their permit and get it on time
+        long start = System.nanoTime();
+        Assert.assertTrue(limiter.tryAcquire(1, 1, TimeUnit.SECONDS));
+        Assert.assertTrue(limiter.tryAcquire(1, 1, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(300));
+        Assert.assertEquals(2, limiter.getWaits());
+
+        // the reservations hold until the clock catches up with them
+        clock.step(299);
+        Assert.assertFalse(limiter.tryAcquire());
+        clock.step(1);
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+}
@@ -0,0 +1,92 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Lets a thread abort the request another thread is sending, by
+ * disconnecting its connection: interrupting a thread blocked in
+ * HttpURLConnection does not abort the request. The cancellation applies to
+ * the requests sent by the thread while it is {@link #enter() entered}.
+ */
+final class RequestCancellation {
+
+    private static final ThreadLocal<RequestCancellation> CURRENT = new ThreadLocal<RequestCancellation>();
+
+    private HttpURLConnection connection;
+
+    private boolean cancelled;
+
+    /*
+     * Cancellation of the requests of the current thread, if any
+     */
+    static RequestCancellation current() {
+        return CURRENT.get();
+    }
+
+    void enter() {
+        CURRENT.set(this);
+    }
+
+    void exit() {
+        CURRENT.remove();
+    }
+
+    /*
+     * Called before sending the request through the connection
+     */
+    synchronized void attach(HttpURLConnection connection)
+            throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+        this.connection = connection;
+    }
+
+    synchronized void detach(HttpURLConnection connection) {
+        if (this.connection == connection) {
+            this.connection = null;
+        }
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical GET requests share a single request to the
+ * server: the first thread sends it, and the threads asking for the same URL
+ * with the same headers while it is in flight wait for its response instead
+ * of sending their own. Threads arriving after the response send a new
+ * request (use a {@link ResponseCache} to avoid those).
+ *
+ * All the waiting threads get the failure of the shared request too, each as
+ * an exception of its own of the same class, caused by the shared one. The
+ * shared request runs with the timeouts of the thread that sent it, so each
+ * waiting thread gives up on it once its own timeouts would have expired,
+ * with a SocketTimeoutException.
+ */
+public class RequestCoalescer {
+
+    private final ConcurrentMap<String, FutureTask<ResponseCache.Entry>> inFlight = new ConcurrentHashMap<String, FutureTask<ResponseCache.Entry>>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /*
+     * Runs the request, or waits for the identical one in flight for at most
+     * the given time (0 waits as long as it takes)
+     */
+    ResponseCache.Entry execute(String key, long maxWaitMillis,
+            Callable<ResponseCache.Entry> request) throws IOException {
+        FutureTask<ResponseCache.Entry> task = new FutureTask<ResponseCache.Entry>(
+                request);
+        FutureTask<ResponseCache.Entry> shared = inFlight.putIfAbsent(key,
+                task);
+        boolean sent = (shared == null);
+        if (sent) {
+            requests.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            shared = task;
+        } else {
+            coalesced.incrementAndGet();
+        }
+
+        try {
+            if (maxWaitMillis > 0) {
+                return shared.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            }
+            return shared.get();
+        } catch (TimeoutException te) {
+            throw new SocketTimeoutException("Timed out after "
+                    + maxWaitMillis + " ms waiting for an identical request "
+                    + "in flight");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw sent ? (IOException) cause : copy((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.toString());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for "
+                    + "the shared response");
+        }
+    }
+
+    /*
+     * A new exception of the same class for a waiting thread, so that it has
+     * its own stack trace and can be told apart by type like the original
+     */
+    private static IOException copy(IOException failure) {
+        try {
+            IOException copy = failure.getClass().getConstructor(String.class)
+                    .newInstance(failure.getMessage());
+            copy.initCause(failure);
+            return copy;
+        } catch (Exception e) {
+            // No such constructor, or one that already set the cause
+            return new IOException(failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * @return the number of requests sent to the server.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests answered with the response of an
+     *         identical request in flight.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/status", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                // answer once every other thread waits for this request
+                long deadline = System.currentTimeMillis() + 5000;
+                while (coalescer.getCoalesced() < THREADS - 1
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                byte[] body = "ok".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        HTTPUtils.setRequestCoalescer(coalescer);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final String url = "http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/status";
+            List<Future<String>> responses = new ArrayList<Future<String>>();
+            for (int i = 0; i < THREADS; i++) {
+                responses.add(executor.submit(new Callable<String>() {
+                    public String call() throws IOException {
+                        return HTTPUtils.doGet(url, null, null, null).trim();
+                    }
+                }));
+            }
+            for (Future<String> response : responses) {
+                Assert.assertEquals("ok", response.get());
+            }
+            Assert.assertEquals(1, requests.get());
+            Assert.assertEquals(1, coalescer.getRequests());
+            Assert.assertEquals(THREADS - 1, coalescer.getCoalesced());
+            Assert.assertEquals(0, coalescer.getInFlight());
+
+            Assert.assertEquals("ok", HTTPUtils.doGet(url, null, null, null)
+                    .trim());
+            Assert.assertEquals(2, requests.get());
+        } finally {
+            executor.shutdown();
+            HTTPUtils.setRequestCoalescer(null);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        try {
+            coalescer.execute("key", 0, new Callable<ResponseCache.Entry>() {
+                public ResponseCache.Entry call() throws IOException {
+                    throw new IOException("down");
+                }
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("down", e.getMessage());
+        }
+        Assert.assertEquals(0, coalescer.getInFlight());
+    }
+
+    /*
+     * The waiting caller gets an exception of its own, of the same class
+     */
+    @Test
+    public void testSharedFailure() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch fail = new CountDownLatch(1);
+        final SocketTimeoutException failure = new SocketTimeoutException(
+                "Read timed out");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IOException> sender = executor.submit(
+                    new Callable<IOException>() {
+                        public IOException call() throws Exception {
+                            try {
+                                coalescer.execute("key", 0,
+                                        new Callable<ResponseCache.Entry>() {
+                                            public ResponseCache.Entry call()
+                                                    throws Exception {
+                                                started.countDown();
+                                                fail.await();
+                                                throw failure;
+                                            }
+                                        });
+                                return null;
+                            } catch (IOException ioe) {
+                                return ioe;
+                            }
+                        }
+                    });
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            final AtomicInteger calls = new AtomicInteger();
+            Future<IOException> waiter = executor.submit(
+                    new Callable<IOException>() {
+                        public IOException call() {
+                            try {
+                                coalescer.execute("key", 0,
+                                        new Callable<ResponseCache.Entry>() {
+                                            public ResponseCache.Entry call() {
+                                                calls.incrementAndGet();
+                                                return null;
+                                            }
+                                        });
+                                return null;
+                            } catch (IOException ioe) {
+                                return ioe;
+                            }
+                        }
+                    });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (coalescer.getCoalesced() == 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            fail.countDown();
+
+            Assert.assertSame(failure, sender.get());
+            IOException waited = waiter.get();
+            Assert.assertNotSame(failure, waited);
+            Assert.assertEquals(SocketTimeoutException.class, waited
+                    .getClass());
+            Assert.assertEquals("Read timed out", waited.getMessage());
+            Assert.assertSame(failure, waited.getCause());
+            Assert.assertEquals(0, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * A caller with a short timeout does not wait for a slower identical
+     * request beyond it
+     */
+    @Test
+    public void testWaitTimeout() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch answer = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseCache.Entry> first = executor
+                    .submit(new Callable<ResponseCache.Entry>() {
+                        public ResponseCache.Entry call() throws IOException {
+                            return coalescer.execute("key", 0,
+                                    new Callable<ResponseCache.Entry>() {
+                                        public ResponseCache.Entry call()
+                                                throws InterruptedException {
+                                            started.countDown();
+                                            answer.await();
+                                            return null;
+                                        }
+                                    });
+                        }
+                    });
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            try {
+                coalescer.execute("key", 50,
+                        new Callable<ResponseCache.Entry>() {
+                            public ResponseCache.Entry call() {
+                                throw new AssertionError("not coalesced");
+                            }
+                        });
+                Assert.fail();
+            } catch (SocketTimeoutException ste) {
+                long elapsed = System.nanoTime() - start;
+                Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(50));
+                Assert.assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5));
+            }
+            Assert.assertEquals(1, coalescer.getCoalesced());
+
+            answer.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0, coalescer.getInFlight());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Request to a fixed endpoint, prepared once and executed many times. The url
+ * is parsed, the static parameters are encoded and the headers are flattened
+ * when the template is created, so every execution only has to deal with the
+ * parts that change between calls: the body and, optionally, some extra
+ * parameters.
+ */
+public class RequestTemplate {
+
+    private final String method;
+
+    private final String encodedUrl;
+
+    private final URL url;
+
+    private final String[] headers;
+
+    private volatile RateLimiter rateLimiter;
+
+    public RequestTemplate(String method, String urlStr) {
+        this(method, urlStr, null, null, defaultContentType(method));
+    }
+
+    /**
+     * @param method
+     *            one of GET, POST, PUT or DELETE.
+     * @param urlStr
+     *            complete url of the server endpoint (including port and path).
+     * @param params
+     *            parameters sent in every request. This value can be null.
+     * @param headers
+     *            headers sent in every request. This value can be null.
+     * @param contentType
+     *            content type of the body, ignored for GET and DELETE.
+     * @throws IllegalArgumentException
+     *             if the method is not supported or the url is malformed.
+     */
+    public RequestTemplate(String method, String urlStr,
+            Map<String, String[]> params, Map<String, String> headers,
+            String contentType) {
+
+        if (!hasBody(method) && !"GET".equals(method)
+                && !"DELETE".equals(method)) {
+            throw new IllegalArgumentException("Unsupported method: " + method);
+        }
+
+        this.method = method;
+
+        try {
+            StringBuilder encodedUrl = new StringBuilder(urlStr);
+            HTTPUtils.appendEncodedParams(encodedUrl, params);
+            this.encodedUrl = encodedUrl.toString();
+            this.url = new URL(this.encodedUrl);
+        } catch (MalformedURLException mue) {
+            throw new IllegalArgumentException("Malformed url: " + urlStr, mue);
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalArgumentException(uee);
+        }
+
+        this.headers = HTTPUtils.toHeaderArray(headers,
+                hasBody(method) ? contentType : null);
+    }
+
+    private static boolean hasBody(String method) {
+        return "POST".equals(method) || "PUT".equals(method);
+    }
+
+    private static String defaultContentType(String method) {
+        return "POST".equals(method) ? HTTPUtils.XML_CONTENT_TYPE : null;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Sets a rate limiter for the requests of this template, applied on top
+     * of the one of {@link HTTPUtils}, if any. Null disables it.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Executes the request without a body, or with an empty one for POST and
+     * PUT.
+     */
+    public String execute(Integer connectTimeout, Integer readTimeout)
+            throws IOException {
+        return execute(null, null, connectTimeout, readTimeout);
+    }
+
+    public String execute(String data, Integer connectTimeout,
+            Integer readTimeout) throws IOException {
+        return execute(null, data, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Executes the request.
+     *
+     * @param params
+     *            parameters appended to the static ones for this call only.
+     *            This value can be null.
+     * @param data
+     *            body of the request, ignored for GET and DELETE. This value
+     *            can be null.
+     * @return the response, as the equivalent method of {@link HTTPUtils}
+     *         would return it.
+     * @throws IOException
+     */
+    public String execute(Map<String, String[]> params, String data,
+            Integer connectTimeout, Integer readTimeout) throws IOException {
+
+        URL requestUrl = prepare(params);
+
+        if ("GET".equals(method)) {
+            return HTTPUtils.executeGet(requestUrl, headers, connectTimeout,
+                    readTimeout);
+        }
+
+        byte[] body = hasBody(method) ? HTTPUtils.encode(data) : null;
+
+        return HTTPUtils.execute(method, requestUrl, headers, body,
+                connectTimeout, readTimeout);
+    }
+
+    public HTTPResponse executeRaw(String data, Integer connectTimeout,
+            Integer readTimeout) throws IOException {
+        return executeRaw(null, data, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Executes the request like {@link #execute(Map, String, Integer, Integer)},
+     * but returns the response body untouched, with its content type.
+     */
+    public HTTPResponse executeRaw(Map<String, String[]> params, String data,
+            Integer connectTimeout, Integer readTimeout) throws IOException {
+
+        URL requestUrl = prepare(params);
+
+        if ("GET".equals(method)) {
+            return HTTPUtils.executeGet(requestUrl, headers, connectTimeout,
+                    readTimeout, HTTPUtils.RAW);
+        }
+
+        byte[] body = hasBody(method) ? HTTPUtils.encode(data) : null;
+
+        return HTTPUtils.executeRaw(method, requestUrl, headers, body,
+                connectTimeout, readTimeout);
+    }
+
+    /*
+     * Waits for the rate limiter and appends the parameters of this call
+     */
+    private URL prepare(Map<String, String[]> params) throws IOException {
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            limiter.acquireForRequest();
+        }
+
+        if (params == null || params.isEmpty()) {
+            return url;
+        }
+        StringBuilder buffer = new StringBuilder(encodedUrl);
+        HTTPUtils.appendEncodedParams(buffer, params);
+        return new URL(buffer.toString());
+    }
+
+}
@@ -0,0 +1,416 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of the responses to GET requests, bounded by the bytes of
+ * the bodies it holds and evicting the least recently used ones first.
+ *
+ * Responses are cached as the server allows with Cache-Control (max-age,
+ * no-cache, no-store) or Expires. Once stale, or always for no-cache, they
+ * are revalidated with If-None-Match and If-Modified-Since, and a 304 serves
+ * the cached body again. Only 200 responses are stored.
+ *
+ * Entries are keyed by url and request headers, so responses that vary with
+ * a header (Accept, Authorization...) are kept apart. Responses that vary
+ * with anything else (Vary: *) are not cached. It is a private cache: it
+ * stores responses marked private.
+ */
+public class ResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    /*
+     * Rough cost of an entry besides its body, so that empty bodies also
+     * count against the bound
+     */
+    static final int ENTRY_OVERHEAD = 256;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(
+            16, 0.75f, true);
+
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong revalidations = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes
+     *            upper bound of the bytes held, bodies and a fixed overhead
+     *            per entry.
+     */
+    public ResponseCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Requests answered from the cache without contacting the server.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Requests that got a whole response from the server, whether it was
+     * cached afterwards or not.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Revalidations answered with 304 Not Modified.
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /* =========================================================================
+     * Used by HTTPUtils
+     * =======================================================================*/
+
+    /*
+     * Key of a request: its url and headers, in the order given
+     */
+    static String key(URL url, String[] headers) {
+        StringBuilder key = new StringBuilder(url.toString());
+        for (int i = 0; i < headers.length; i += 2) {
+            key.append('\n').append(headers[i].toLowerCase(Locale.ENGLISH))
+                    .append(": ").append(headers[i + 1]);
+        }
+        return key.toString();
+    }
+
+    /*
+     * Whether the request headers ask to skip the cache altogether: no-store,
+     * or conditional headers of the caller's own
+     */
+    static boolean isBypassed(String[] headers) {
+        for (int i = 0; i < headers.length; i += 2) {
+            String name = headers[i];
+            if (name.equalsIgnoreCase("If-None-Match")
+                    || name.equalsIgnoreCase("If-Modified-Since")
+                    || (name.equalsIgnoreCase("Cache-Control") && hasDirective(
+                            headers[i + 1], "no-store"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Whether the request headers ask to revalidate even fresh entries
+     */
+    static boolean isRevalidationRequested(String[] headers) {
+        for (int i = 0; i < headers.length; i += 2) {
+            String name = headers[i];
+            if ((name.equalsIgnoreCase("Cache-Control") && (hasDirective(
+                    headers[i + 1], "no-cache") || "0".equals(directive(
+                    headers[i + 1], "max-age"))))
+                    || (name.equalsIgnoreCase("Pragma") && hasDirective(
+                            headers[i + 1], "no-cache"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /*
+     * Stores an entry, replacing any other one for the key, and evicts the
+     * least recently used ones until the cache is back within its bound
+     */
+    synchronized void put(String key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        entries.put(key, entry);
+        bytes += entry.size();
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet()
+                .iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.size();
+        }
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void revalidated() {
+        revalidations.incrementAndGet();
+    }
+
+    /**
+     * A response as the cache keeps it: body, content type, validators and
+     * how long it stays fresh.
+     */
+    static final class Entry {
+
+        final int status;
+
+        final String contentType;
+
+        final byte[] body;
+
+        final String etag;
+
+        final String lastModified;
+
+        /*
+         * Wall clock time until which the entry can be used without
+         * revalidating it
+         */
+        final long freshUntil;
+
+        final boolean noStore;
+
+        Entry(int status, String contentType, byte[] body,
+                String etag, String lastModified, long freshUntil,
+                boolean noStore) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+            this.noStore = noStore;
+        }
+
+        /*
+         * Reads the caching headers of a response, whose body has already
+         * been read
+         */
+        static Entry of(HttpURLConnection connection, byte[] body)
+                throws IOException {
+            int status = connection.getResponseCode();
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            String vary = connection.getHeaderField("Vary");
+
+            long now = System.currentTimeMillis();
+            long lifetime = 0;
+            String maxAge = directive(cacheControl, "max-age");
+            if (maxAge != null) {
+                lifetime = (seconds(maxAge) - seconds(connection
+                        .getHeaderField("Age"))) * 1000;
+            } else if (connection.getExpiration() != 0) {
+                long date = connection.getDate();
+                lifetime = connection.getExpiration()
+                        - ((date != 0) ? date : now);
+            }
+            if (hasDirective(cacheControl, "no-cache")) {
+                lifetime = 0;
+            }
+
+            boolean noStore = hasDirective(cacheControl, "no-store")
+                    || (vary != null && vary.trim().equals("*"));
+
+            return new Entry(status, connection.getContentType(), body,
+                    connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"), now
+                            + Math.max(lifetime, 0), noStore);
+        }
+
+        /*
+         * The same body, with the freshness of the 304 that confirmed it and
+         * any validators it sent
+         */
+        Entry revalidate(Entry notModified) {
+            return new Entry(status, contentType, body,
+                    (notModified.etag != null) ? notModified.etag : etag,
+                    (notModified.lastModified != null) ? notModified.lastModified
+                            : lastModified, notModified.freshUntil,
+                    notModified.noStore);
+        }
+
+        /*
+         * Only worth keeping if it can be used as is for a while, or
+         * revalidated
+         */
+        boolean isStorable() {
+            return status == HttpURLConnection.HTTP_OK && !noStore
+                    && (isFresh() || hasValidators());
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        /*
+         * Request headers plus the conditional ones to revalidate this entry
+         */
+        String[] conditional(String[] headers) {
+            int extra = ((etag != null) ? 2 : 0)
+                    + ((lastModified != null) ? 2 : 0);
+            String[] conditional = new String[headers.length + extra];
+            System.arraycopy(headers, 0, conditional, 0, headers.length);
+            int i = headers.length;
+            if (etag != null) {
+                conditional[i++] = "If-None-Match";
+                conditional[i++] = etag;
+            }
+            if (lastModified != null) {
+                conditional[i++] = "If-Modified-Since";
+                conditional[i++] = lastModified;
+            }
+            return conditional;
+        }
+
+        long size() {
+            return body.length + ENTRY_OVERHEAD;
+        }
+
+    }
+
+    private static boolean hasDirective(String header, String name) {
+        if (header == null) {
+            return false;
+        }
+        for (String directive : header.split(",")) {
+            String token = directive.trim();
+            int equals = token.indexOf('=');
+            if (equals != -1) {
+                token = token.substring(0, equals).trim();
+            }
+            if (token.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Value of a directive such as max-age=60, or null if it is not there
+     */
+    private static String directive(String header, String name) {
+        if (header == null) {
+            return null;
+        }
+        for (String directive : header.split(",")) {
+            int equals = directive.indexOf('=');
+            if (equals != -1
+                    && directive.substring(0, equals).trim().equalsIgnoreCase(
+                            name)) {
+                String value = directive.substring(equals + 1).trim();
+                if (value.startsWith("\"") && value.endsWith("\"")
+                        && value.length() > 1) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(Long.parseLong(value.trim()), 0);
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ResponseCacheTest {
+
+    /*
+     * Answers with the given caching headers and counts the requests, the
+     * conditional ones apart
+     */
+    private static class Handler implements HttpHandler {
+
+        private final String cacheControl;
+        private final String etag;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger notModified = new AtomicInteger();
+
+        Handler(String cacheControl, String etag) {
+            this.cacheControl = cacheControl;
+            this.etag = etag;
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst(
+                        "If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            byte[] body = "0123456789".getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        Handler fresh = new Handler("max-age=60", null);
+        Handler revalidated = new Handler("max-age=0", "\"v1\"");
+        Handler noStore = new Handler("no-store", "\"v1\"");
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/fresh", fresh);
+        server.createContext("/revalidated", revalidated);
+        server.createContext("/nostore", noStore);
+        server.start();
+        ResponseCache cache = new ResponseCache();
+        HTTPUtils.setResponseCache(cache);
+        try {
+            String base = "http://127.0.0.1:"
+                    + server.getAddress().getPort();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals("0123456789", get(base + "/fresh"));
+                Assert.assertEquals("0123456789", get(base + "/revalidated"));
+                Assert.assertEquals("0123456789", get(base + "/nostore"));
+            }
+            Assert.assertEquals(1, fresh.requests.get());
+            Assert.assertEquals(3, revalidated.requests.get());
+            Assert.assertEquals(2, revalidated.notModified.get());
+            Assert.assertEquals(3, noStore.requests.get());
+            Assert.assertEquals(0, noStore.notModified.get());
+            Assert.assertEquals(2, cache.getHits());
+            Assert.assertEquals(2, cache.getRevalidations());
+            Assert.assertEquals(5, cache.getMisses());
+            Assert.assertEquals(2, cache.getSize());
+        } finally {
+            HTTPUtils.setResponseCache(null);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        ResponseCache cache = new ResponseCache(
+                3 * (ResponseCache.ENTRY_OVERHEAD + 100));
+        for (int i = 0; i < 4; i++) {
+            cache.put("k" + i, entry(100));
+        }
+        Assert.assertNull(cache.get("k0"));
+        Assert.assertNotNull(cache.get("k1"));
+        cache.put("k4", entry(100));
+        Assert.assertNull(cache.get("k2"));
+        Assert.assertNotNull(cache.get("k1"));
+        Assert.assertEquals(2, cache.getEvictions());
+        Assert.assertTrue(cache.getBytes() <= cache.getMaxBytes());
+    }
+
+    private static String get(String url) throws IOException {
+        // doGet keeps the line breaks, so a line break ends the body
+        return HTTPUtils.doGet(url, null, null, null).trim();
+    }
+
+    private static ResponseCache.Entry entry(int length) {
+        return new ResponseCache.Entry(200, "text/plain", new byte[length],
+                "\"v1\"", null, Long.MAX_VALUE, false);
+    }
+}
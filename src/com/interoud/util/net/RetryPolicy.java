@@ -0,0 +1,199 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries failed idempotent requests with jittered exponential backoff.
+ *
+ * Retries are limited by a budget shared by every request executed with the
+ * policy: each request adds a fraction of a retry to the budget and each
+ * retry takes a whole one, so when the server is failing the retries never
+ * exceed that fraction of the traffic (plus a small initial allowance).
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 50;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    public static final int MAX_BUDGET = 10;
+
+    /*
+     * The budget is kept in thousandths of a retry
+     */
+    private static final long RETRY_COST = 1000;
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final long budgetDeposit;
+
+    private final AtomicLong budget = new AtomicLong(MAX_BUDGET * RETRY_COST);
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    private final Random random = new Random();
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS,
+                DEFAULT_MAX_DELAY_MILLIS, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * @param maxAttempts
+     *            maximum number of attempts per request, including the first
+     *            one.
+     * @param baseDelayMillis
+     *            upper bound of the delay before the first retry. It doubles
+     *            with every further retry.
+     * @param maxDelayMillis
+     *            upper bound of the delay before any retry.
+     * @param budgetRatio
+     *            retries allowed per request, on average (e.g. 0.1).
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis,
+            long maxDelayMillis, double budgetRatio) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetDeposit = Math.round(budgetRatio * RETRY_COST);
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Number of retries that were not attempted because the budget was
+     * exhausted.
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * Executes the request, retrying it when it fails with an error that may
+     * be transient.
+     */
+    public <T> T execute(HTTPCall<T> call) throws IOException {
+
+        deposit();
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return call.call();
+            } catch (IOException ioe) {
+                if (attempt >= maxAttempts || !isRetryable(ioe)) {
+                    throw ioe;
+                }
+                if (!withdraw()) {
+                    budgetExhausted.incrementAndGet();
+                    throw ioe;
+                }
+                retries.incrementAndGet();
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    /*
+     * Errors that will not go away by repeating the request, and requests
+     * rejected by the client itself to shed load
+     */
+    protected boolean isRetryable(IOException ioe) {
+        return !(ioe instanceof FileNotFoundException
+                || ioe instanceof MalformedURLException
+                || ioe instanceof UnknownHostException
+                || ioe instanceof RequestRejectedException);
+    }
+
+    /*
+     * "Full jitter": a random delay between 0 and the exponential bound.
+     */
+    long backoffMillis(int attempt) {
+        long bound = baseDelayMillis << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > maxDelayMillis) {
+            bound = maxDelayMillis;
+        }
+        return (long) (random.nextDouble() * bound);
+    }
+
+    private void deposit() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= MAX_BUDGET * RETRY_COST) {
+                return;
+            }
+        } while (!budget.compareAndSet(current,
+                Math.min(current + budgetDeposit, MAX_BUDGET * RETRY_COST)));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < RETRY_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - RETRY_COST));
+        return true;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+}
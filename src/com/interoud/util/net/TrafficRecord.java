@@ -0,0 +1,108 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.net.URL;
+
+/**
+ * A request read from a trace log written by {@link TrafficRecorder}.
+ */
+public class TrafficRecord {
+
+    private final long offsetNanos;
+
+    private final long latencyNanos;
+
+    private final int status;
+
+    private final String method;
+
+    private final URL url;
+
+    private final String[] headers;
+
+    private final byte[] body;
+
+    TrafficRecord(long offsetNanos, long latencyNanos, int status,
+            String method, URL url, String[] headers, byte[] body) {
+        this.offsetNanos = offsetNanos;
+        this.latencyNanos = latencyNanos;
+        this.status = status;
+        this.method = method;
+        this.url = url;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * Start of the request, in nanoseconds since the recording started.
+     */
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * HTTP status received, or 0 if the request failed before getting one.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Headers as flattened name/value pairs.
+     */
+    String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Request body, or null if it had none.
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+}
@@ -0,0 +1,213 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends every request made through {@link HTTPUtils} to a binary trace log,
+ * which {@link TrafficReplayer} can send again later.
+ *
+ * The log is written through a memory mapped file, mapped in chunks as it
+ * grows, so recording a request costs a copy into memory and no system call.
+ * The layout of the file is:
+ *
+ * <pre>
+ * header: int magic, int version, long wall clock time of the recording start (ms)
+ * record: int length of the rest of the record,
+ *         long start of the request (ns since the recording start),
+ *         long latency (ns), int HTTP status (0 if none was received),
+ *         string method, string url, int header count, string name, string value...,
+ *         int body length (-1 if there is none), body bytes
+ * </pre>
+ *
+ * Records are appended as their requests complete, so they are not sorted by
+ * start: {@link TrafficTrace} sorts them when it loads the log.
+ *
+ * Strings are stored as an int length followed by their UTF-8 bytes. Unused
+ * mapped space is zero filled, so a log that was not closed properly ends at
+ * the first record of length 0.
+ */
+public class TrafficRecorder implements Closeable {
+
+    public static final int MAGIC = 0x46535452;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final int chunkSize;
+
+    private final long originNanos = System.nanoTime();
+
+    /*
+     * Mapped region being written and its offset in the file, guarded by this
+     * object's lock
+     */
+    private MappedByteBuffer buffer;
+
+    private long bufferOffset;
+
+    private boolean closed;
+
+    private final AtomicLong records = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public TrafficRecorder(File file) throws IOException {
+        this(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates the log, overwriting the file if it exists.
+     *
+     * @param chunkSize
+     *            size of the regions of the file mapped at a time.
+     */
+    public TrafficRecorder(File file, int chunkSize) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+        this.chunkSize = chunkSize;
+
+        map(0, Math.max(chunkSize, HEADER_SIZE));
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Records a request. Errors writing the log are not propagated to the
+     * request: the record is dropped and counted instead.
+     *
+     * @param startNanos
+     *            System.nanoTime() when the request started.
+     */
+    void record(long startNanos, String method, URL url, String[] headers,
+            byte[] body, int status, long latencyNanos) {
+        try {
+            byte[][] strings = new byte[2 + headers.length][];
+            strings[0] = HTTPUtils.encode(method);
+            strings[1] = HTTPUtils.encode(url.toString());
+            for (int i = 0; i < headers.length; i++) {
+                strings[2 + i] = HTTPUtils.encode(headers[i]);
+            }
+
+            int length = 8 + 8 + 4 + 4 + 4 + ((body != null) ? body.length : 0);
+            for (byte[] string : strings) {
+                length += 4 + string.length;
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (buffer.remaining() < 4 + length) {
+                    map(bufferOffset + buffer.position(), Math.max(chunkSize,
+                            4 + length));
+                }
+                buffer.putInt(length);
+                buffer.putLong(startNanos - originNanos);
+                buffer.putLong(latencyNanos);
+                buffer.putInt(status);
+                putString(strings[0]);
+                putString(strings[1]);
+                buffer.putInt(headers.length / 2);
+                for (int i = 2; i < strings.length; i++) {
+                    putString(strings[i]);
+                }
+                if (body != null) {
+                    buffer.putInt(body.length);
+                    buffer.put(body);
+                } else {
+                    buffer.putInt(-1);
+                }
+            }
+            records.incrementAndGet();
+        } catch (IOException ioe) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void putString(byte[] string) {
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private void map(long offset, int size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        bufferOffset = offset;
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    /**
+     * Number of requests that could not be recorded.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Flushes the log and trims the unused mapped space from the file.
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        long size = bufferOffset + buffer.position();
+        buffer = null;
+        try {
+            channel.truncate(size);
+        } finally {
+            file.close();
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.interoud.util.metrics.LatencyHistogram;
+
+/**
+ * Sends the requests of a {@link TrafficTrace} again, keeping their original
+ * spacing (optionally scaled) and with a bounded number of requests in flight.
+ *
+ * When the requests cannot be sent on time, because every worker is busy, they
+ * are sent as soon as possible; how late they were is reported so that a
+ * replay that could not keep up is not mistaken for a faithful one. Requests
+ * that were recorded close together may overtake each other unless the
+ * concurrency is 1.
+ */
+public class TrafficReplayer {
+
+    private final TrafficTrace trace;
+
+    private double speed = 1.0;
+
+    private int concurrency = 16;
+
+    private Integer connectTimeout;
+
+    private Integer readTimeout;
+
+    private final AtomicLong replayed = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong divergences = new AtomicLong();
+
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+
+    private final LatencyHistogram latenessMicros = new LatencyHistogram();
+
+    public TrafficReplayer(TrafficTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Sets the speed of the replay: 1 keeps the original timing, 2 sends the
+     * requests twice as fast and 0 sends them as fast as possible.
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight.
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public void setTimeouts(Integer connectTimeout, Integer readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Replays the whole trace and waits for the last request to finish.
+     */
+    public void replay() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+
+        try {
+            for (final TrafficRecord record : trace.getRecords()) {
+                long scheduled = start;
+                if (speed > 0) {
+                    scheduled += (long) (record.getOffsetNanos() / speed);
+                    long wait = scheduled - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+
+                final long due = scheduled;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        send(record, due);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void send(TrafficRecord record, long due) {
+        long start = System.nanoTime();
+        if (speed > 0) {
+            latenessMicros.record(TimeUnit.NANOSECONDS.toMicros(start - due));
+        }
+
+        boolean originalOk = record.getStatus() >= 200
+                && record.getStatus() < 300;
+        boolean ok;
+        try {
+            HTTPUtils.execute(record.getMethod(), record.getURL(),
+                    record.getHeaders(), record.getBody(), connectTimeout,
+                    readTimeout);
+            ok = true;
+        } catch (IOException ioe) {
+            failures.incrementAndGet();
+            ok = false;
+        }
+
+        latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime()
+                - start));
+        if (ok != originalOk) {
+            divergences.incrementAndGet();
+        }
+        replayed.incrementAndGet();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Number of requests whose outcome (success or failure) differs from the
+     * recorded one.
+     */
+    public long getDivergences() {
+        return divergences.get();
+    }
+
+    public LatencyHistogram getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * Delay between the time each request was due and the time it was sent.
+     */
+    public LatencyHistogram getLatenessMicros() {
+        return latenessMicros;
+    }
+
+    /**
+     * Usage: TrafficReplayer &lt;trace&gt; [speed] [concurrency]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: TrafficReplayer <trace> [speed] [concurrency]");
+            System.exit(1);
+        }
+
+        TrafficReplayer replayer = new TrafficReplayer(new TrafficTrace(
+                new File(args[0])));
+        if (args.length > 1) {
+            replayer.setSpeed(Double.parseDouble(args[1]));
+        }
+        if (args.length > 2) {
+            replayer.setConcurrency(Integer.parseInt(args[2]));
+        }
+
+        long start = System.nanoTime();
+        replayer.replay();
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram latency = replayer.getLatencyMicros();
+        LatencyHistogram lateness = replayer.getLatenessMicros();
+        System.out.printf("replayed %d requests in %.1f s: %d failed, %d diverged%n",
+                replayer.getReplayed(), elapsed / 1e9, replayer.getFailures(),
+                replayer.getDivergences());
+        System.out.printf("latency ms: p50 %.3f, p99 %.3f, max %.3f%n",
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMax() / 1000.0);
+        System.out.printf("lateness ms: p50 %.3f, p99 %.3f, max %.3f%n",
+                lateness.getValueAtPercentile(50) / 1000.0,
+                lateness.getValueAtPercentile(99) / 1000.0,
+                lateness.getMax() / 1000.0);
+    }
+
+}
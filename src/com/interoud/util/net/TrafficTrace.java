@@ -0,0 +1,153 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Trace log written by {@link TrafficRecorder}, loaded in memory.
+ */
+public class TrafficTrace {
+
+    /*
+     * Records are logged when their request completes, so a slow request comes
+     * after the ones started while it was running
+     */
+    private static final Comparator<TrafficRecord> BY_OFFSET =
+            new Comparator<TrafficRecord>() {
+                public int compare(TrafficRecord r1, TrafficRecord r2) {
+                    long o1 = r1.getOffsetNanos();
+                    long o2 = r2.getOffsetNanos();
+                    return (o1 < o2) ? -1 : ((o1 == o2) ? 0 : 1);
+                }
+            };
+
+    private final long originMillis;
+
+    private final List<TrafficRecord> records;
+
+    /**
+     * Reads a trace log.
+     *
+     * @throws IOException
+     *             if the file cannot be read or is not a trace log.
+     */
+    public TrafficTrace(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+
+            if (buffer.remaining() < TrafficRecorder.HEADER_SIZE
+                    || buffer.getInt() != TrafficRecorder.MAGIC) {
+                throw new IOException(file + " is not a trace log");
+            }
+            int version = buffer.getInt();
+            if (version != TrafficRecorder.VERSION) {
+                throw new IOException("Unsupported trace log version "
+                        + version);
+            }
+            originMillis = buffer.getLong();
+
+            List<TrafficRecord> records = new ArrayList<TrafficRecord>();
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length <= 0) {
+                    break;
+                }
+                if (length > buffer.remaining()) {
+                    throw new IOException("Truncated record at offset "
+                            + (buffer.position() - 4));
+                }
+                records.add(readRecord(buffer));
+            }
+            Collections.sort(records, BY_OFFSET);
+            this.records = Collections.unmodifiableList(records);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static TrafficRecord readRecord(ByteBuffer buffer)
+            throws IOException {
+        long offset = buffer.getLong();
+        long latency = buffer.getLong();
+        int status = buffer.getInt();
+        String method = getString(buffer);
+        URL url = new URL(getString(buffer));
+        String[] headers = new String[buffer.getInt() * 2];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = getString(buffer);
+        }
+        byte[] body = null;
+        int bodyLength = buffer.getInt();
+        if (bodyLength >= 0) {
+            body = new byte[bodyLength];
+            buffer.get(body);
+        }
+        return new TrafficRecord(offset, latency, status, method, url, headers,
+                body);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, HTTPUtils.ENCODING);
+    }
+
+    /**
+     * Wall clock time at which the recording started.
+     */
+    public long getOriginMillis() {
+        return originMillis;
+    }
+
+    /**
+     * Records in the order their requests started.
+     */
+    public List<TrafficRecord> getRecords() {
+        return records;
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+* Copyright (c) 2014, Miguel Ángel Francisco Fernández
+*
+* All rights reserved.
+*
+* Redistribution and use in source and binary forms, with or without
+* modification, are permitted provided that the following conditions are met:
+*
+* 1. Redistributions of source code must retain the above copyright notice,
+* this list of conditions and the following disclaimer.
+*
+* 2. Redistributions in binary form must reproduce the above copyright notice,
+* this list of conditions and the following disclaimer in the documentation
+* and/or other materials provided with the distribution.
+*
+* 3. Neither the name of the copyright holder nor the names of its
+* contributors may be used to endorse or promote products derived from this
+* software without specific prior written permission.
+*
+* THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+* AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+* IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+* ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+* LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+* CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+* SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+* INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+* CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+* ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+* POSSIBILITY OF SUCH DAMAGE.
+*
+* Created: 2026-10-18
+*/
+package com.interoud.util.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TrafficTraceTest {
+
+    /*
+     * Holds the answer to the slow request until the fast one completed
+     */
+    private static class Handler implements HttpHandler {
+
+        private final CountDownLatch slowReceived = new CountDownLatch(1);
+        private final CountDownLatch fastDone = new CountDownLatch(1);
+
+        public void handle(HttpExchange exchange) throws IOException {
+            InputStream in = exchange.getRequestBody();
+            while (in.read() >= 0) {
+            }
+            int status = 200;
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                slowReceived.countDown();
+                try {
+                    fastDone.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                status = 201;
+            }
+            byte[] body = HTTPUtils.encode("<response/>");
+            exchange.getResponseHeaders().set("Content-Type", "text/xml");
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    @Test
+    public void testOverlappingRequests() throws Exception {
+        final Handler handler = new Handler();
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        final String url = "http://127.0.0.1:"
+                + server.getAddress().getPort();
+
+        File file = File.createTempFile("traffic", ".trace");
+        TrafficRecorder recorder = new TrafficRecorder(file);
+        HTTPUtils.setTrafficRecorder(recorder);
+        long before = System.currentTimeMillis();
+        try {
+            Thread slow = new Thread() {
+                public void run() {
+                    try {
+                        HTTPUtils.doPost(url + "/slow", "<slow/>", 1000, 5000);
+                    } catch (IOException ioe) {
+                    }
+                }
+            };
+            slow.start();
+            Assert.assertTrue(handler.slowReceived.await(5, TimeUnit.SECONDS));
+            HTTPUtils.doGet(url + "/fast", null, 1000, 5000);
+            handler.fastDone.countDown();
+            slow.join();
+        } finally {
+            HTTPUtils.setTrafficRecorder(null);
+            recorder.close();
+            server.stop(0);
+            executor.shutdown();
+        }
+
+        try {
+            Assert.assertEquals(2, recorder.getRecords());
+            TrafficTrace trace = new TrafficTrace(file);
+            Assert.assertTrue(trace.getOriginMillis() <= before);
+            List<TrafficRecord> records = trace.getRecords();
+            Assert.assertEquals(2, records.size());
+
+            TrafficRecord first = records.get(0);
+            Assert.assertEquals("POST", first.getMethod());
+            Assert.assertEquals(url + "/slow", first.getURL().toString());
+            Assert.assertEquals(201, first.getStatus());
+            Assert.assertEquals("<slow/>", new String(first.getBody(),
+                    HTTPUtils.ENCODING));
+            Assert.assertEquals(2, first.getHeaders().length);
+            Assert.assertEquals("Content-Type", first.getHeaders()[0]);
+            Assert.assertEquals(HTTPUtils.XML_CONTENT_TYPE,
+                    first.getHeaders()[1]);
+
+            TrafficRecord second = records.get(1);
+            Assert.assertEquals("GET", second.getMethod());
+            Assert.assertEquals(url + "/fast", second.getURL().toString());
+            Assert.assertEquals(200, second.getStatus());
+            Assert.assertNull(second.getBody());
+
+            Assert.assertTrue(first.getOffsetNanos() < second.getOffsetNanos());
+            Assert.assertTrue(first.getOffsetNanos() + first.getLatencyNanos()
+                    > second.getOffsetNanos() + second.getLatencyNanos());
+        } finally {
+            file.delete();
+        }
+    }
+}